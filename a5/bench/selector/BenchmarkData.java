@@ -0,0 +1,81 @@
+package selector;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic images and selections shared by the benchmarks.  Everything is generated from fixed
+ * seeds so that runs on different machines (and before and after a change) measure the same work.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Return the `n` vertices of a regular polygon of radius `radius` centered at (`cx`, `cy`),
+     * rounded to pixel coordinates, in counter-clockwise order.  Requires `n` >= 3.
+     */
+    static Point[] ring(int n, int cx, int cy, int radius) {
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * i / n;
+            points[i] = new Point(cx + (int) Math.round(radius * Math.cos(angle)),
+                    cy + (int) Math.round(radius * Math.sin(angle)));
+        }
+        return points;
+    }
+
+    /**
+     * Return a closed path of straight segments through the `n` vertices of `ring(n, ...)`, with
+     * a radius large enough that the vertices stay distinct.
+     */
+    static List<PolyLine> ringSegments(int n) {
+        int radius = Math.max(n, 100);
+        Point[] points = ring(n, radius, radius, radius);
+        List<PolyLine> segments = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            segments.add(new PolyLine(points[i], points[(i + 1) % n]));
+        }
+        return segments;
+    }
+
+    /**
+     * Return a point-to-point model (without an image) whose finished selection has `n` straight
+     * segments joining the vertices of a large regular polygon.  Requires `n` >= 3.
+     */
+    static PointToPointSelectionModel ringSelection(int n) {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        int radius = Math.max(n, 100);
+        for (Point p : ring(n, radius, radius, radius)) {
+            model.addPoint(p);
+        }
+        model.finishSelection();
+        return model;
+    }
+
+    /**
+     * Return a `width`x`height` opaque image of noise with a brighter disk in the middle, so that
+     * both gradients and selections have something to find.
+     */
+    static BufferedImage noisyDisk(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        Random rng = new Random(2110);
+        long cx = width / 2;
+        long cy = height / 2;
+        long r2 = (long) Math.min(width, height) * Math.min(width, height) / 9;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = ((x - cx) * (x - cx) + (y - cy) * (y - cy) <= r2) ? 160 : 40;
+                int v = base + rng.nextInt(48);
+                row[x] = (v << 16) | (v << 8) | v;
+            }
+            img.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return img;
+    }
+}
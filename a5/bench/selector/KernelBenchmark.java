@@ -0,0 +1,69 @@
+package selector;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares the scalar and Vector API implementations of `PixelKernels`.  Run with
+ * `--add-modules jdk.incubator.vector` (otherwise only the scalar kernels can be measured).  Each
+ * kernel runs single-threaded so that the comparison reflects per-core throughput.
+ */
+public class KernelBenchmark {
+
+    /**
+     * Number of untimed iterations before measuring, to let the JIT compile the kernels.
+     */
+    private static final int WARMUP = 5;
+
+    /**
+     * Number of timed iterations.
+     */
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Random rng = new Random(2110);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                img.setRGB(x, y, rng.nextInt());
+            }
+        }
+        int[] pixels = new int[size * size];
+        int[] mask = new int[size * size];
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = rng.nextBoolean() ? -1 : 0;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(1);
+        PixelKernels[] candidates = {PixelKernels.scalar(), PixelKernels.vector()};
+        System.out.printf("%dx%d image, selected kernels: %s%n", size, size,
+                PixelKernels.get().name());
+        for (PixelKernels kernels : candidates) {
+            if (kernels == null) {
+                System.out.println("vector: unavailable (jdk.incubator.vector not resolved)");
+                continue;
+            }
+            double sobelMs = time(() -> new GradientMap(img, pool, kernels));
+            double maskMs = time(() -> kernels.and(pixels, mask, 0, pixels.length));
+            System.out.printf("%-9s gradient %8.2f ms   mask %6.2f ms%n", kernels.name(),
+                    sobelMs, maskMs);
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Return the mean running time of `task` in milliseconds after warming it up.
+     */
+    private static double time(Runnable task) {
+        for (int i = 0; i < WARMUP; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+}
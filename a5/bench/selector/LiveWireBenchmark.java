@@ -0,0 +1,91 @@
+package selector;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the live wire drawn to the pointer on every mouse move: the straight line of the
+ * point-to-point tool, and the path of least cost of the scissors tool both from a fresh anchor
+ * (a cold tree) and while the pointer wanders near the last target (a warm tree).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class LiveWireBenchmark {
+
+    /**
+     * Width and height of the image.
+     */
+    @Param({"512", "2048"})
+    int size;
+
+    private PointToPointSelectionModel pointToPoint;
+    private ScissorsSelectionModel scissors;
+    private byte[] weights;
+    private Point anchor, target;
+    private int jitter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BufferedImage img = BenchmarkData.noisyDisk(size, size);
+        anchor = new Point(size / 6, size / 2);
+        target = new Point(5 * size / 6, size / 2);
+        pointToPoint = new PointToPointSelectionModel(false);
+        pointToPoint.setImage(img);
+        pointToPoint.addPoint(anchor);
+        scissors = new ScissorsSelectionModel(false);
+        scissors.setImage(img);
+        scissors.addPoint(anchor);
+        weights = ShortestPathTree.weights(scissors.gradient());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scissors.cancelBackgroundWork();
+    }
+
+    @Benchmark
+    public PolyLine pointToPoint() {
+        return pointToPoint.liveWire(target);
+    }
+
+    /**
+     * Path to a target near the last one, from a tree that has already reached it.
+     */
+    @Benchmark
+    public PolyLine scissorsWarm() {
+        jitter = (jitter + 1) & 7;
+        return scissors.liveWire(new Point(target.x - jitter, target.y + jitter));
+    }
+
+    /**
+     * Path across the image from a new anchor, whose tree must be grown from scratch.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    public PolyLine scissorsCold() {
+        jitter = (jitter + 1) & 7;
+        return new ShortestPathTree(size, size, weights, new Point(anchor.x, anchor.y + jitter))
+                .pathTo(target);
+    }
+}
@@ -0,0 +1,62 @@
+package selector;
+
+import java.awt.Polygon;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building the polygon enclosed by a selection path, from scratch with
+ * `PolyLine.makePolygon()` and from a `SegmentList` after editing one segment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class PolygonBenchmark {
+
+    /**
+     * Number of vertices (and of segments) in the path.
+     */
+    @Param({"10", "1000", "100000", "1000000"})
+    int vertices;
+
+    private List<PolyLine> segments;
+    private SegmentList list;
+    private int edit;
+
+    @Setup
+    public void setup() {
+        segments = BenchmarkData.ringSegments(vertices);
+        list = new SegmentList();
+        list.addAll(segments);
+    }
+
+    @Benchmark
+    public Polygon makePolygon() {
+        return PolyLine.makePolygon(segments);
+    }
+
+    /**
+     * Replace one segment (cycling through the path) with itself and rebuild the polygon, as after
+     * moving a control point.
+     */
+    @Benchmark
+    public Polygon segmentListAfterEdit() {
+        edit = (edit + 1) % vertices;
+        list.set(edit, list.get(edit));
+        return list.polygon();
+    }
+}
@@ -0,0 +1,56 @@
+package selector;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures exporting a selection (cropping, masking and PNG encoding) from synthetic images of up
+ * to 16k x 16k pixels.  The selection is a 64-sided polygon inscribed in the image.  Output is
+ * discarded, so only the encoder's work is measured, not the disk's.  The largest images need a
+ * heap of several gigabytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx12g"})
+public class SaveSelectionBenchmark {
+
+    /**
+     * Width and height of the image.
+     */
+    @Param({"1024", "4096", "16384"})
+    int size;
+
+    private PointToPointSelectionModel model;
+
+    @Setup
+    public void setup() {
+        model = new PointToPointSelectionModel(false);
+        model.setImage(BenchmarkData.noisyDisk(size, size));
+        int half = size / 2;
+        for (Point p : BenchmarkData.ring(64, half, half, half - 1)) {
+            model.addPoint(p);
+        }
+        model.finishSelection();
+    }
+
+    @Benchmark
+    public void saveSelection() throws IOException {
+        model.saveSelection(OutputStream.nullOutputStream());
+    }
+}
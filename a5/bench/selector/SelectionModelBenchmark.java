@@ -0,0 +1,72 @@
+package selector;
+
+import java.awt.Point;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures queries and edits of a finished point-to-point selection: finding the control point
+ * near the pointer, and moving a control point near the start, middle or end of the path (which
+ * exposes costs that grow with the index of the edited segment).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SelectionModelBenchmark {
+
+    /**
+     * Number of segments in the selection.
+     */
+    @Param({"100", "10000", "100000"})
+    int segments;
+
+    /**
+     * Position of the moved control point along the path, as a fraction of its length.
+     */
+    @Param({"0.0", "0.5", "1.0"})
+    double position;
+
+    private PointToPointSelectionModel model;
+    private int index;
+    private Point original, moved;
+    private boolean toggle;
+
+    @Setup
+    public void setup() {
+        model = BenchmarkData.ringSelection(segments);
+        index = Math.min((int) (position * segments), segments - 1);
+        original = model.selection().get(index).start();
+        moved = new Point(original.x + 1, original.y);
+    }
+
+    /**
+     * Find the control point nearest a point just off the one at our index.
+     */
+    @Benchmark
+    public int closestPoint() {
+        return model.closestPoint(moved, 4);
+    }
+
+    /**
+     * Move the control point at our index back and forth by one pixel.
+     */
+    @Benchmark
+    public PolyLine movePoint() {
+        toggle = !toggle;
+        model.movePoint(index, toggle ? moved : original);
+        return model.selection().get(index);
+    }
+}
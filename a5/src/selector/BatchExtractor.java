@@ -0,0 +1,178 @@
+package selector;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+/**
+ * Applies one saved selection path to many images without a display, writing the selected pixels
+ * of each image to a PNG file exactly as `SelectionModel.saveSelection()` would.  This is meant
+ * for sequences of aligned images, such as the frames of a video, that all need the same crop.
+ * <p>
+ * Images are decoded, masked and encoded in parallel on the CPU lane of a `ProcessingExecutor`,
+ * all by one `SelectionExtractor`, so the coverage mask of the path is computed once.  Since every
+ * image in flight holds its decoded pixels and its crop, at most a fixed number of images are in
+ * flight at once; the next image is not read until an earlier one has been written.
+ * <p>
+ * Usage: `BatchExtractor [--threads N] [--in-flight K] <path file> <image dir> <output dir>`,
+ * where the path file was saved by "Save path..." and holds a finished selection.  By default,
+ * there is one thread per core and twice as many images in flight as threads.  Each image
+ * "name.ext" in the image directory that ImageIO can read is cropped to "name.png" in the output
+ * directory, which is created if needed.
+ */
+public final class BatchExtractor {
+
+    /**
+     * Extracts the selected pixels of each image.
+     */
+    private final SelectionExtractor extractor;
+
+    /**
+     * Create a batch extractor for the finished selection whose segments are `segments`.  Throws
+     * an IllegalArgumentException if they do not form a closed path enclosing some pixels.
+     */
+    public BatchExtractor(List<PolyLine> segments) {
+        extractor = new SelectionExtractor(segments);
+    }
+
+    /**
+     * Crop each of `images` to a PNG file of the same base name in `outDir`, using up to
+     * `threads` threads and keeping at most `maxInFlight` images decoded at once.  Return the
+     * number of images that could not be read or written; each failure is reported on standard
+     * error and does not stop the others.  Throws an IOException if `outDir` could not be
+     * created.  Requires `threads` and `maxInFlight` are positive.
+     */
+    public int extractAll(List<Path> images, Path outDir, int threads, int maxInFlight)
+            throws IOException, InterruptedException {
+        Files.createDirectories(outDir);
+        ProcessingExecutor executor = new ProcessingExecutor(threads, 1);
+        ProcessingExecutor.TaskGroup tasks = executor.newGroup();
+        try {
+            Semaphore inFlight = new Semaphore(maxInFlight);
+            List<Future<?>> results = new ArrayList<>(images.size());
+            for (Path image : images) {
+                inFlight.acquire();
+                try {
+                    results.add(tasks.submitCpu(() -> {
+                        try {
+                            extractFile(image, outDir.resolve(baseName(image) + ".png"));
+                        } finally {
+                            inFlight.release();
+                        }
+                        return null;
+                    }));
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+
+            int failures = 0;
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    failures += 1;
+                    System.err.println(images.get(i) + ": " + e.getCause());
+                }
+            }
+            return failures;
+        } finally {
+            // Stops the remaining tasks if we were interrupted or a submission failed
+            tasks.cancelAll();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Read the image at `image`, and write its selected pixels as a PNG image to `dest`.  Throws
+     * an IOException if the image could not be read or written.
+     */
+    private void extractFile(Path image, Path dest) throws IOException {
+        // Decode before creating `dest`, so that an unreadable image leaves no empty file
+        BufferedImage img = SelectionExtractor.ImageSource.of(image).read();
+        try (OutputStream out = Files.newOutputStream(dest)) {
+            extractor.write(img, out);
+        }
+    }
+
+    /**
+     * Return the files in `dir` that ImageIO can read, judging by their extensions, sorted by
+     * name.  Throws an IOException if `dir` could not be listed.
+     */
+    public static List<Path> listImages(Path dir) throws IOException {
+        Set<String> suffixes = Set.of(ImageIO.getReaderFileSuffixes());
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> Files.isRegularFile(f)
+                            && suffixes.contains(extension(f).toLowerCase(Locale.ROOT)))
+                    .sorted().toList();
+        }
+    }
+
+    /**
+     * Return the extension of `file`'s name (without the dot), or "" if it has none.
+     */
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return (dot < 0) ? "" : name.substring(dot + 1);
+    }
+
+    /**
+     * Return `file`'s name without its extension.
+     */
+    static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return (dot <= 0) ? name : name.substring(0, dot);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int inFlight = -1;
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--in-flight" -> inFlight = Integer.parseInt(args[++i]);
+                default -> positional.add(args[i]);
+            }
+        }
+        if (positional.size() != 3 || threads < 1 || inFlight == 0 || inFlight < -1) {
+            System.err.println("Usage: BatchExtractor [--threads N] [--in-flight K] "
+                    + "<path file> <image dir> <output dir>");
+            System.exit(2);
+        }
+        if (inFlight < 0) {
+            inFlight = 2 * threads;
+        }
+        SelectionFile.Contents path = SelectionFile.load(Path.of(positional.get(0)));
+        if (!path.finished()) {
+            System.err.println(positional.get(0) + ": selection is not finished");
+            System.exit(1);
+        }
+        List<Path> images = listImages(Path.of(positional.get(1)));
+
+        long t0 = System.nanoTime();
+        int failures = new BatchExtractor(path.segments())
+                .extractAll(images, Path.of(positional.get(2)), threads, inFlight);
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("%d of %d images extracted in %.1f s (%.1f images/s)%n",
+                images.size() - failures, images.size(), seconds,
+                (images.size() - failures) / seconds);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
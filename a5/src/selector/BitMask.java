@@ -0,0 +1,120 @@
+package selector;
+
+import java.util.Arrays;
+
+/**
+ * A rectangular grid of bits, one per pixel, marking a region of an image.  Bits are packed 64 to
+ * a `long`, and each row starts on a new word, so rows may be written concurrently by different
+ * threads.  All coordinates are relative to the mask's upper-left corner.
+ */
+public final class BitMask {
+
+    /**
+     * Dimensions of the mask in pixels.
+     */
+    private final int width, height;
+
+    /**
+     * Number of words used to store each row.
+     */
+    private final int stride;
+
+    /**
+     * The bits of each row, in row-major order.  Bit `x % 64` of word `y*stride + x/64` is set if
+     * pixel (x, y) is in the region.  Bits beyond `width` in each row are always clear.
+     */
+    private final long[] words;
+
+    /**
+     * Create an empty mask that is `width` pixels wide and `height` pixels tall.
+     */
+    public BitMask(int width, int height) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Invalid mask size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        stride = (width + 63) >>> 6;
+        words = new long[stride * height];
+    }
+
+    /**
+     * Return the width of this mask in pixels.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Return the height of this mask in pixels.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Return whether pixel (`x`, `y`) is in the region.  Returns false if the pixel lies outside of
+     * the mask.
+     */
+    public boolean get(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return (words[y * stride + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Add pixel (`x`, `y`) to the region.  Requires the pixel lies within the mask.
+     */
+    public void set(int x, int y) {
+        words[y * stride + (x >>> 6)] |= 1L << x;
+    }
+
+    /**
+     * Add pixels [x0..x1) of row `y` to the region.  Requires `0 <= x0 <= x1 <= width()` and
+     * `0 <= y < height()`.
+     */
+    public void setRange(int y, int x0, int x1) {
+        if (x0 >= x1) {
+            return;
+        }
+        int row = y * stride;
+        int w0 = x0 >>> 6;
+        int w1 = (x1 - 1) >>> 6;
+        long first = -1L << x0;
+        long last = -1L >>> (-x1);
+        if (w0 == w1) {
+            words[row + w0] |= first & last;
+        } else {
+            words[row + w0] |= first;
+            Arrays.fill(words, row + w0 + 1, row + w1, -1L);
+            words[row + w1] |= last;
+        }
+    }
+
+    /**
+     * Return the number of pixels in the region.
+     */
+    public long count() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Return the number of words used to store each row in `words()`.
+     */
+    int stride() {
+        return stride;
+    }
+
+    /**
+     * Return the packed bits of this mask (see `words`).  Rep exposure: callers must not set bits
+     * beyond `width()` in any row.
+     */
+    long[] words() {
+        return words;
+    }
+}
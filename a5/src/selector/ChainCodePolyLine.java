@@ -0,0 +1,230 @@
+package selector;
+
+import java.awt.Graphics;
+import java.awt.Point;
+
+/**
+ * A poly-line each of whose steps moves to one of the 8 pixels adjacent to the previous point,
+ * stored as its start point and a Freeman chain code: one 3-bit direction per step, packed 21 to a
+ * `long`.  This takes about 3/8 of a byte per point instead of the 8 bytes of two `int` arrays, so
+ * it suits long full-resolution traces that are rarely read.  Points are decoded on demand; `xs()`,
+ * `ys()` and `coordinates()` return newly decoded arrays on every call, while `copyTo()` and
+ * `draw()` decode directly into their destinations.
+ */
+final class ChainCodePolyLine extends PolyLine {
+
+    /**
+     * Offsets of the pixel in each direction, counterclockwise on screen starting from +x.
+     */
+    private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] DY = {0, -1, -1, -1, 0, 1, 1, 1};
+
+    /**
+     * Direction code for each step (dx, dy) indexed by `(dy + 1)*3 + (dx + 1)`, or -1 if the step
+     * does not move to an adjacent pixel.
+     */
+    private static final int[] CODE = {3, 2, 1, 4, -1, 0, 5, 6, 7};
+
+    /**
+     * Number of bits in each direction code, and the number of codes packed into each word.
+     */
+    private static final int BITS = 3;
+    private static final int CODES_PER_WORD = 64 / BITS;
+
+    /**
+     * Number of points decoded at a time when drawing.
+     */
+    private static final int DRAW_CHUNK = 512;
+
+    /**
+     * Coordinates of the first and last points.
+     */
+    private final int startX, startY, endX, endY;
+
+    /**
+     * Number of points, including both endpoints.  At least 2.
+     */
+    private final int size;
+
+    /**
+     * Direction codes of the `size - 1` steps.  Step `i` occupies bits `BITS*(i % CODES_PER_WORD)`
+     * and up of word `i / CODES_PER_WORD`.
+     */
+    private final long[] codes;
+
+    private ChainCodePolyLine(int startX, int startY, int endX, int endY, int size,
+            long[] codes) {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.size = size;
+        this.codes = codes;
+    }
+
+    /**
+     * Return a chain-coded poly-line through the points with x-coordinates `xs` and y-coordinates
+     * `ys`, or null if some step between consecutive points does not move to an adjacent pixel.
+     * The arrays are not retained.  Requires `xs` and `ys` have the same length no less than 2.
+     */
+    static ChainCodePolyLine encode(int[] xs, int[] ys) {
+        int steps = xs.length - 1;
+        long[] codes = new long[(steps + CODES_PER_WORD - 1) / CODES_PER_WORD];
+        for (int i = 0; i < steps; i++) {
+            int dx = xs[i + 1] - xs[i];
+            int dy = ys[i + 1] - ys[i];
+            if (dx < -1 || dx > 1 || dy < -1 || dy > 1) {
+                return null;
+            }
+            int code = CODE[(dy + 1) * 3 + (dx + 1)];
+            if (code < 0) {
+                return null;
+            }
+            codes[i / CODES_PER_WORD] |= (long) code << (BITS * (i % CODES_PER_WORD));
+        }
+        return new ChainCodePolyLine(xs[0], ys[0], xs[steps], ys[steps], xs.length, codes);
+    }
+
+    /**
+     * Return the direction code of step `i`.
+     */
+    private int code(int i) {
+        return (int) (codes[i / CODES_PER_WORD] >>> (BITS * (i % CODES_PER_WORD))) & 7;
+    }
+
+    /**
+     * Return a newly decoded array of the x coordinates of this poly-line's points.
+     */
+    @Override
+    public int[] xs() {
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        copyTo(0, xs, ys, 0, size);
+        return xs;
+    }
+
+    /**
+     * Return a newly decoded array of the y coordinates of this poly-line's points.
+     */
+    @Override
+    public int[] ys() {
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        copyTo(0, xs, ys, 0, size);
+        return ys;
+    }
+
+    /**
+     * Return newly decoded arrays of the x and y coordinates of this poly-line's points, decoding
+     * the chain once.
+     */
+    @Override
+    int[][] coordinates() {
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        copyTo(0, xs, ys, 0, size);
+        return new int[][]{xs, ys};
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decode the points starting at index `from` into the destination arrays.  Takes time
+     * proportional to `from + count`, since steps must be followed from the start.
+     */
+    @Override
+    public void copyTo(int from, int[] dstXs, int[] dstYs, int offset, int count) {
+        int x = startX;
+        int y = startY;
+        for (int i = 0; i < from; i++) {
+            int code = code(i);
+            x += DX[code];
+            y += DY[code];
+        }
+        for (int i = 0; i < count; i++) {
+            dstXs[offset + i] = x;
+            dstYs[offset + i] = y;
+            if (i + 1 < count) {
+                int code = code(from + i);
+                x += DX[code];
+                y += DY[code];
+            }
+        }
+    }
+
+    /**
+     * Draw this poly-line on `g` a chunk of points at a time, so that it is never decoded in full.
+     */
+    @Override
+    public void draw(Graphics g) {
+        int n = Math.min(size, DRAW_CHUNK);
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        xs[0] = startX;
+        ys[0] = startY;
+        int step = 0;
+        while (step < size - 1) {
+            // Each chunk starts where the previous one ended
+            int count = 1;
+            while (count < n && step < size - 1) {
+                int code = code(step++);
+                xs[count] = xs[count - 1] + DX[code];
+                ys[count] = ys[count - 1] + DY[code];
+                count++;
+            }
+            g.drawPolyline(xs, ys, count);
+            xs[0] = xs[count - 1];
+            ys[0] = ys[count - 1];
+        }
+    }
+
+    @Override
+    int startX() {
+        return startX;
+    }
+
+    @Override
+    int startY() {
+        return startY;
+    }
+
+    @Override
+    int endX() {
+        return endX;
+    }
+
+    @Override
+    int endY() {
+        return endY;
+    }
+
+    @Override
+    public Point start() {
+        return new Point(startX, startY);
+    }
+
+    @Override
+    public Point end() {
+        return new Point(endX, endY);
+    }
+
+    /**
+     * Return a copy of this poly-line with its endpoints moved to `start` and `end`.  The result
+     * is chain-coded if its steps are still between adjacent pixels.
+     */
+    @Override
+    public PolyLine withEndpoints(Point start, Point end) {
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        copyTo(0, xs, ys, 0, size);
+        xs[0] = start.x;
+        ys[0] = start.y;
+        xs[size - 1] = end.x;
+        ys[size - 1] = end.y;
+        PolyLine encoded = encode(xs, ys);
+        return (encoded != null) ? encoded : new PolyLine(xs, ys);
+    }
+}
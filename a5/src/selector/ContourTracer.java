@@ -0,0 +1,177 @@
+package selector;
+
+import java.util.Arrays;
+
+/**
+ * Traces the outer boundary of a region in a BitMask.  The boundary follows the edges between
+ * pixels ("cracks"), so its vertices lie on pixel corners: pixel (x, y) covers the square from
+ * corner (x, y) to corner (x + 1, y + 1).  Pixels are considered connected to their 4 horizontal
+ * and vertical neighbors.  A polygon through the traced corners contains exactly the centers of
+ * the region's pixels (and of any holes in it).
+ * <p>
+ * Collinear runs of boundary edges are collapsed, so only corners where the boundary turns become
+ * vertices.  Horizontal runs are skipped a word (64 pixels) at a time using the mask's packed
+ * bits, so tracing time is dominated by the number of vertical steps and turns rather than by the
+ * size of the mask.
+ */
+final class ContourTracer {
+
+    /**
+     * Directions of travel, in clockwise order (image y coordinates increase downwards).
+     */
+    private static final int EAST = 0, SOUTH = 1, WEST = 2, NORTH = 3;
+
+    /**
+     * Offsets from a corner to the pixel ahead and to the right of each direction of travel.
+     */
+    private static final int[] RIGHT_X = {0, -1, -1, 0};
+    private static final int[] RIGHT_Y = {0, 0, -1, -1};
+
+    /**
+     * Offsets from a corner to the pixel ahead and to the left of each direction of travel.
+     */
+    private static final int[] LEFT_X = {0, 0, -1, -1};
+    private static final int[] LEFT_Y = {-1, 0, 0, -1};
+
+    /**
+     * The mask being traced, with its dimensions and packed bits.
+     */
+    private final int width, height, stride;
+    private final long[] words;
+
+    /**
+     * Corners of the boundary traced so far (`n` of them).
+     */
+    private int[] xs, ys;
+    private int n;
+
+    private ContourTracer(BitMask mask) {
+        width = mask.width();
+        height = mask.height();
+        stride = mask.stride();
+        words = mask.words();
+        xs = new int[64];
+        ys = new int[64];
+    }
+
+    /**
+     * Return the closed outer boundary of the region containing the first set pixel (in row-major
+     * order) of `mask`, as an array {xs, ys} of corner coordinates.  The boundary runs clockwise
+     * (with the region on its right) starting from the upper-left corner of that pixel, and the
+     * last point equals the first.  Only corners where the boundary turns are included.  Returns
+     * null if `mask` is empty.
+     */
+    static int[][] traceOuter(BitMask mask) {
+        return new ContourTracer(mask).trace();
+    }
+
+    private int[][] trace() {
+        int first = 0;
+        while (first < words.length && words[first] == 0) {
+            first++;
+        }
+        if (first == words.length) {
+            return null;
+        }
+        int sy = first / stride;
+        int sx = (first % stride) * 64 + Long.numberOfTrailingZeros(words[first]);
+
+        // Nothing is above or to the left of the start pixel, so its top edge is on the boundary
+        //  and the boundary turns at its upper-left corner.
+        add(sx, sy);
+        int dir = EAST;
+        int cx = sx;
+        int cy = sy;
+        do {
+            // Advance to the next corner at which the boundary might turn.  (Horizontal runs never
+            //  pass through the start corner, since nothing is above or to the left of the start
+            //  pixel, so they can't skip it.)
+            switch (dir) {
+                case EAST -> cx = nextEastTurn(cx, cy);
+                case WEST -> cx = nextWestTurn(cx, cy);
+                case SOUTH -> cy++;
+                default -> cy--;
+            }
+            int newDir;
+            if (!get(cx + RIGHT_X[dir], cy + RIGHT_Y[dir])) {
+                newDir = (dir + 1) & 3;
+            } else if (get(cx + LEFT_X[dir], cy + LEFT_Y[dir])) {
+                newDir = (dir + 3) & 3;
+            } else {
+                newDir = dir;
+            }
+            if (newDir != dir || (cx == sx && cy == sy)) {
+                add(cx, cy);
+            }
+            dir = newDir;
+        } while (cx != sx || cy != sy);
+        return new int[][]{Arrays.copyOf(xs, n), Arrays.copyOf(ys, n)};
+    }
+
+    /**
+     * Append corner (`x`, `y`) to the boundary.
+     */
+    private void add(int x, int y) {
+        if (n == xs.length) {
+            xs = Arrays.copyOf(xs, n * 2);
+            ys = Arrays.copyOf(ys, n * 2);
+        }
+        xs[n] = x;
+        ys[n] = y;
+        n++;
+    }
+
+    /**
+     * Return whether pixel (`x`, `y`) is set (false if it is outside of the mask).
+     */
+    private boolean get(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return (words[y * stride + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Return word `k` of row `y`, or 0 if the row is outside of the mask.
+     */
+    private long word(int y, int k) {
+        return (y < 0 || y >= height) ? 0 : words[y * stride + k];
+    }
+
+    /**
+     * Travelling east along row boundary `cy` from corner `cx`, return the x coordinate of the
+     * next corner at which the boundary turns.  The boundary continues straight through corner x
+     * while pixel (x, cy) is set and pixel (x, cy - 1) is not.
+     */
+    private int nextEastTurn(int cx, int cy) {
+        int x = cx + 1;
+        int k = x >>> 6;
+        // Set bits mark pixels at which the run ends (bits beyond the width are always set)
+        long candidates = (k < stride) ? ~(word(cy, k) & ~word(cy - 1, k)) & (-1L << x) : -1L;
+        while (candidates == 0) {
+            k++;
+            candidates = (k < stride) ? ~(word(cy, k) & ~word(cy - 1, k)) : -1L;
+        }
+        return (k << 6) + Long.numberOfTrailingZeros(candidates);
+    }
+
+    /**
+     * Travelling west along row boundary `cy` from corner `cx`, return the x coordinate of the
+     * next corner at which the boundary turns.  The boundary continues straight through corner x
+     * while pixel (x - 1, cy - 1) is set and pixel (x - 1, cy) is not.
+     */
+    private int nextWestTurn(int cx, int cy) {
+        // Search pixels p = x - 1 for the first (from the right) that breaks the run
+        int p = cx - 2;
+        if (p < 0) {
+            return 0;
+        }
+        int k = p >>> 6;
+        long candidates = ~(word(cy - 1, k) & ~word(cy, k)) & (-1L >>> (63 - (p & 63)));
+        while (candidates == 0 && k > 0) {
+            k--;
+            candidates = ~(word(cy - 1, k) & ~word(cy, k));
+        }
+        return (candidates == 0) ? 0 : (k << 6) + 64 - Long.numberOfLeadingZeros(candidates);
+    }
+}
@@ -0,0 +1,153 @@
+package selector;
+
+import java.awt.Polygon;
+import java.util.Arrays;
+
+/**
+ * The edges of a polygon, bucketed by the first pixel row they cross, for rasterizing the polygon
+ * one scanline at a time.  A pixel (x, y) is inside the polygon if its center (x + 0.5, y + 0.5)
+ * is inside according to the even-odd rule (as with `Polygon.contains()`).  Edges include their
+ * top endpoint but not their bottom endpoint, so shared vertices are counted once.
+ */
+final class EdgeTable {
+
+    /**
+     * Receives the horizontal runs of pixels inside a polygon.
+     */
+    @FunctionalInterface
+    interface SpanConsumer {
+        /**
+         * Accept the pixels in [x0..x1) of row `y`.
+         */
+        void span(int y, int x0, int x1);
+    }
+
+    /**
+     * Number of (non-horizontal) edges.
+     */
+    private final int n;
+
+    /**
+     * For each edge: the first and one-past-the-last pixel rows whose centers it crosses.
+     */
+    private final int[] rowStart, rowEnd;
+
+    /**
+     * For each edge: the x coordinate where the edge would cross y = 0, and the change in x per
+     * unit change in y.
+     */
+    private final double[] x0, slope;
+
+    /**
+     * Edge indices sorted by `rowStart`.
+     */
+    private final int[] byRow;
+
+    /**
+     * Range of rows crossed by any edge: [minRow..maxRow).
+     */
+    private final int minRow, maxRow;
+
+    /**
+     * Build the edge table for the closed polygon `p`.
+     */
+    EdgeTable(Polygon p) {
+        int count = p.npoints;
+        int[] rowStart = new int[count];
+        int[] rowEnd = new int[count];
+        double[] x0 = new double[count];
+        double[] slope = new double[count];
+        int n = 0;
+        int minRow = Integer.MAX_VALUE;
+        int maxRow = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int j = (i + 1 == count) ? 0 : i + 1;
+            int xa = p.xpoints[i], ya = p.ypoints[i];
+            int xb = p.xpoints[j], yb = p.ypoints[j];
+            if (ya == yb) {
+                continue;  // Horizontal edges never cross a pixel center row
+            }
+            if (ya > yb) {
+                int t = xa; xa = xb; xb = t;
+                t = ya; ya = yb; yb = t;
+            }
+            // Rows whose centers y + 0.5 lie in [ya, yb); vertices are at integer coordinates
+            rowStart[n] = ya;
+            rowEnd[n] = yb;
+            slope[n] = (double) (xb - xa) / (yb - ya);
+            x0[n] = xa - ya * slope[n];
+            minRow = Math.min(minRow, ya);
+            maxRow = Math.max(maxRow, yb);
+            n++;
+        }
+        this.n = n;
+        this.rowStart = rowStart;
+        this.rowEnd = rowEnd;
+        this.x0 = x0;
+        this.slope = slope;
+        this.minRow = n == 0 ? 0 : minRow;
+        this.maxRow = n == 0 ? 0 : maxRow;
+        byRow = sortedIndices(rowStart, n);
+    }
+
+    /**
+     * Return the indices [0..n) sorted by their value in `keys`.
+     */
+    private static int[] sortedIndices(int[] keys, int n) {
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            packed[i] = ((long) keys[i] << 32) | i;
+        }
+        Arrays.sort(packed);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) packed[i];
+        }
+        return order;
+    }
+
+    /**
+     * Report every run of pixels inside the polygon that lies within the rectangle with upper-left
+     * corner (`left`, `top`), width `w`, and height `h` to `out`, in order of increasing y and then
+     * increasing x.
+     */
+    void forEachSpan(int left, int top, int w, int h, SpanConsumer out) {
+        int yEnd = Math.min(top + h, maxRow);
+        int[] active = new int[Math.max(n, 1)];
+        int nActive = 0;
+        double[] xs = new double[Math.max(n, 1)];
+        int next = 0;
+        for (int y = Math.max(top, minRow); y < yEnd; y++) {
+            // Retire finished edges and admit edges starting at or before this row
+            int k = 0;
+            for (int a = 0; a < nActive; a++) {
+                if (rowEnd[active[a]] > y) {
+                    active[k++] = active[a];
+                }
+            }
+            nActive = k;
+            while (next < n && rowStart[byRow[next]] <= y) {
+                int e = byRow[next++];
+                if (rowEnd[e] > y) {
+                    active[nActive++] = e;
+                }
+            }
+
+            // Sorted crossings of this row's pixel centers; pair them up into spans
+            double yc = y + 0.5;
+            for (int a = 0; a < nActive; a++) {
+                int e = active[a];
+                xs[a] = x0[e] + yc * slope[e];
+            }
+            Arrays.sort(xs, 0, nActive);
+            for (int a = 0; a + 1 < nActive; a += 2) {
+                // Pixels whose centers x + 0.5 lie in [xs[a], xs[a+1])
+                int xa = Math.max((int) Math.ceil(xs[a] - 0.5), left);
+                int xb = Math.min((int) Math.ceil(xs[a + 1] - 0.5), left + w);
+                if (xa < xb) {
+                    out.span(y, xa, xb);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,646 @@
+package selector;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only journal of the edits made to a `SelectionModel`'s selection, kept in a
+ * directory so that a session can be recovered after a crash (see `load()`).
+ * <p>
+ * The journal is divided into generations.  Each generation starts with a checkpoint of the whole
+ * selection ("checkpoint-N.sel"), followed by a log of the edits made since ("journal-N.log").
+ * The checkpoint starts with a header identifying the session (the bytes "SELK", a version byte,
+ * the class name of the model as a 2-byte length and UTF-8 bytes, and the width, height, and hash
+ * of the model's image as ints and a long; see `ImageFingerprint`), followed by the selection in
+ * the `SelectionFile` format.  The log starts with a 16-byte header (the bytes "SELJ", a version
+ * byte, 3 zero bytes, and the generation as a long) and then holds one 16-byte record per edit:
+ * the edit's kind, a zero byte, 16 bits of a CRC-32C of the record (computed with these bits
+ * zero), and the edit's segment index, x and y as ints (big-endian).  A record cut off by a crash,
+ * or damaged, ends the log.  Edits that replace the whole selection (selecting a region with the
+ * magic wand, or restoring a saved path) start a new generation rather than being logged.  A new
+ * generation is also started after 1024 edits or 5 seconds of editing (whichever comes first),
+ * which keeps the log short enough to replay in milliseconds.
+ * <p>
+ * Edits are appended to an in-memory buffer on the thread that edits the model (normally Swing's
+ * Event Dispatch thread), and written out and forced to disk on an I/O thread.  Edits made while
+ * one write is being forced are written and forced together by the next ("group commit"), so
+ * appending never waits for the disk.  Checkpoints are taken from a snapshot of the model's
+ * selection on its thread, and written (and its image fingerprinted) on the I/O thread as well.
+ * <p>
+ * A journal is meant to be recovered only after a crash: an application that exits normally
+ * should `discard()` it.
+ */
+public final class EditJournal implements Closeable {
+
+    /**
+     * The kinds of edit that are recorded, matching `SelectionModel`'s mutators.
+     */
+    public enum Op { ADD_POINT, UNDO, MOVE_POINT, INSERT_POINT, REMOVE_POINT, FINISH, RESET }
+
+    /**
+     * One recorded edit: its kind, the segment index it applies to (0 if none), and its point
+     * (0, 0 if none).  Points are recorded after any adjustment made by the model (such as
+     * snapping), so they should be replayed exactly.
+     */
+    public record Edit(Op op, int index, int x, int y) {
+
+        /**
+         * Apply this edit to `model`.  Throws the exceptions that the corresponding mutator of
+         * `model` throws if it is invalid in `model`'s state.
+         */
+        void applyTo(SelectionModel model) {
+            switch (op) {
+                case ADD_POINT -> model.addPoint(new Point(x, y));
+                case UNDO -> model.undo();
+                case MOVE_POINT -> model.movePoint(index, new Point(x, y));
+                case INSERT_POINT -> model.insertPoint(index, new Point(x, y));
+                case REMOVE_POINT -> model.removePoint(index);
+                case FINISH -> model.finishSelection();
+                case RESET -> model.reset();
+            }
+        }
+    }
+
+    /**
+     * Identifies an image by its size and a hash of its pixels' colors, so that a session can be
+     * matched with the image it was recorded over.  A missing image has size 0x0 and hash 0.
+     */
+    public record ImageFingerprint(int width, int height, long hash) {
+
+        /**
+         * Return the fingerprint of `img` (which may be null).  Reads every pixel, so should not
+         * be called on the Event Dispatch thread for large images.
+         */
+        public static ImageFingerprint of(BufferedImage img) {
+            if (img == null) {
+                return new ImageFingerprint(0, 0, 0);
+            }
+            PixelReader pixels = new PixelReader(img);
+            int[] row = new int[pixels.width()];
+            long hash = 0;
+            for (int y = 0; y < pixels.height(); y++) {
+                pixels.readRgb(0, y, row.length, row, 0);
+                for (int rgb : row) {
+                    hash = (hash + rgb) * 0x9E3779B97F4A7C15L;
+                }
+            }
+            return new ImageFingerprint(pixels.width(), pixels.height(), hash ^ (hash >>> 29));
+        }
+
+        /**
+         * Return whether `img` (which may be null) has our size.
+         */
+        boolean sizeMatches(BufferedImage img) {
+            return (img == null) ? width == 0 && height == 0
+                    : img.getWidth() == width && img.getHeight() == height;
+        }
+    }
+
+    /**
+     * A session read back from a journal: the class name of the model it was recorded from, the
+     * fingerprint of that model's image, the selection at its last checkpoint, and the edits made
+     * since then, in order.
+     */
+    public record Session(String tool, ImageFingerprint image, SelectionFile.Contents checkpoint,
+                          List<Edit> edits) {
+
+        /**
+         * Return whether this session was recorded over `img` (which may be null).  Reads every
+         * pixel of `img`, so should not be called on the Event Dispatch thread.
+         */
+        public boolean recordedOver(BufferedImage img) {
+            return image.sizeMatches(img) && image.equals(ImageFingerprint.of(img));
+        }
+
+        /**
+         * Restore this session into `model`: replace its selection with the checkpoint, then
+         * replay the edits.  Replay stops at the first edit that `model` rejects.  Returns the
+         * number of edits replayed.  Throws an IllegalArgumentException if `model` is not of the
+         * class this session was recorded from or its image is not the size of the session's
+         * (callers should also check `recordedOver()` first).  Must be called on the thread that
+         * edits `model`, which must not have a journal.
+         */
+        public int replayInto(SelectionModel model) {
+            if (!model.getClass().getName().equals(tool)) {
+                throw new IllegalArgumentException("Session was recorded with " + tool
+                        + ", not " + model.getClass().getName());
+            }
+            if (!image.sizeMatches(model.image())) {
+                throw new IllegalArgumentException("Session was recorded over a different image");
+            }
+            model.setReplaying(true);
+            try {
+                checkpoint.restoreTo(model);
+                int replayed = 0;
+                for (Edit edit : edits) {
+                    try {
+                        edit.applyTo(model);
+                    } catch (IllegalStateException | IllegalArgumentException
+                             | IndexOutOfBoundsException e) {
+                        break;
+                    }
+                    replayed++;
+                }
+                return replayed;
+            } finally {
+                model.setReplaying(false);
+            }
+        }
+    }
+
+    /**
+     * A checkpoint waiting to be written: the class name of the model, its image (whose
+     * fingerprint is computed when the checkpoint is written), and a snapshot of its selection.
+     */
+    private record Checkpoint(String tool, BufferedImage image, SelectionFile.Contents contents) {
+    }
+
+    /**
+     * First bytes of every log ("SELJ"), and of every checkpoint ("SELK").
+     */
+    private static final int MAGIC = 0x53454C4A;
+    private static final int CHECKPOINT_MAGIC = 0x53454C4B;
+
+    /**
+     * Version of the log and checkpoint formats written by this class.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the log header and of each record.
+     */
+    static final int RECORD_SIZE = 16;
+
+    /**
+     * Default number of edits, and time in nanoseconds, after which a new checkpoint is taken.
+     */
+    static final int CHECKPOINT_RECORDS = 1024;
+    static final long CHECKPOINT_NANOS = 5_000_000_000L;
+
+    /**
+     * Names of the checkpoints, and of all of the files, of each generation.
+     */
+    private static final Pattern CHECKPOINT_NAME = Pattern.compile("checkpoint-(\\d+)\\.sel");
+    private static final Pattern FILE_NAME =
+            Pattern.compile("(?:checkpoint|journal)-(\\d+)\\.(?:sel|tmp|log)");
+
+    private final Path dir;
+    private final int checkpointRecords;
+    private final long checkpointNanos;
+    private final ProcessingExecutor.TaskGroup io = ProcessingExecutor.shared().newGroup();
+
+    /**
+     * The model being journaled, or null once closed.  Only accessed on the model's thread.
+     */
+    private SelectionModel model;
+
+    /**
+     * Number of edits appended, and time (as from `System.nanoTime()`) of the latest checkpoint.
+     * Only accessed on the model's thread.
+     */
+    private int recordsSinceCheckpoint;
+    private long lastCheckpoint;
+
+    /**
+     * Guards the fields below, which are shared with the I/O thread.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Records appended since the last write, and a buffer to swap in for it while they are
+     * written.
+     */
+    private ByteBuffer pending = ByteBuffer.allocate(64 * RECORD_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * RECORD_SIZE);
+
+    /**
+     * The checkpoint of generation `generation`, or null if it has been written.
+     */
+    private Checkpoint checkpoint;
+    private long generation;
+
+    /**
+     * Whether a write is scheduled or in progress on the I/O thread.
+     */
+    private boolean flushing;
+
+    /**
+     * The first exception thrown while writing, after which nothing more is written.
+     */
+    private IOException failure;
+
+    /**
+     * The log of the current generation, or null before the first checkpoint is written.  Only
+     * accessed on the I/O thread (or once it is idle).
+     */
+    private FileChannel log;
+
+    /**
+     * The image whose fingerprint was last computed, and its fingerprint.  Only accessed on the
+     * I/O thread.
+     */
+    private BufferedImage fingerprinted;
+    private ImageFingerprint fingerprint;
+
+    private final CRC32C crc = new CRC32C();
+
+    private EditJournal(Path dir, int checkpointRecords, long checkpointNanos) {
+        this.dir = dir;
+        this.checkpointRecords = checkpointRecords;
+        this.checkpointNanos = checkpointNanos;
+    }
+
+    /**
+     * Start journaling the edits made to `model` in directory `dir` (created if necessary), in a
+     * new generation checkpointed at `model`'s current selection.  Any older session in `dir` is
+     * deleted once the new checkpoint is written, so it should be loaded first if wanted.  Must
+     * be called on the thread that edits `model`.
+     */
+    public static EditJournal open(Path dir, SelectionModel model) throws IOException {
+        return open(dir, model, CHECKPOINT_RECORDS, CHECKPOINT_NANOS);
+    }
+
+    /**
+     * As `open(dir, model)`, but checkpointing after `checkpointRecords` edits or
+     * `checkpointNanos` nanoseconds.
+     */
+    static EditJournal open(Path dir, SelectionModel model, int checkpointRecords,
+            long checkpointNanos) throws IOException {
+        Files.createDirectories(dir);
+        EditJournal journal = new EditJournal(dir, checkpointRecords, checkpointNanos);
+        journal.generation = latestGeneration(dir);
+        journal.model = model;
+        model.setJournal(journal);
+        journal.checkpoint();
+        return journal;
+    }
+
+    /**
+     * Journal the edits made to `newModel` instead of our current model, starting a new
+     * generation checkpointed at its selection (as when the user switches selection tools, which
+     * copies the selection into a new model).  Must be called on the thread that edits both
+     * models.
+     */
+    public void setModel(SelectionModel newModel) {
+        if (model == null) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        model.setJournal(null);
+        model = newModel;
+        model.setJournal(this);
+        checkpoint();
+    }
+
+    /**
+     * Read back the latest session journaled in `dir`, or return null if there is none.  The log
+     * is read up to its end or its first incomplete or damaged record.  Throws an IOException if
+     * the checkpoint cannot be read.
+     */
+    public static Session load(Path dir) throws IOException {
+        long gen = latestGeneration(dir);
+        if (gen < 0) {
+            return null;
+        }
+        String tool;
+        ImageFingerprint image;
+        SelectionFile.Contents contents;
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(dir.resolve(checkpointName(gen))));
+            if (buf.getInt() != CHECKPOINT_MAGIC || buf.get() != VERSION) {
+                throw new IOException("Not a journal checkpoint");
+            }
+            byte[] name = new byte[Short.toUnsignedInt(buf.getShort())];
+            buf.get(name);
+            tool = new String(name, StandardCharsets.UTF_8);
+            image = new ImageFingerprint(buf.getInt(), buf.getInt(), buf.getLong());
+            contents = SelectionFile.read(buf);
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Truncated journal checkpoint");
+        }
+        List<Edit> edits = new ArrayList<>();
+        Path logFile = dir.resolve(logName(gen));
+        if (Files.exists(logFile)) {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(logFile));
+            if (buf.remaining() >= RECORD_SIZE && buf.getInt() == MAGIC
+                    && buf.get() == VERSION) {
+                buf.position(8);
+                if (buf.getLong() == gen) {
+                    readRecords(buf, edits);
+                }
+            }
+        }
+        return new Session(tool, image, contents, edits);
+    }
+
+    /**
+     * Append the records in `buf` up to the first incomplete or damaged one to `edits`.
+     */
+    private static void readRecords(ByteBuffer buf, List<Edit> edits) {
+        Op[] ops = Op.values();
+        CRC32C crc = new CRC32C();
+        while (buf.remaining() >= RECORD_SIZE) {
+            int at = buf.position();
+            int op = buf.get(at);
+            short check = buf.getShort(at + 2);
+            buf.putShort(at + 2, (short) 0);
+            crc.reset();
+            crc.update(buf.array(), at, RECORD_SIZE);
+            if (op < 0 || op >= ops.length || (short) crc.getValue() != check) {
+                return;
+            }
+            edits.add(new Edit(ops[op], buf.getInt(at + 4), buf.getInt(at + 8),
+                    buf.getInt(at + 12)));
+            buf.position(at + RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Record that `op` was applied to our model with segment index `index` and point `p` (either
+     * of which may be ignored by the kind of edit; `p` may be null).  Takes a checkpoint instead
+     * if one is due.  Must be called on the thread that edits our model.
+     */
+    void append(Op op, int index, Point p) {
+        if (model == null) {
+            return;
+        }
+        if (++recordsSinceCheckpoint > checkpointRecords
+                || System.nanoTime() - lastCheckpoint > checkpointNanos) {
+            checkpoint();
+            return;
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                return;
+            }
+            if (pending.remaining() < RECORD_SIZE) {
+                ByteBuffer grown = ByteBuffer.allocate(pending.capacity() * 2);
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            int at = pending.position();
+            pending.put((byte) op.ordinal()).put((byte) 0).putShort((short) 0)
+                    .putInt(index).putInt(p == null ? 0 : p.x).putInt(p == null ? 0 : p.y);
+            crc.reset();
+            crc.update(pending.array(), at, RECORD_SIZE);
+            pending.putShort(at + 2, (short) crc.getValue());
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Start a new generation checkpointed at our model's current selection, as when the
+     * selection has been replaced wholesale.  Edits not yet written are dropped, since the
+     * checkpoint includes them.  Must be called on the thread that edits our model.
+     */
+    void checkpoint() {
+        if (model == null) {
+            return;
+        }
+        Checkpoint snapshot = new Checkpoint(model.getClass().getName(), model.image(),
+                new SelectionFile.Contents(model.start == null ? null : new Point(model.start),
+                        new SegmentList(model.selection),
+                        model.state() == SelectionModel.SelectionState.SELECTED));
+        recordsSinceCheckpoint = 0;
+        lastCheckpoint = System.nanoTime();
+        synchronized (lock) {
+            pending.clear();
+            checkpoint = snapshot;
+            generation++;
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Wait until every edit appended so far has been forced to disk.  Throws the IOException
+     * that stopped writing, if any.
+     */
+    public void sync() throws IOException, InterruptedException {
+        synchronized (lock) {
+            while (flushing) {
+                lock.wait();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Stop journaling, after checkpointing our model's final selection (so the session can be
+     * restored without replaying anything) and waiting for it to be written.  Must be called on
+     * the thread that edits our model.
+     */
+    @Override
+    public void close() throws IOException {
+        if (model == null) {
+            return;
+        }
+        checkpoint();
+        model.setJournal(null);
+        model = null;
+        try {
+            sync();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (log != null) {
+                log.close();
+            }
+        }
+    }
+
+    /**
+     * Stop journaling and delete the session from our directory, as when the application exits
+     * normally, so that it is not offered for recovery later.  Edits not yet written are dropped.
+     * Must be called on the thread that edits our model.
+     */
+    public void discard() throws IOException {
+        if (model == null) {
+            return;
+        }
+        model.setJournal(null);
+        model = null;
+        synchronized (lock) {
+            pending.clear();
+            checkpoint = null;
+        }
+        try {
+            sync();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Nothing more will be written; the files are deleted all the same
+        } finally {
+            if (log != null) {
+                log.close();
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                if (FILE_NAME.matcher(file.getFileName().toString()).matches()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Make sure a write is scheduled on the I/O thread.  Requires holding `lock`.
+     */
+    private void scheduleFlush() {
+        if (!flushing && failure == null) {
+            flushing = true;
+            io.submitIo(this::flush);
+        }
+    }
+
+    /**
+     * Write out any pending checkpoint and records, forcing them to disk, until none remain.
+     * Runs on the I/O thread.
+     */
+    private Void flush() {
+        while (true) {
+            Checkpoint snapshot;
+            long gen;
+            ByteBuffer batch;
+            synchronized (lock) {
+                if (checkpoint == null && pending.position() == 0) {
+                    flushing = false;
+                    lock.notifyAll();
+                    return null;
+                }
+                snapshot = checkpoint;
+                checkpoint = null;
+                gen = generation;
+                batch = pending;
+                pending = spare;
+                spare = batch;
+            }
+            try {
+                if (snapshot != null) {
+                    writeCheckpoint(snapshot, gen);
+                }
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    log.write(batch);
+                }
+                log.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    flushing = false;
+                    lock.notifyAll();
+                }
+                return null;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Write `snapshot` as the checkpoint of generation `gen`, start that generation's log, and
+     * delete older generations.  The checkpoint is forced to disk and then renamed into place,
+     * so a crash leaves either the old generation or the new one.
+     */
+    private void writeCheckpoint(Checkpoint snapshot, long gen) throws IOException {
+        if (fingerprint == null || snapshot.image() != fingerprinted) {
+            fingerprint = ImageFingerprint.of(snapshot.image());
+            fingerprinted = snapshot.image();
+        }
+        byte[] tool = snapshot.tool().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(27 + tool.length);
+        header.putInt(CHECKPOINT_MAGIC).put((byte) VERSION).putShort((short) tool.length)
+                .put(tool).putInt(fingerprint.width()).putInt(fingerprint.height())
+                .putLong(fingerprint.hash()).flip();
+        Path tmp = dir.resolve("checkpoint-" + gen + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            OutputStream out = Channels.newOutputStream(channel);
+            SelectionFile.write(snapshot.contents(), out);
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(checkpointName(gen)), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        if (log != null) {
+            log.close();
+        }
+        log = FileChannel.open(dir.resolve(logName(gen)), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        header = ByteBuffer.allocate(RECORD_SIZE);
+        header.putInt(MAGIC).put((byte) VERSION).put(new byte[3]).putLong(gen).flip();
+        while (header.hasRemaining()) {
+            log.write(header);
+        }
+        forceDirectory();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+                if (m.matches() && Long.parseLong(m.group(1)) < gen) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Force the rename of a checkpoint in our directory to disk, where the platform allows it.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on this platform; the rename is still atomic
+        }
+    }
+
+    /**
+     * Return the latest generation with a checkpoint in `dir`, or -1 if there is none.
+     */
+    private static long latestGeneration(Path dir) throws IOException {
+        long latest = -1;
+        if (!Files.isDirectory(dir)) {
+            return latest;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "checkpoint-*.sel")) {
+            for (Path file : files) {
+                Matcher m = CHECKPOINT_NAME.matcher(file.getFileName().toString());
+                if (m.matches()) {
+                    latest = Math.max(latest, Long.parseLong(m.group(1)));
+                }
+            }
+        }
+        return latest;
+    }
+
+    private static String checkpointName(long gen) {
+        return "checkpoint-" + gen + ".sel";
+    }
+
+    private static String logName(long gen) {
+        return "journal-" + gen + ".log";
+    }
+}
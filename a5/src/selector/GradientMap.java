@@ -0,0 +1,186 @@
+package selector;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+/**
+ * The luminance gradient of an image, computed with a 3x3 Sobel operator at every pixel.  Pixels
+ * beyond the image border are treated as copies of the nearest border pixel.  Gradients are
+ * stored in row-major primitive arrays (the entry for pixel (x, y) is at index `y*width() + x`).
+ * While it is intended to be immutable, this class does not make defensive copies of the arrays
+ * it returns, so clients must not modify their contents.
+ */
+public final class GradientMap {
+
+    /**
+     * Width and height of the image whose gradient this represents.
+     */
+    private final int width, height;
+
+    /**
+     * Horizontal component of the gradient at each pixel (positive when luminance increases to
+     * the right).
+     */
+    private final short[] gx;
+
+    /**
+     * Vertical component of the gradient at each pixel (positive when luminance increases
+     * downwards).
+     */
+    private final short[] gy;
+
+    /**
+     * Magnitude of the gradient at each pixel.
+     */
+    private final float[] magnitude;
+
+    /**
+     * The largest value in `magnitude` (0 if the image is uniform).
+     */
+    private final float maxMagnitude;
+
+    /**
+     * Compute the gradient of `img`, splitting the work over the common ForkJoinPool.
+     */
+    public GradientMap(BufferedImage img) {
+        this(img, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compute the gradient of `img`, splitting the work into tiles that are processed in parallel
+     * on `pool`.
+     */
+    public GradientMap(BufferedImage img, ForkJoinPool pool) {
+        this(img, pool, PixelKernels.get());
+    }
+
+    /**
+     * Compute the gradient of `img` on `pool` using the per-row loops of `kernels`.
+     */
+    GradientMap(BufferedImage img, ForkJoinPool pool, PixelKernels kernels) {
+        PixelReader pixels = new PixelReader(img);
+        width = img.getWidth();
+        height = img.getHeight();
+        int n = width * height;
+
+        // Pass 1: luminance of every pixel
+        int[] luma = new int[n];
+        Tiles.forEachBand(pool, width, height, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                pixels.readLuma(0, y, width, luma, y * width);
+            }
+        });
+
+        // Pass 2: Sobel gradient (needs the rows above and below each band, hence a second pass)
+        gx = new short[n];
+        gy = new short[n];
+        magnitude = new float[n];
+        DoubleAccumulator max = new DoubleAccumulator(Math::max, 0);
+        Tiles.forEachBand(pool, width, height, (y0, y1) -> {
+            float bandMax = 0;
+            for (int y = y0; y < y1; y++) {
+                int up = Math.max(y - 1, 0) * width;
+                int down = Math.min(y + 1, height - 1) * width;
+                bandMax = Math.max(bandMax,
+                        kernels.sobelRow(luma, up, y * width, down, width, gx, gy, magnitude));
+            }
+            max.accumulate(bandMax);
+        });
+        maxMagnitude = (float) max.get();
+    }
+
+    /**
+     * Return the width of the image whose gradient this represents.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Return the height of the image whose gradient this represents.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Return the horizontal gradient components of all pixels in row-major order.  Rep exposure:
+     * clients must not mutate the contents of the returned array.
+     */
+    public short[] gx() {
+        return gx;
+    }
+
+    /**
+     * Return the vertical gradient components of all pixels in row-major order.  Rep exposure:
+     * clients must not mutate the contents of the returned array.
+     */
+    public short[] gy() {
+        return gy;
+    }
+
+    /**
+     * Return the gradient magnitudes of all pixels in row-major order.  Rep exposure: clients must
+     * not mutate the contents of the returned array.
+     */
+    public float[] magnitude() {
+        return magnitude;
+    }
+
+    /**
+     * Return the largest gradient magnitude of any pixel (0 if the image is uniform).
+     */
+    public float maxMagnitude() {
+        return maxMagnitude;
+    }
+
+    /**
+     * Return the gradient magnitude at pixel (`x`, `y`).  Requires the pixel lies within the image.
+     */
+    public float magnitudeAt(int x, int y) {
+        return magnitude[y * width + x];
+    }
+
+    /**
+     * Return the direction of the gradient at pixel (`x`, `y`), in radians clockwise from the +x
+     * axis (image y coordinates increase downwards).  Returns 0 where the gradient vanishes.
+     * Requires the pixel lies within the image.
+     */
+    public double directionAt(int x, int y) {
+        int i = y * width + x;
+        return Math.atan2(gy[i], gx[i]);
+    }
+
+    /**
+     * Return the pixel with the largest gradient magnitude within the square window of pixels no
+     * more than `radius` pixels away from (`x`, `y`) horizontally and vertically (clipped to the
+     * image).  Ties are broken in favor of pixels closer to (`x`, `y`).  If no pixel in the window
+     * has a larger magnitude than (`x`, `y`) itself, returns a point at (`x`, `y`).  Coordinates
+     * outside the image are first clamped to its nearest edge.  Runs in O(radius^2) time,
+     * independent of the image size.
+     */
+    public Point strongestEdgeNear(int x, int y, int radius) {
+        x = Math.clamp(x, 0, width - 1);
+        y = Math.clamp(y, 0, height - 1);
+        int bestX = x;
+        int bestY = y;
+        float best = magnitude[y * width + x];
+        int bestDistSq = 0;
+        for (int j = Math.max(y - radius, 0); j <= Math.min(y + radius, height - 1); j++) {
+            int row = j * width;
+            for (int i = Math.max(x - radius, 0); i <= Math.min(x + radius, width - 1); i++) {
+                float m = magnitude[row + i];
+                int distSq = (i - x) * (i - x) + (j - y) * (j - y);
+                if (m > best || (m == best && distSq < bestDistSq)) {
+                    best = m;
+                    bestX = i;
+                    bestY = j;
+                    bestDistSq = distSq;
+                }
+            }
+        }
+        return new Point(bestX, bestY);
+    }
+}
@@ -64,6 +64,14 @@ public class ImagePanel extends JPanel {
         return selector.getModel();
     }
 
+    /**
+     * Return the component through which the user interacts with our selection model, e.g. to
+     * observe the mouse events it receives.
+     */
+    public SelectionComponent selectionComponent() {
+        return selector;
+    }
+
     /**
      * Return the image we are currently displaying and selecting from.  Returns null if no image is
      * currently set.
@@ -0,0 +1,144 @@
+package selector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A recording of the mouse events received by a `SelectionComponent` while selecting from an
+ * image of a given size, for replaying sessions offline (see `TraceRecorder` and `TraceReplay`).
+ * <p>
+ * Traces are stored in a compact binary format: the bytes "SELT", a version byte, and the image
+ * width and height as varints (see `VarInts`), followed by one record per event until the end of
+ * the stream.  Each record is a byte holding the event kind (high bits) and mouse button (low 2
+ * bits), then the time since the previous event in microseconds as a varint, then the change in
+ * x and y from the previous event as zigzag varints.  A typical pointer move (a few pixels, a few
+ * milliseconds after the previous event) therefore takes 5 bytes.
+ */
+public final class InteractionTrace {
+
+    /**
+     * The kinds of mouse event that are recorded, matching the `SelectionComponent` handlers.
+     */
+    public enum Kind { PRESSED, RELEASED, CLICKED, MOVED, DRAGGED }
+
+    /**
+     * One recorded event: its kind, mouse button (as in `MouseEvent.getButton()`, 0 for none), the
+     * time since recording started in microseconds, and the pointer position in component (image)
+     * coordinates.
+     */
+    public record Event(Kind kind, int button, long micros, int x, int y) {
+        public Event {
+            if (button < 0 || button > 3) {
+                throw new IllegalArgumentException("Invalid mouse button " + button);
+            }
+        }
+    }
+
+    /**
+     * First bytes of every trace ("SELT").
+     */
+    private static final int MAGIC = 0x53454C54;
+
+    /**
+     * Version of the format written by this class.
+     */
+    private static final int VERSION = 1;
+
+    private final int width, height;
+    private final List<Event> events;
+
+    /**
+     * Create a trace of `events` (in order of occurrence, so with non-decreasing times) recorded
+     * over an image of size `width`x`height`.
+     */
+    public InteractionTrace(int width, int height, List<Event> events) {
+        this.width = width;
+        this.height = height;
+        this.events = List.copyOf(events);
+    }
+
+    /**
+     * Return the width of the image the trace was recorded over.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Return the height of the image the trace was recorded over.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Return the recorded events in order of occurrence.  The list is not modifiable.
+     */
+    public List<Event> events() {
+        return events;
+    }
+
+    /**
+     * Write this trace to `out` in the binary trace format.  Does not close `out`.
+     */
+    public void write(OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out);
+        new DataOutputStream(buffered).writeInt(MAGIC);
+        buffered.write(VERSION);
+        VarInts.write(buffered, width);
+        VarInts.write(buffered, height);
+        long micros = 0;
+        int x = 0;
+        int y = 0;
+        for (Event e : events) {
+            buffered.write((e.kind().ordinal() << 2) | e.button());
+            VarInts.write(buffered, e.micros() - micros);
+            VarInts.writeSigned(buffered, e.x() - x);
+            VarInts.writeSigned(buffered, e.y() - y);
+            micros = e.micros();
+            x = e.x();
+            y = e.y();
+        }
+        buffered.flush();
+    }
+
+    /**
+     * Read a trace in the binary trace format from `in`, up to the end of the stream.  Throws an
+     * IOException if the stream is not a trace of a supported version or ends partway through an
+     * event.  Does not close `in`.
+     */
+    public static InteractionTrace read(InputStream in) throws IOException {
+        in = new BufferedInputStream(in);
+        if (new DataInputStream(in).readInt() != MAGIC) {
+            throw new IOException("Not an interaction trace");
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+        int width = (int) VarInts.read(in);
+        int height = (int) VarInts.read(in);
+        List<Event> events = new ArrayList<>();
+        Kind[] kinds = Kind.values();
+        long micros = 0;
+        int x = 0;
+        int y = 0;
+        for (int header = in.read(); header >= 0; header = in.read()) {
+            if ((header >>> 2) >= kinds.length) {
+                throw new IOException("Invalid event kind " + (header >>> 2));
+            }
+            micros += VarInts.read(in);
+            x += (int) VarInts.readSigned(in);
+            y += (int) VarInts.readSigned(in);
+            events.add(new Event(kinds[header >>> 2], header & 3, micros, x, y));
+        }
+        return new InteractionTrace(width, height, events);
+    }
+}
@@ -0,0 +1,112 @@
+package selector;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations (in nanoseconds) that can be recorded from any thread without locking
+ * and queried for percentiles.  Buckets are log-linear, as in HdrHistogram: each power of two is
+ * split into 32 equal buckets, so any recorded value is known to within about 3%, using a fixed
+ * 15 KB regardless of how many values are recorded.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Number of bits of each value kept exactly; each power of two has 2^(SUB_BITS) buckets.
+     */
+    private static final int SUB_BITS = 5;
+
+    /**
+     * Number of buckets, enough for any non-negative long.
+     */
+    private static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+    /**
+     * Number of values recorded in each bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one duration of `nanos` nanoseconds (negative durations are recorded as 0).
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        counts.incrementAndGet(bucket(nanos));
+        total.increment();
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Return the number of durations recorded.
+     */
+    public long count() {
+        return total.sum();
+    }
+
+    /**
+     * Return the longest duration recorded, or 0 if none were recorded.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Return the duration (in nanoseconds) that `percentile` percent of recorded durations do not
+     * exceed, rounded up to the top of its bucket (but no more than `max()`), or 0 if nothing has
+     * been recorded.  Requires `percentile` is in [0..100].  Values recorded concurrently may or
+     * may not be included.
+     */
+    public long percentile(double percentile) {
+        assert percentile >= 0 && percentile <= 100;
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestInBucket(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Forget all recorded durations.  Values recorded concurrently may or may not be kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        max.set(0);
+    }
+
+    /**
+     * Return the index of the bucket holding `value`.  Requires `value` >= 0.
+     */
+    private static int bucket(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Return the largest value held by the bucket with index `bucket`.
+     */
+    private static long highestInBucket(int bucket) {
+        int shift = Math.max(0, (bucket >>> SUB_BITS) - 1);
+        long mantissa = bucket - ((long) shift << SUB_BITS);
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,175 @@
+package selector;
+
+import java.awt.Point;
+import javax.swing.SwingUtilities;
+
+/**
+ * Models a selection tool that selects a region of similarly-colored pixels around a clicked seed
+ * point (a "magic wand").  The boundary of the region becomes a finished selection path, split
+ * into segments whose joints can be moved like any other control points.  If segments are later
+ * undone, the selection may be continued point-to-point with straight line segments.
+ * <p>
+ * On Swing's Event Dispatch thread, the region is grown on the CPU lane of the shared
+ * `ProcessingExecutor` while the model is PROCESSING, and the selection is made back on the EDT,
+ * so large regions do not freeze the UI.
+ */
+public class MagicWandSelectionModel extends SelectionModel {
+
+    /**
+     * Largest allowed difference in any color channel between a pixel and the seed pixel for the
+     * pixel to be included in the region.  Must be in [0..255].
+     */
+    private int tolerance = 32;
+
+    /**
+     * Identifies the region being grown in the background, or null if none is.  Results of other
+     * (cancelled or superseded) requests are discarded.  Confined to the EDT.
+     */
+    private Object growing;
+
+    public MagicWandSelectionModel(boolean notifyOnEdt) {
+        super(notifyOnEdt);
+    }
+
+    public MagicWandSelectionModel(SelectionModel copy) {
+        super(copy);
+        if (copy instanceof MagicWandSelectionModel wand) {
+            tolerance = wand.tolerance;
+        }
+    }
+
+    /**
+     * Return the largest difference in any color channel between a pixel and the seed pixel for
+     * which the pixel will be included in a region.
+     */
+    public int tolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Include pixels in future regions if none of their color channels differ from those of the
+     * seed pixel by more than `tolerance`.  Throws an IllegalArgumentException if `tolerance` is
+     * not in [0..255].
+     */
+    public void setTolerance(int tolerance) {
+        if (tolerance < 0 || tolerance > 255) {
+            throw new IllegalArgumentException("Invalid tolerance " + tolerance);
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * If no selection has been started, select the region of similarly-colored pixels connected to
+     * `p` and transition to the SELECTED state.  Otherwise, behave as in `SelectionModel`.
+     * Listeners will be notified that the "state" and "selection" properties have changed.  Throws
+     * an IllegalStateException if a region is to be selected but no image has been set.
+     * <p>
+     * On the EDT, the region is grown in the background: the selection starts at `p` and
+     * transitions to PROCESSING until the region is selected, and undoing or cancelling in the
+     * meantime resets it.  Elsewhere (and while replaying a journal), the region is grown on the
+     * calling thread before returning.
+     */
+    @Override
+    public void addPoint(Point p) {
+        if (state() != SelectionState.NO_SELECTION) {
+            super.addPoint(p);
+            return;
+        }
+        if (img == null) {
+            throw new IllegalStateException("Cannot select a region without an image");
+        }
+        int x = Math.clamp(p.x, 0, img.getWidth() - 1);
+        int y = Math.clamp(p.y, 0, img.getHeight() - 1);
+        PixelReader pixels = new PixelReader(img);
+        int seedTolerance = tolerance;
+        if (!SwingUtilities.isEventDispatchThread() || replaying()) {
+            selectMask(RegionGrower.grow(pixels, x, y, seedTolerance));
+            return;
+        }
+        startSelection(new Point(x, y));
+        setState(SelectionState.PROCESSING);
+        Object request = new Object();
+        growing = request;
+        tasks.submitCpu(() -> {
+            BitMask region = RegionGrower.grow(pixels, x, y, seedTolerance);
+            SwingUtilities.invokeLater(() -> {
+                if (growing == request && state() == SelectionState.PROCESSING) {
+                    growing = null;
+                    selectMask(region);
+                }
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Stop growing the region being selected, and reset the selection.
+     */
+    @Override
+    public void cancelProcessing() {
+        super.cancelProcessing();
+        growing = null;
+        reset();
+    }
+
+    /**
+     * Discard any region being grown, as well as the work cancelled by `SelectionModel`.
+     */
+    @Override
+    public void cancelBackgroundWork() {
+        growing = null;
+        super.cancelBackgroundWork();
+    }
+
+    /**
+     * Return a straight line segment from our last point to `p`.
+     */
+    @Override
+    public PolyLine liveWire(Point p) {
+        return new PolyLine(lastPoint(), p);
+    }
+
+    /**
+     * Append a straight line segment to the current selection path connecting its end with `p`.
+     */
+    @Override
+    protected void appendToSelection(Point p) {
+        selection.add(new PolyLine(lastPoint(), p));
+    }
+
+    /**
+     * Return `before` followed by `after`, so that removing the control point between two traced
+     * segments keeps the traced boundary (and its full-resolution path) rather than cutting across
+     * it.
+     */
+    @Override
+    protected PolyLine mergeSegments(PolyLine before, PolyLine after) {
+        return before.concat(after);
+    }
+
+    /**
+     * Move the starting point of the segment of our selection with index `index` to `newPos`,
+     * along with the end point of the previous segment (wrapping around).  The interior points of
+     * both segments are left in place, so traced detail is preserved.  Notify listeners that the
+     * "selection" property has changed.
+     */
+    @Override
+    public void movePoint(int index, Point newPos) {
+        if (state() != SelectionState.SELECTED) {
+            throw new IllegalStateException("May not move point in state " + state());
+        }
+        if (index < 0 || index >= selection.size()) {
+            throw new IllegalArgumentException("Invalid segment index " + index);
+        }
+        int prev = (index == 0) ? selection.size() - 1 : index - 1;
+        PolyLine moved = selection.get(index);
+        selection.set(index, moved.withEndpoints(newPos, moved.end()));
+        PolyLine before = selection.get(prev);
+        selection.set(prev, before.withEndpoints(before.start(), newPos));
+        if (index == 0) {
+            start = new Point(newPos);
+        }
+        propSupport.firePropertyChange("selection", null, selection());
+        recordEdit(EditJournal.Op.MOVE_POINT, index, newPos);
+    }
+}
@@ -0,0 +1,110 @@
+package selector;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An application-wide registry of latency histograms for the stages of interaction, such as
+ * drawing the live wire or saving a selection.  Stages are timed with `time()`, which records
+ * the duration in the stage's histogram and also emits a JDK Flight Recorder event (`StageEvent`)
+ * when a recording is running, e.g. one started with `-XX:StartFlightRecording`.
+ * <p>
+ * Usage: `Metrics.time(Metrics.PAINT, () -> { ... })`, or
+ * `PolyLine wire = Metrics.time(Metrics.LIVE_WIRE, () -> model.liveWire(p))` for a stage that
+ * returns a result.
+ */
+public final class Metrics {
+
+    /* Names of the instrumented stages */
+    public static final String LIVE_WIRE = "liveWire";
+    public static final String APPEND_TO_SELECTION = "appendToSelection";
+    public static final String MOVE_POINT = "movePoint";
+    public static final String PAINT = "paintComponent";
+    public static final String LOAD_IMAGE = "loadImage";
+    public static final String SAVE_SELECTION = "saveSelection";
+
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Return the histogram of durations of the stage named `stage`, creating it if necessary.
+     */
+    public static LatencyHistogram histogram(String stage) {
+        return HISTOGRAMS.computeIfAbsent(stage, s -> new LatencyHistogram());
+    }
+
+    /**
+     * Return the histograms of all stages timed so far, by name in alphabetical order.  The map is
+     * a snapshot, but its histograms continue to record.
+     */
+    public static Map<String, LatencyHistogram> histograms() {
+        return new TreeMap<>(HISTOGRAMS);
+    }
+
+    /**
+     * The body of a timed stage, which returns a result of type `T` and may throw an exception
+     * of type `E`.
+     */
+    @FunctionalInterface
+    public interface Timed<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Run `body` as a run of the stage named `stage`, recording its duration (even if it throws),
+     * and return its result.  Rethrows any exception thrown by `body`.
+     */
+    public static <T, E extends Exception> T time(String stage, Timed<T, E> body) throws E {
+        LatencyHistogram histogram = histogram(stage);
+        StageEvent event = new StageEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return body.run();
+        } finally {
+            histogram.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Run `body` as a run of the stage named `stage`, recording its duration (even if it throws).
+     */
+    public static void time(String stage, Runnable body) {
+        time(stage, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * Forget the durations recorded for all stages.
+     */
+    public static void reset() {
+        for (LatencyHistogram h : HISTOGRAMS.values()) {
+            h.reset();
+        }
+    }
+
+    /**
+     * Return a table of the number of runs and the median, 99th-percentile and longest durations
+     * (in milliseconds) of each stage, one line per stage.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder(String.format("%-20s %8s %9s %9s %9s%n",
+                "stage", "count", "p50 ms", "p99 ms", "max ms"));
+        for (Map.Entry<String, LatencyHistogram> e : histograms().entrySet()) {
+            LatencyHistogram h = e.getValue();
+            report.append(String.format("%-20s %8d %9.3f %9.3f %9.3f%n", e.getKey(), h.count(),
+                    h.percentile(50) / 1e6, h.percentile(99) / 1e6, h.max() / 1e6));
+        }
+        return report.toString();
+    }
+}
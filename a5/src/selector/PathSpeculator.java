@@ -0,0 +1,92 @@
+package selector;
+
+import java.awt.Point;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Grows shortest-path trees speculatively while the user is aiming, so that the paths they are
+ * about to request are already known when the click or drag arrives.  Work runs in the idle lane
+ * of the shared `ProcessingExecutor`, so it only uses otherwise idle CPU time, and is owned by the
+ * task group of the model it serves.
+ * Each speculator has at most one job at a time; a new hint replaces (cancels) its previous job.
+ * Foreground code should call `cancel()` before querying a tree that a job may be growing, so
+ * that the job releases the tree within a few thousand pixels rather than finishing first.
+ */
+final class PathSpeculator {
+
+    /**
+     * Number of pixels each tree is grown beyond the hinted target, so that nearby targets are
+     * covered too.
+     */
+    static final int MARGIN_PIXELS = 1 << 16;
+
+    /**
+     * The group through which jobs are submitted.
+     */
+    private final ProcessingExecutor.TaskGroup tasks;
+
+    /**
+     * The most recently scheduled job, or null.
+     */
+    private Job current;
+
+    /**
+     * Create a speculator whose jobs are submitted through `tasks`, so that cancelling the group
+     * also stops them.
+     */
+    PathSpeculator(ProcessingExecutor.TaskGroup tasks) {
+        this.tasks = tasks;
+    }
+
+    /**
+     * Replace any previous job with one that grows each of `trees` until its path to `target` is
+     * known and then by `MARGIN_PIXELS` more.  Trees whose path to `target` is already known are
+     * only grown by the margin.
+     */
+    synchronized void speculate(List<ShortestPathTree> trees, Point target) {
+        cancel();
+        current = new Job(List.copyOf(trees), new Point(target));
+        tasks.submitIdle(current);
+    }
+
+    /**
+     * Stop the current job, if any.  Trees keep whatever progress it made.
+     */
+    synchronized void cancel() {
+        if (current != null) {
+            current.cancelled = true;
+            current = null;
+        }
+    }
+
+    /**
+     * A speculative expansion of some trees towards a target.
+     */
+    private static final class Job implements Runnable {
+        final List<ShortestPathTree> trees;
+        final Point target;
+        volatile boolean cancelled;
+
+        Job(List<ShortestPathTree> trees, Point target) {
+            this.trees = trees;
+            this.target = target;
+        }
+
+        @Override
+        public void run() {
+            BooleanSupplier stopped = () -> cancelled || Thread.currentThread().isInterrupted();
+            for (ShortestPathTree tree : trees) {
+                if (stopped.getAsBoolean() || !tree.expandTo(target, stopped)) {
+                    return;
+                }
+            }
+            for (ShortestPathTree tree : trees) {
+                if (stopped.getAsBoolean()) {
+                    return;
+                }
+                tree.expandBy(MARGIN_PIXELS, stopped);
+            }
+        }
+    }
+}
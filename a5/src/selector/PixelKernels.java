@@ -0,0 +1,99 @@
+package selector;
+
+/**
+ * Per-pixel loops shared by image-processing stages.  Two implementations exist: a portable scalar
+ * one and one using the (incubating) Vector API to process several pixels per instruction.  The
+ * vector implementation is chosen at startup if the `jdk.incubator.vector` module is available
+ * (run with `--add-modules jdk.incubator.vector`); otherwise the scalar implementation is used.
+ * Setting the system property "selector.kernels" to "scalar" or "vector" forces a choice.
+ */
+abstract class PixelKernels {
+
+    /**
+     * The kernels selected for this JVM.
+     */
+    private static final PixelKernels INSTANCE = select();
+
+    /**
+     * Return the kernels selected for this JVM.
+     */
+    static PixelKernels get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Return the scalar kernels, regardless of which kernels were selected.
+     */
+    static PixelKernels scalar() {
+        return ScalarKernels.INSTANCE;
+    }
+
+    /**
+     * Return the vector kernels, or null if the Vector API is not available in this JVM.
+     */
+    static PixelKernels vector() {
+        try {
+            return VectorKernels.INSTANCE;
+        } catch (LinkageError e) {
+            // `jdk.incubator.vector` was not resolved at startup
+            return null;
+        }
+    }
+
+    /**
+     * Choose the fastest kernels available, subject to the "selector.kernels" system property.
+     */
+    private static PixelKernels select() {
+        String choice = System.getProperty("selector.kernels", "");
+        if (!choice.equals("scalar")) {
+            PixelKernels vector = vector();
+            if (vector != null) {
+                return vector;
+            }
+        }
+        return scalar();
+    }
+
+    /**
+     * Return a short name identifying this implementation (for diagnostics and benchmarks).
+     */
+    abstract String name();
+
+    /**
+     * Compute the Sobel gradient of one row of a `width`-pixel-wide luminance image `luma`.  The
+     * rows above, at, and below the row start at indices `up`, `mid`, and `down` of `luma`
+     * respectively (border rows may be repeated).  Store the horizontal and vertical gradient
+     * components and gradient magnitude of each pixel in `gx`, `gy`, and `magnitude`, starting at
+     * index `mid`.  Columns beyond the left and right edges are treated as copies of the edge
+     * columns.  Return the largest magnitude in the row.
+     */
+    final float sobelRow(int[] luma, int up, int mid, int down, int width, short[] gx, short[] gy,
+            float[] magnitude) {
+        float max = 0;
+        for (int x = 0; x < width; x = (x == 0 && width > 2) ? width - 1 : x + 1) {
+            // Border columns only; interior columns are handled by `sobelInterior()`
+            int l = x == 0 ? 0 : x - 1;
+            int r = x == width - 1 ? x : x + 1;
+            int h = (luma[up + r] + 2 * luma[mid + r] + luma[down + r])
+                    - (luma[up + l] + 2 * luma[mid + l] + luma[down + l]);
+            int v = (luma[down + l] + 2 * luma[down + x] + luma[down + r])
+                    - (luma[up + l] + 2 * luma[up + x] + luma[up + r]);
+            gx[mid + x] = (short) h;
+            gy[mid + x] = (short) v;
+            float m = (float) Math.sqrt(h * h + v * v);
+            magnitude[mid + x] = m;
+            max = Math.max(max, m);
+        }
+        if (width > 2) {
+            max = Math.max(max, sobelInterior(luma, up, mid, down, width, gx, gy, magnitude));
+        }
+        return max;
+    }
+
+    /**
+     * As `sobelRow()`, but only for columns [1..width-1), all of whose neighbors lie within the
+     * row.  Requires `width > 2`.
+     */
+    abstract float sobelInterior(int[] luma, int up, int mid, int down, int width, short[] gx,
+            short[] gy, float[] magnitude);
+}
@@ -0,0 +1,229 @@
+package selector;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Reads rows of pixels from a BufferedImage into primitive arrays.  Images backed by packed
+ * `DataBufferInt` rasters (e.g. TYPE_INT_RGB, TYPE_INT_ARGB) or interleaved `DataBufferByte`
+ * rasters (e.g. TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR, TYPE_BYTE_GRAY) are read directly from their
+ * backing arrays; all other images fall back to `BufferedImage.getRGB()`.  Instances only read
+ * from the image, so a single reader may be shared by multiple threads as long as the image is not
+ * modified.
+ */
+final class PixelReader {
+
+    /**
+     * Read pixels with `BufferedImage.getRGB()`.
+     */
+    private static final int GENERIC = 0;
+
+    /**
+     * Read pixels from a packed `int[]` with 8 bits per color component.
+     */
+    private static final int PACKED_INT = 1;
+
+    /**
+     * Read pixels from an interleaved `byte[]` with separate red, green, and blue samples.
+     */
+    private static final int INTERLEAVED_RGB = 2;
+
+    /**
+     * Read pixels from an interleaved `byte[]` with a single gray sample.
+     */
+    private static final int INTERLEAVED_GRAY = 3;
+
+    /**
+     * The image being read.
+     */
+    private final BufferedImage img;
+
+    /**
+     * Which of the above strategies is used to read pixels from `img`.
+     */
+    private final int kind;
+
+    /**
+     * The backing array of `img`'s raster if `kind` is PACKED_INT, otherwise null.
+     */
+    private final int[] intData;
+
+    /**
+     * The backing array of `img`'s raster if `kind` is INTERLEAVED_RGB or INTERLEAVED_GRAY,
+     * otherwise null.
+     */
+    private final byte[] byteData;
+
+    /**
+     * Index into the backing array of the first sample of pixel (0, 0).
+     */
+    private final int origin;
+
+    /**
+     * Distance (in array elements) between vertically adjacent pixels in the backing array.
+     */
+    private final int scanlineStride;
+
+    /**
+     * Distance (in array elements) between horizontally adjacent pixels in the backing array.
+     */
+    private final int pixelStride;
+
+    /**
+     * Bit shifts (PACKED_INT) or sample offsets (INTERLEAVED_*) of the red, green, and blue
+     * components of a pixel.
+     */
+    private final int rPos, gPos, bPos;
+
+    /**
+     * Create a reader for the pixels of `img`.
+     */
+    PixelReader(BufferedImage img) {
+        this.img = img;
+        WritableRaster raster = img.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer buffer = raster.getDataBuffer();
+        // Child rasters (from `getSubimage()`) are translated relative to their sample model
+        int tx = -raster.getSampleModelTranslateX();
+        int ty = -raster.getSampleModelTranslateY();
+
+        int kind = GENERIC;
+        int[] intData = null;
+        byte[] byteData = null;
+        int origin = 0, scanlineStride = 0, pixelStride = 0, rPos = 0, gPos = 0, bPos = 0;
+        if (buffer instanceof DataBufferInt ints && buffer.getNumBanks() == 1
+                && sm instanceof SinglePixelPackedSampleModel packed && packed.getNumBands() >= 3
+                && is8BitMask(packed.getBitMasks(), 0, 1, 2)) {
+            kind = PACKED_INT;
+            intData = ints.getData();
+            origin = ints.getOffset() + packed.getOffset(tx, ty);
+            scanlineStride = packed.getScanlineStride();
+            pixelStride = 1;
+            int[] offsets = packed.getBitOffsets();
+            rPos = offsets[0];
+            gPos = offsets[1];
+            bPos = offsets[2];
+        } else if (buffer instanceof DataBufferByte bytes && buffer.getNumBanks() == 1
+                && sm instanceof ComponentSampleModel component
+                && component.getNumBands() != 2) {
+            byteData = bytes.getData();
+            scanlineStride = component.getScanlineStride();
+            pixelStride = component.getPixelStride();
+            // Band offsets are applied per sample below
+            origin = bytes.getOffset() + ty * scanlineStride + tx * pixelStride;
+            int[] offsets = component.getBandOffsets();
+            if (img.getColorModel().getNumColorComponents() == 3 && offsets.length >= 3
+                    && img.getType() != BufferedImage.TYPE_BYTE_INDEXED) {
+                kind = INTERLEAVED_RGB;
+                rPos = offsets[0];
+                gPos = offsets[1];
+                bPos = offsets[2];
+            } else if (img.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+                kind = INTERLEAVED_GRAY;
+                rPos = gPos = bPos = offsets[0];
+            } else {
+                byteData = null;
+            }
+        }
+        this.kind = kind;
+        this.intData = intData;
+        this.byteData = byteData;
+        this.origin = origin;
+        this.scanlineStride = scanlineStride;
+        this.pixelStride = pixelStride;
+        this.rPos = rPos;
+        this.gPos = gPos;
+        this.bPos = bPos;
+    }
+
+    /**
+     * Return whether the bit masks at indices `bands` of `masks` each select exactly 8 contiguous
+     * bits.
+     */
+    private static boolean is8BitMask(int[] masks, int... bands) {
+        for (int b : bands) {
+            int m = masks[b] >>> Integer.numberOfTrailingZeros(masks[b]);
+            if (m != 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the width of the image being read.
+     */
+    int width() {
+        return img.getWidth();
+    }
+
+    /**
+     * Return the height of the image being read.
+     */
+    int height() {
+        return img.getHeight();
+    }
+
+    /**
+     * Store the colors of the `w` pixels starting at (`x`, `y`) in `dst`, starting at index
+     * `dstOff`, as packed 0xRRGGBB values (any alpha component is discarded).  Requires the pixels
+     * lie within the image and `dst` is large enough.
+     */
+    void readRgb(int x, int y, int w, int[] dst, int dstOff) {
+        switch (kind) {
+            case PACKED_INT -> {
+                int i = origin + y * scanlineStride + x;
+                for (int k = 0; k < w; k++, i++) {
+                    int p = intData[i];
+                    dst[dstOff + k] = ((p >>> rPos) & 0xFF) << 16 | ((p >>> gPos) & 0xFF) << 8
+                            | ((p >>> bPos) & 0xFF);
+                }
+            }
+            case INTERLEAVED_RGB, INTERLEAVED_GRAY -> {
+                int i = origin + y * scanlineStride + x * pixelStride;
+                for (int k = 0; k < w; k++, i += pixelStride) {
+                    dst[dstOff + k] = (byteData[i + rPos] & 0xFF) << 16
+                            | (byteData[i + gPos] & 0xFF) << 8 | (byteData[i + bPos] & 0xFF);
+                }
+            }
+            default -> {
+                img.getRGB(x, y, w, 1, dst, dstOff, w);
+                for (int k = 0; k < w; k++) {
+                    dst[dstOff + k] &= 0xFFFFFF;
+                }
+            }
+        }
+    }
+
+    /**
+     * Store the luminance (in [0..255]) of the `w` pixels starting at (`x`, `y`) in `dst`, starting
+     * at index `dstOff`.  Requires the pixels lie within the image and `dst` is large enough.
+     */
+    void readLuma(int x, int y, int w, int[] dst, int dstOff) {
+        if (kind == INTERLEAVED_GRAY) {
+            int i = origin + y * scanlineStride + x * pixelStride + rPos;
+            for (int k = 0; k < w; k++, i += pixelStride) {
+                dst[dstOff + k] = byteData[i] & 0xFF;
+            }
+            return;
+        }
+        readRgb(x, y, w, dst, dstOff);
+        for (int k = 0; k < w; k++) {
+            dst[dstOff + k] = luma(dst[dstOff + k]);
+        }
+    }
+
+    /**
+     * Return the luminance (in [0..255]) of the packed 0xRRGGBB color `rgb`, using integer
+     * approximations of the Rec. 601 weights.
+     */
+    static int luma(int rgb) {
+        return (((rgb >>> 16) & 0xFF) * 77 + ((rgb >>> 8) & 0xFF) * 150 + (rgb & 0xFF) * 29) >>> 8;
+    }
+}
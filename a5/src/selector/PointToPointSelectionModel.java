@@ -1,19 +1,75 @@
 package selector;
 
 import java.awt.Point;
-import java.util.ListIterator;
 
 /**
  * Models a selection tool that connects each added point with a straight line.
  */
 public class PointToPointSelectionModel extends SelectionModel {
 
+    /**
+     * The largest supported snap radius.  Bounds the cost of snapping a point.
+     */
+    public static final int MAX_SNAP_RADIUS = 16;
+
+    /**
+     * If positive, points added or moved by clients are moved to the pixel with the strongest edge
+     * (largest gradient magnitude) within this many pixels horizontally and vertically.  If 0,
+     * points are used as given.  Must be in [0..MAX_SNAP_RADIUS].
+     */
+    private int snapRadius;
+
     public PointToPointSelectionModel(boolean notifyOnEdt) {
         super(notifyOnEdt);
     }
 
     public PointToPointSelectionModel(SelectionModel copy) {
         super(copy);
+        if (copy instanceof PointToPointSelectionModel p2p) {
+            snapRadius = p2p.snapRadius;
+        }
+    }
+
+    /**
+     * Return the radius within which added and moved points are snapped to the strongest nearby
+     * edge, or 0 if snapping is disabled.
+     */
+    public int snapRadius() {
+        return snapRadius;
+    }
+
+    /**
+     * Snap points subsequently added or moved to the strongest edge within `radius` pixels
+     * horizontally and vertically, or disable snapping if `radius` is 0.  Throws an
+     * IllegalArgumentException if `radius` is not in [0..MAX_SNAP_RADIUS].
+     */
+    public void setSnapRadius(int radius) {
+        if (radius < 0 || radius > MAX_SNAP_RADIUS) {
+            throw new IllegalArgumentException("Invalid snap radius " + radius);
+        }
+        snapRadius = radius;
+    }
+
+    /**
+     * Return the point that `p` should be moved to when snapping is enabled, or `p` itself if
+     * snapping is disabled, no image has been set, its gradient is not ready yet (see
+     * `gradient()`), or edits are being replayed.  Does not modify `p`.
+     */
+    private Point snap(Point p) {
+        if (snapRadius == 0 || img == null || replaying()) {
+            return p;
+        }
+        GradientMap gradient = gradient();
+        return (gradient == null) ? p : gradient.strongestEdgeNear(p.x, p.y, snapRadius);
+    }
+
+    /**
+     * As in `SelectionModel`, but if snapping is enabled, `p` is first moved to the strongest edge
+     * near it.
+     */
+    @Override
+    public void addPoint(Point p) {
+        super.addPoint(snap(p));
     }
 
     /**
@@ -38,8 +94,8 @@ public class PointToPointSelectionModel extends SelectionModel {
      * Move the starting point of the segment of our selection with index `index` to `newPos`,
      * connecting to the end of that segment with a straight line and also connecting `newPos` to
      * the start of the previous segment (wrapping around) with a straight line (these straight
-     * lines replace both previous segments).  Notify listeners that the "selection" property has
-     * changed.
+     * lines replace both previous segments).  If snapping is enabled, `newPos` is first moved to
+     * the strongest edge near it.  Notify listeners that the "selection" property has changed.
      */
     @Override
     public void movePoint(int index, Point newPos) {
@@ -50,30 +106,17 @@ public class PointToPointSelectionModel extends SelectionModel {
         if (index < 0 || index >= selection.size()) {
             throw new IllegalArgumentException("Invalid segment index " + index);
         }
-        // Create a copy of the new position to avoid modifying the original
-        Point newPoint = new Point(newPos);
-        Point p1, p2;
-
-        // Get a list iterator to traverse the selection segments
-        ListIterator<PolyLine> listIterator = selection.listIterator();
-        int track = 0;
-        // while loop
+        newPos = snap(newPos);
+        // Replace just the two segments meeting at the point (wrapping around), so the cost does
+        //  not depend on where the point is along the path
+        int prev = (index == 0) ? selection.size() - 1 : index - 1;
+        selection.set(prev, new PolyLine(selection.get(prev).start(), newPos));
+        selection.set(index, new PolyLine(newPos, selection.get(index).end()));
         if (index == 0) {
-            start = newPoint;
-        }
-        while(listIterator.hasNext()){
-            PolyLine poly = listIterator.next();
-            if(track == index) {
-                p1 = poly.end();
-                listIterator.set(new PolyLine(newPos, p1));
-            }
-            // Prevents use of previous() and handle wrapping if needed
-            if(track+1 == index || (index == 0 && !(listIterator.hasNext()))){
-                p2 = poly.start();
-                listIterator.set(new PolyLine(p2, newPos));
-            }
-            track++;
+            // Create a copy of the new position to avoid aliasing the client's point
+            start = new Point(newPos);
         }
         propSupport.firePropertyChange("selection", null, selection());
+        recordEdit(EditJournal.Op.MOVE_POINT, index, newPos);
     }
 }
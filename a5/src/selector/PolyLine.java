@@ -1,7 +1,10 @@
 package selector;
 
+import java.awt.Graphics;
 import java.awt.Point;
 import java.awt.Polygon;
+import java.awt.geom.Line2D;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -10,6 +13,11 @@ import java.util.List;
  * immutable, its interface sacrifices some encapsulation in order to be used efficiently for AWT
  * graphics (that is, it does not create defensive copies of arrays), so clients must not modify the
  * contents of arrays returned by instances of this class.
+ * <p>
+ * Long paths between adjacent pixels may be stored more compactly by `ChainCodePolyLine`, which
+ * overrides the accessors below; code that may see such paths should prefer `copyTo()` and
+ * `draw()` over `xs()` and `ys()`, which have to decode them, and should call `coordinates()`
+ * rather than both of `xs()` and `ys()`.
  */
 public class PolyLine {
 
@@ -25,12 +33,19 @@ public class PolyLine {
      */
     private final int[] ys;
 
+    /**
+     * The path that this poly-line was simplified from, with the same endpoints, or null if this
+     * poly-line has not been simplified.
+     */
+    private final PolyLine source;
+
     /**
      * Create a straight line segment starting at `start` and ending at `end`.
      */
     public PolyLine(Point start, Point end) {
         xs = new int[]{start.x, end.x};
         ys = new int[]{start.y, end.y};
+        source = null;
     }
 
     /**
@@ -40,10 +55,31 @@ public class PolyLine {
      * Requires that `xs` and `ys` have the same length no less than 2.
      */
     public PolyLine(int[] xs, int[] ys) {
+        this(xs, ys, null);
+    }
+
+    /**
+     * Create a poly-line whose points have x-coordinates `xs` and y-coordinates `ys` and that was
+     * simplified from `source` (null if it was not simplified).  Takes ownership of `xs` and `ys`
+     * as above.  Requires `source`, if non-null, has the same endpoints and is not itself
+     * simplified.
+     */
+    PolyLine(int[] xs, int[] ys, PolyLine source) {
         assert xs.length >= 2;
         assert xs.length == ys.length;
         this.xs = xs;
         this.ys = ys;
+        this.source = source;
+    }
+
+    /**
+     * Initialize a poly-line whose points are stored by a subclass, which must override every
+     * accessor that reads `xs` and `ys`.
+     */
+    PolyLine() {
+        xs = null;
+        ys = null;
+        source = null;
     }
 
     /**
@@ -62,6 +98,16 @@ public class PolyLine {
         return ys;
     }
 
+    /**
+     * Return the x and y coordinates of the points along this poly-line, as `{xs, ys}`.  Callers
+     * that need both should use this rather than `xs()` and `ys()`, since paths stored compactly
+     * are then decoded once rather than twice.  Rep exposure: clients must not mutate the contents
+     * of the returned arrays.
+     */
+    int[][] coordinates() {
+        return new int[][]{xs, ys};
+    }
+
     /**
      * Return the number of points along this poly-line, including both endpoints.  Will be at least
      * 2.  The number of straight-line segments is therefore `size() - 1`.
@@ -70,6 +116,22 @@ public class PolyLine {
         return xs.length;
     }
 
+    /**
+     * Copy the `count` points of this poly-line starting with the one at index `from` into `dstXs`
+     * and `dstYs`, starting at index `offset`.  Requires the points and destination ranges exist.
+     */
+    public void copyTo(int from, int[] dstXs, int[] dstYs, int offset, int count) {
+        System.arraycopy(xs, from, dstXs, offset, count);
+        System.arraycopy(ys, from, dstYs, offset, count);
+    }
+
+    /**
+     * Draw this poly-line on `g` in its current color.
+     */
+    public void draw(Graphics g) {
+        g.drawPolyline(xs, ys, xs.length);
+    }
+
     /**
      * Return the first (starting) point along this poly-line.
      */
@@ -84,25 +146,310 @@ public class PolyLine {
         return new Point(xs[xs.length - 1], ys[ys.length - 1]);
     }
 
+    /**
+     * Return the coordinates of this poly-line's first and last points without allocating `Point`s.
+     */
+    int startX() {
+        return xs[0];
+    }
+
+    int startY() {
+        return ys[0];
+    }
+
+    int endX() {
+        return xs[xs.length - 1];
+    }
+
+    int endY() {
+        return ys[ys.length - 1];
+    }
+
+    /**
+     * Return the full-resolution path that this poly-line was simplified from, or this poly-line
+     * itself if it was not simplified.  The returned path has the same endpoints as this one.
+     */
+    public PolyLine fullResolution() {
+        return (source == null) ? this : source;
+    }
+
+    /**
+     * Return the index i of the straight piece of this poly-line (from point i to point i + 1)
+     * that is closest to (`x`, `y`).  If several are tied, the first is returned.
+     */
+    int closestPiece(double x, double y) {
+        int[][] points = coordinates();
+        return closestPiece(points[0], points[1], x, y);
+    }
+
+    /**
+     * Return the index i of the straight piece from (`xs[i]`, `ys[i]`) to (`xs[i + 1]`,
+     * `ys[i + 1]`) that is closest to (`x`, `y`).  If several are tied, the first is returned.
+     */
+    private static int closestPiece(int[] xs, int[] ys, double x, double y) {
+        int closest = 0;
+        double closestDist = Double.POSITIVE_INFINITY;
+        for (int i = 0; i + 1 < xs.length; i++) {
+            double dist = Line2D.ptSegDistSq(xs[i], ys[i], xs[i + 1], ys[i + 1], x, y);
+            if (dist < closestDist) {
+                closestDist = dist;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Return the squared distance from (`x`, `y`) to the closest point on this poly-line.
+     */
+    double distanceSq(double x, double y) {
+        int[][] points = coordinates();
+        int[] xs = points[0];
+        int[] ys = points[1];
+        int i = closestPiece(xs, ys, x, y);
+        return Line2D.ptSegDistSq(xs[i], ys[i], xs[i + 1], ys[i + 1], x, y);
+    }
+
+    /**
+     * Return the point (rounded to pixel coordinates) on this poly-line that is closest to (`x`,
+     * `y`).
+     */
+    Point project(double x, double y) {
+        int[][] points = coordinates();
+        int[] xs = points[0];
+        int[] ys = points[1];
+        int i = closestPiece(xs, ys, x, y);
+        double dx = xs[i + 1] - xs[i];
+        double dy = ys[i + 1] - ys[i];
+        double lengthSq = dx * dx + dy * dy;
+        double t = (lengthSq == 0) ? 0
+                : Math.clamp(((x - xs[i]) * dx + (y - ys[i]) * dy) / lengthSq, 0, 1);
+        return new Point((int) Math.round(xs[i] + t * dx), (int) Math.round(ys[i] + t * dy));
+    }
+
+    /**
+     * Split this poly-line in two at `p`, which becomes the end of the first part and the start of
+     * the second.  The split is made in the straight piece closest to `p`, so points on either
+     * side of that piece are kept in their part.  If this poly-line was simplified, its
+     * full-resolution path is split at `p` in the same way, and each part keeps its half.
+     * Requires `p` is not one of this poly-line's endpoints.
+     */
+    public PolyLine[] split(Point p) {
+        assert !p.equals(start()) && !p.equals(end());
+        int[][] points = coordinates();
+        int[] xs = points[0];
+        int[] ys = points[1];
+        int k = closestPiece(xs, ys, p.x, p.y);
+        // Don't repeat `p` if it is already one of the piece's ends
+        boolean atFirst = xs[k] == p.x && ys[k] == p.y;
+        boolean atSecond = xs[k + 1] == p.x && ys[k + 1] == p.y;
+        int firstSize = atFirst ? k + 1 : k + 2;
+        int secondFrom = atSecond ? k + 1 : k;
+
+        int[] firstXs = Arrays.copyOf(xs, firstSize);
+        int[] firstYs = Arrays.copyOf(ys, firstSize);
+        firstXs[firstSize - 1] = p.x;
+        firstYs[firstSize - 1] = p.y;
+        int[] secondXs = Arrays.copyOfRange(xs, secondFrom, xs.length);
+        int[] secondYs = Arrays.copyOfRange(ys, secondFrom, ys.length);
+        secondXs[0] = p.x;
+        secondYs[0] = p.y;
+
+        if (source == null) {
+            return new PolyLine[]{new PolyLine(firstXs, firstYs), new PolyLine(secondXs, secondYs)};
+        }
+        PolyLine[] sourceParts = source.split(p);
+        return new PolyLine[]{
+                new PolyLine(firstXs, firstYs, compact(sourceParts[0])),
+                new PolyLine(secondXs, secondYs, compact(sourceParts[1]))};
+    }
+
+    /**
+     * Return the poly-line that follows this one and then `next`, with the point where they meet
+     * appearing once.  If either was simplified, the result's full-resolution path is the
+     * concatenation of their full-resolution paths.  Requires `next` starts where this poly-line
+     * ends.
+     */
+    public PolyLine concat(PolyLine next) {
+        assert endX() == next.startX() && endY() == next.startY();
+        int n = size();
+        int m = next.size();
+        int[] newXs = new int[n + m - 1];
+        int[] newYs = new int[n + m - 1];
+        copyTo(0, newXs, newYs, 0, n);
+        next.copyTo(1, newXs, newYs, n, m - 1);
+        if (source == null && next.fullResolution() == next) {
+            return new PolyLine(newXs, newYs);
+        }
+        return new PolyLine(newXs, newYs,
+                compact(fullResolution().concat(next.fullResolution())));
+    }
+
+    /**
+     * Return `line`, chain-coded if its steps are between adjacent pixels.
+     */
+    private static PolyLine compact(PolyLine line) {
+        int[][] points = line.coordinates();
+        PolyLine encoded = ChainCodePolyLine.encode(points[0], points[1]);
+        return (encoded != null) ? encoded : line;
+    }
+
+    /**
+     * Return a poly-line approximating this one's full-resolution path with as few of its points
+     * as the Douglas-Peucker algorithm can keep while leaving every dropped point within
+     * `tolerance` pixels of the straight line segment that replaces it.  Endpoints are always
+     * kept.  The full-resolution path remains available from the result's `fullResolution()`.
+     * Returns the full-resolution path itself if no points can be dropped.  Requires `tolerance`
+     * is non-negative.
+     */
+    public PolyLine simplify(double tolerance) {
+        PolyLine full = fullResolution();
+        int n = full.size();
+        if (n <= 2) {
+            return full;
+        }
+        int[][] fullPoints = full.coordinates();
+        int[] fullXs = fullPoints[0];
+        int[] fullYs = fullPoints[1];
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int kept = 2;
+
+        // Split ranges at their farthest point until every range is within tolerance, using an
+        //  explicit stack since traced paths may have many thousands of points.
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            int farthest = farthestFromChord(fullXs, fullYs, first, last, tolerance);
+            if (farthest < 0) {
+                continue;
+            }
+            keep[farthest] = true;
+            kept++;
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[top++] = first;
+            stack[top++] = farthest;
+            stack[top++] = farthest;
+            stack[top++] = last;
+        }
+        if (kept == n) {
+            return full;
+        }
+
+        int[] newXs = new int[kept];
+        int[] newYs = new int[kept];
+        for (int i = 0, j = 0; i < n; i++) {
+            if (keep[i]) {
+                newXs[j] = fullXs[i];
+                newYs[j] = fullYs[i];
+                j++;
+            }
+        }
+        // Keep the full-resolution path as a chain code if it steps between adjacent pixels
+        PolyLine compact = ChainCodePolyLine.encode(fullXs, fullYs);
+        return new PolyLine(newXs, newYs, (compact != null) ? compact : full);
+    }
+
+    /**
+     * Return the index of the point (with coordinates from `xs` and `ys`) strictly between indices
+     * `first` and `last` that is farthest from the straight line segment joining those two points,
+     * or -1 if no such point is farther than `tolerance` from it.  If the two points coincide,
+     * distances are measured from that point instead.
+     */
+    private static int farthestFromChord(int[] xs, int[] ys, int first, int last,
+            double tolerance) {
+        long dx = xs[last] - xs[first];
+        long dy = ys[last] - ys[first];
+        long lengthSq = dx * dx + dy * dy;
+        // Compare squared distances scaled by the squared chord length to stay in integers
+        double limit = tolerance * tolerance * Math.max(lengthSq, 1);
+        double farthestDist = limit;
+        int farthest = -1;
+        for (int i = first + 1; i < last; i++) {
+            long px = xs[i] - xs[first];
+            long py = ys[i] - ys[first];
+            double dist;
+            if (lengthSq == 0) {
+                dist = px * px + py * py;
+            } else {
+                long t = px * dx + py * dy;
+                if (t <= 0) {
+                    dist = (double) (px * px + py * py) * lengthSq;
+                } else if (t >= lengthSq) {
+                    long qx = xs[i] - xs[last];
+                    long qy = ys[i] - ys[last];
+                    dist = (double) (qx * qx + qy * qy) * lengthSq;
+                } else {
+                    long cross = px * dy - py * dx;
+                    dist = (double) cross * cross;
+                }
+            }
+            if (dist > farthestDist) {
+                farthestDist = dist;
+                farthest = i;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * Return a copy of this poly-line whose first point is moved to `start` and whose last point
+     * is moved to `end`.  Interior points are unchanged, and the same endpoints are substituted in
+     * the full-resolution path.
+     */
+    public PolyLine withEndpoints(Point start, Point end) {
+        int[][] points = coordinates();
+        int[] newXs = points[0].clone();
+        int[] newYs = points[1].clone();
+        newXs[0] = start.x;
+        newYs[0] = start.y;
+        newXs[newXs.length - 1] = end.x;
+        newYs[newYs.length - 1] = end.y;
+        return new PolyLine(newXs, newYs,
+                (source == null) ? null : source.withEndpoints(start, end));
+    }
+
     @Override
     public boolean equals(Object other) {
-        if (other == null || other.getClass() != getClass()) {
+        // Poly-lines with the same points are equal however they are stored
+        if (!(other instanceof PolyLine otherLine) || otherLine.size() != size()) {
             return false;
         }
-        PolyLine otherLine = (PolyLine)other;
-        return Arrays.equals(xs, otherLine.xs) && Arrays.equals(ys, otherLine.ys);
+        int[][] points = coordinates();
+        int[][] otherPoints = otherLine.coordinates();
+        return Arrays.equals(points[0], otherPoints[0]) && Arrays.equals(points[1], otherPoints[1]);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(new Object[]{xs, ys});
+        return Arrays.deepHashCode(coordinates());
+    }
+
+    /**
+     * Return the full-resolution paths (see `fullResolution()`) of the poly-lines in `segments`,
+     * in order.
+     */
+    public static List<PolyLine> fullResolution(List<PolyLine> segments) {
+        List<PolyLine> full = new ArrayList<>(segments.size());
+        for (PolyLine segment : segments) {
+            full.add(segment.fullResolution());
+        }
+        return full;
     }
 
     /**
      * Return an AWT Polygon enclosed by the sequence of poly-lines in `segments`.  The end of the
      * last segment in the sequence will be joined to the start of the first segment in the
      * sequence.  Any duplicate points where segments join are omitted.  Requires `segments` is
-     * non-empty.
+     * non-empty.  Builds a new polygon on every call; a `SegmentList` keeps its polygon up to date
+     * instead.
      */
     public static Polygon makePolygon(List<PolyLine> segments) {
         // Determine maximum number of points and allocate sufficiently large arrays to store all
@@ -117,17 +464,24 @@ public class PolyLine {
         // Append points from segments to coordinate arrays, skipping duplicate points when the end
         // of one segment coincides with the start of the next (wrapping around).
         int size = 0;
-        Point prevEnd = segments.getLast().end();
+        PolyLine last = segments.getLast();
+        int prevX = last.endX();
+        int prevY = last.endY();
         for (PolyLine segment : segments) {
-            int iStart = segment.start().equals(prevEnd) ? 1 : 0;
+            int iStart = (segment.startX() == prevX && segment.startY() == prevY) ? 1 : 0;
             int nPoints = segment.size() - iStart;
-            System.arraycopy(segment.xs, iStart, xs, size, nPoints);
-            System.arraycopy(segment.ys, iStart, ys, size, nPoints);
+            segment.copyTo(iStart, xs, ys, size, nPoints);
             size += nPoints;
-            prevEnd.x = xs[size - 1];
-            prevEnd.y = ys[size - 1];
+            prevX = xs[size - 1];
+            prevY = ys[size - 1];
         }
-        return new Polygon(xs, ys, size);
+
+        // Hand the arrays to the polygon directly (its constructor would copy them)
+        Polygon polygon = new Polygon();
+        polygon.xpoints = xs;
+        polygon.ypoints = ys;
+        polygon.npoints = size;
+        return polygon;
     }
 
 }
@@ -0,0 +1,225 @@
+package selector;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import javax.swing.SwingUtilities;
+
+/**
+ * The threads that run background work for the whole application, so that models and views do not
+ * manage threads of their own.  Work is split into three lanes:
+ * <ul>
+ * <li>CPU: a bounded fork-join pool (one thread per core) for compute kernels, which may also be
+ * passed directly to parallel kernels such as `GradientMap`.  Submitting more than a few tasks
+ * per core blocks the submitter until some finish, so a burst of requests cannot queue unbounded
+ * work.  The event dispatch thread is never blocked this way: its tasks, which arrive at the pace
+ * of the user, are queued beyond the limit instead.</li>
+ * <li>I/O: a virtual thread per task for work that mostly waits (loading and saving images, cache
+ * writes), with a cap on how many run at once.</li>
+ * <li>Idle: a single low-priority thread for speculative work that should only use spare CPU
+ * time.</li>
+ * </ul>
+ * Tasks are submitted through a `TaskGroup`, which tracks the tasks of one owner (such as a
+ * selection model) so that they can all be cancelled when the owner is reset or replaced.
+ */
+public final class ProcessingExecutor {
+
+    /**
+     * Largest number of CPU tasks per pool thread that may be queued or running at once.
+     */
+    private static final int CPU_TASKS_PER_THREAD = 4;
+
+    /**
+     * Default largest number of I/O tasks that may run at once.
+     */
+    private static final int DEFAULT_MAX_IO_TASKS = 16;
+
+    private static final ProcessingExecutor SHARED = new ProcessingExecutor(
+            Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_IO_TASKS);
+
+    private final ForkJoinPool cpu;
+    private final ExecutorService io;
+    private final ExecutorService idle;
+
+    /**
+     * Permits for queued or running CPU tasks, and for running I/O tasks.  A CPU task holds its
+     * permit until its code returns, even if it is cancelled while running.
+     */
+    private final Semaphore cpuSlots, ioSlots;
+
+    /**
+     * Create an executor whose CPU pool has `parallelism` threads and that runs up to `maxIoTasks`
+     * I/O tasks at once.  Its threads are daemons, so it need not be shut down, though one made
+     * for a single job should be (see `shutdown()`).
+     */
+    public ProcessingExecutor(int parallelism, int maxIoTasks) {
+        cpu = new ForkJoinPool(parallelism);
+        io = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("io-", 0).factory());
+        idle = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "idle-speculation");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        cpuSlots = new Semaphore(parallelism * CPU_TASKS_PER_THREAD);
+        ioSlots = new Semaphore(maxIoTasks);
+    }
+
+    /**
+     * Return the executor shared by the whole application.
+     */
+    public static ProcessingExecutor shared() {
+        return SHARED;
+    }
+
+    /**
+     * Return the fork-join pool of the CPU lane, for parallel kernels that split their own work.
+     */
+    public ForkJoinPool cpuPool() {
+        return cpu;
+    }
+
+    /**
+     * Return a new group for submitting tasks on behalf of one owner.
+     */
+    public TaskGroup newGroup() {
+        return new TaskGroup();
+    }
+
+    /**
+     * Stop all three lanes from accepting new tasks, and let their threads exit once the tasks
+     * already submitted have finished (cancel them first to stop them sooner).  Must not be called
+     * on the shared executor.
+     */
+    public void shutdown() {
+        cpu.shutdown();
+        io.shutdown();
+        idle.shutdown();
+    }
+
+    /**
+     * The tasks submitted on behalf of one owner.  Tasks are removed from the group when they
+     * finish.  Cancelling the group interrupts its running tasks (long-running tasks should poll
+     * `Thread.currentThread().isInterrupted()`) and keeps its queued tasks from starting.
+     */
+    public final class TaskGroup {
+
+        /**
+         * Tasks submitted through this group that have not finished.
+         */
+        private final Set<Future<?>> pending = ConcurrentHashMap.newKeySet();
+
+        private TaskGroup() {
+        }
+
+        /**
+         * Run `task` in the CPU lane, blocking first if too many CPU tasks are already queued
+         * (unless called on the event dispatch thread).  If the calling thread is interrupted
+         * while blocked, `task` is not run, the returned future is cancelled, and the thread's
+         * interrupt status is kept.
+         */
+        public <T> Future<T> submitCpu(Callable<T> task) {
+            if (SwingUtilities.isEventDispatchThread()) {
+                return submit(task, cpu, cpuSlots.tryAcquire() ? cpuSlots : null);
+            }
+            try {
+                cpuSlots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                FutureTask<T> skipped = new FutureTask<>(task);
+                skipped.cancel(false);
+                return skipped;
+            }
+            return submit(task, cpu, cpuSlots);
+        }
+
+        /**
+         * Run `task` on a virtual thread in the I/O lane.  It waits (without blocking the caller)
+         * if the most I/O tasks allowed are already running.
+         */
+        public <T> Future<T> submitIo(Callable<T> task) {
+            return submit(() -> {
+                ioSlots.acquire();
+                try {
+                    return task.call();
+                } finally {
+                    ioSlots.release();
+                }
+            }, io, null);
+        }
+
+        /**
+         * Run `task` on the low-priority thread of the idle lane, after any idle tasks submitted
+         * before it (by any group).
+         */
+        public Future<?> submitIdle(Runnable task) {
+            return submit(() -> {
+                task.run();
+                return null;
+            }, idle, null);
+        }
+
+        /**
+         * Cancel every task of this group that has not finished, interrupting those that are
+         * running.
+         */
+        public void cancelAll() {
+            for (Future<?> f : pending) {
+                f.cancel(true);
+            }
+        }
+
+        /**
+         * Return the number of tasks of this group that have not finished.
+         */
+        public int pendingCount() {
+            return pending.size();
+        }
+
+        /**
+         * Track and run `task` on `executor`.  If `slots` is non-null, the caller has acquired one
+         * of its permits for the task, which is released once `executor` is done with the task:
+         * when its code returns, or when it is dequeued after being cancelled before it started.
+         * Throws a RejectedExecutionException (after releasing the permit) if `executor` will not
+         * accept the task.
+         */
+        private <T> Future<T> submit(Callable<T> task, ExecutorService executor,
+                Semaphore slots) {
+            FutureTask<T> future = new FutureTask<>(task) {
+                @Override
+                public void run() {
+                    try {
+                        super.run();
+                    } finally {
+                        if (slots != null) {
+                            slots.release();
+                        }
+                    }
+                }
+
+                @Override
+                protected void done() {
+                    pending.remove(this);
+                }
+            };
+            pending.add(future);
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException e) {
+                pending.remove(future);
+                if (slots != null) {
+                    slots.release();
+                }
+                throw e;
+            }
+            return future;
+        }
+    }
+}
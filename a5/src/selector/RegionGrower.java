@@ -0,0 +1,176 @@
+package selector;
+
+import java.util.Arrays;
+
+/**
+ * Finds the 4-connected region of pixels whose colors are similar to that of a seed pixel (a
+ * "magic wand" or flood fill).  The region is grown outward from the seed one horizontal run at a
+ * time (a scanline flood fill): each run is extended as far as similar pixels reach to its left
+ * and right, and the rows above and below it are then searched for further runs.  Only pixels in
+ * the region and those bordering it are examined, so the time taken is proportional to the size
+ * of the region rather than of the image, and a click on a small region of a large image returns
+ * quickly.
+ */
+final class RegionGrower {
+
+    /**
+     * Source of the pixels being examined.
+     */
+    private final PixelReader pixels;
+
+    /**
+     * Width and height of the image.
+     */
+    private final int width, height;
+
+    /**
+     * Color (0xRRGGBB) that pixels are compared against.
+     */
+    private final int refColor;
+
+    /**
+     * Largest allowed difference in any color channel between a pixel and `refColor` for the pixel
+     * to be part of the region.
+     */
+    private final int tolerance;
+
+    /**
+     * The pixels found to be in the region so far.
+     */
+    private final BitMask mask;
+
+    /**
+     * Spans waiting to be searched for runs of the region, used as a stack.  Each span is four
+     * ints: its row, its first column, one past its last column, and the direction (+1 or -1) of
+     * the next row away from the run it was queued from, or 0 for the seed.
+     */
+    private int[] spans = new int[64];
+
+    /**
+     * Number of ints of `spans` in use (four per span).
+     */
+    private int spanCount;
+
+    /**
+     * Colors of a span of pixels of one row, read in a single call.
+     */
+    private final int[] rgb;
+
+    /**
+     * The color of a single pixel beyond the span held in `rgb`.
+     */
+    private final int[] one = new int[1];
+
+    /**
+     * Prepare to find the region around pixel (`seedX`, `seedY`) of the image read by `pixels`.
+     * Requires the seed lies within the image and `tolerance` is non-negative.
+     */
+    private RegionGrower(PixelReader pixels, int seedX, int seedY, int tolerance) {
+        this.pixels = pixels;
+        width = pixels.width();
+        height = pixels.height();
+        rgb = new int[width];
+        pixels.readRgb(seedX, seedY, 1, rgb, 0);
+        refColor = rgb[0];
+        this.tolerance = tolerance;
+        mask = new BitMask(width, height);
+    }
+
+    /**
+     * Return a mask (the size of the image read by `pixels`) of the 4-connected region containing
+     * pixel (`seedX`, `seedY`) in which every pixel's red, green, and blue components each differ
+     * from those of the seed by no more than `tolerance`.  Requires the seed lies within the image
+     * and `tolerance` is non-negative.
+     */
+    static BitMask grow(PixelReader pixels, int seedX, int seedY, int tolerance) {
+        RegionGrower grower = new RegionGrower(pixels, seedX, seedY, tolerance);
+        grower.push(seedY, seedX, seedX + 1, 0);
+        while (grower.spanCount > 0) {
+            grower.spanCount -= 4;
+            int[] spans = grower.spans;
+            int i = grower.spanCount;
+            grower.fillSpan(spans[i], spans[i + 1], spans[i + 2], spans[i + 3]);
+        }
+        return grower.mask;
+    }
+
+    /**
+     * Add to the region every run of similar pixels in row `y` that is not yet in the region and
+     * overlaps columns [x0..x1), extending each run as far as it reaches beyond them.  Queue the
+     * rows above and below each run added to be searched in turn.  If `dir` is not 0, columns
+     * [x0..x1) of row `y - dir` are a run already in the region, so only the parts of each new
+     * run reaching beyond them are searched in that row.
+     */
+    private void fillSpan(int y, int x0, int x1, int dir) {
+        pixels.readRgb(x0, y, x1 - x0, rgb, 0);
+        int x = x0;
+        while (x < x1) {
+            if (mask.get(x, y) || !matches(rgb[x - x0])) {
+                x++;
+                continue;
+            }
+            // A pixel of the region that is not yet in the mask; pixels beside it in the mask
+            // would belong to the same run, so none are, and the run may be extended freely.
+            int start = x;
+            while (start > 0 && matchesAt(start - 1, y)) {
+                start--;
+            }
+            int end = x + 1;
+            while (end < x1 && matches(rgb[end - x0])) {
+                end++;
+            }
+            if (end == x1) {
+                while (end < width && matchesAt(end, y)) {
+                    end++;
+                }
+            }
+            mask.setRange(y, start, end);
+            if (dir == 0) {
+                push(y - 1, start, end, -1);
+                push(y + 1, start, end, 1);
+            } else {
+                push(y + dir, start, end, dir);
+                push(y - dir, start, x0, -dir);
+                push(y - dir, x1, end, -dir);
+            }
+            x = end;
+        }
+    }
+
+    /**
+     * Queue columns [x0..x1) of row `y`, reached by moving in direction `dir` from a run of the
+     * region, to be searched, unless the span is empty or lies outside of the image.
+     */
+    private void push(int y, int x0, int x1, int dir) {
+        if (y < 0 || y >= height || x0 >= x1) {
+            return;
+        }
+        if (spanCount == spans.length) {
+            spans = Arrays.copyOf(spans, spans.length * 2);
+        }
+        spans[spanCount] = y;
+        spans[spanCount + 1] = x0;
+        spans[spanCount + 2] = x1;
+        spans[spanCount + 3] = dir;
+        spanCount += 4;
+    }
+
+    /**
+     * Return whether pixel (`x`, `y`) is within our tolerance of the reference color.  Does not
+     * disturb the span held in `rgb`.
+     */
+    private boolean matchesAt(int x, int y) {
+        pixels.readRgb(x, y, 1, one, 0);
+        return matches(one[0]);
+    }
+
+    /**
+     * Return whether `rgb` is within our tolerance of the reference color.
+     */
+    private boolean matches(int rgb) {
+        int dr = Math.abs(((rgb >>> 16) & 0xFF) - ((refColor >>> 16) & 0xFF));
+        int dg = Math.abs(((rgb >>> 8) & 0xFF) - ((refColor >>> 8) & 0xFF));
+        int db = Math.abs((rgb & 0xFF) - (refColor & 0xFF));
+        return Math.max(dr, Math.max(dg, db)) <= tolerance;
+    }
+}
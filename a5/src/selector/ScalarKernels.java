@@ -0,0 +1,35 @@
+package selector;
+
+/**
+ * Portable implementations of `PixelKernels` that process one pixel at a time.
+ */
+final class ScalarKernels extends PixelKernels {
+
+    static final ScalarKernels INSTANCE = new ScalarKernels();
+
+    private ScalarKernels() {
+    }
+
+    @Override
+    String name() {
+        return "scalar";
+    }
+
+    @Override
+    float sobelInterior(int[] luma, int up, int mid, int down, int width, short[] gx, short[] gy,
+            float[] magnitude) {
+        float max = 0;
+        for (int x = 1; x < width - 1; x++) {
+            int h = (luma[up + x + 1] + 2 * luma[mid + x + 1] + luma[down + x + 1])
+                    - (luma[up + x - 1] + 2 * luma[mid + x - 1] + luma[down + x - 1]);
+            int v = (luma[down + x - 1] + 2 * luma[down + x] + luma[down + x + 1])
+                    - (luma[up + x - 1] + 2 * luma[up + x] + luma[up + x + 1]);
+            gx[mid + x] = (short) h;
+            gy[mid + x] = (short) v;
+            float m = (float) Math.sqrt(h * h + v * v);
+            magnitude[mid + x] = m;
+            max = Math.max(max, m);
+        }
+        return max;
+    }
+}
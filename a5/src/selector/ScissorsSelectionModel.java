@@ -0,0 +1,534 @@
+package selector;
+
+import java.awt.Point;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Models an "intelligent scissors" selection tool, which connects each added point to the previous
+ * one along the path of least cost through the image, where stepping along strong edges is cheap
+ * (see `ShortestPathTree`).  Paths are found with trees of shortest paths from fixed anchors that
+ * are kept between queries, so a live wire or a dragged point only costs the pixels newly within
+ * reach.
+ * <p>
+ * While a control point is dragged, provisional paths for both of its segments are computed on a
+ * background thread from trees seeded at the two fixed neighboring control points, and the
+ * selection is only changed when the point is released.  Without an image, paths are straight.
+ * <p>
+ * Between events, trees are grown speculatively in idle time (see `PathSpeculator`):
+ * while selecting, the tree from our last point is grown towards where the pointer has recently
+ * been hovering; once the selection is finished, hovering near a control point grows the trees
+ * from both of its neighbors, ready for it to be dragged.
+ * <p>
+ * While selecting, "path cooling" commits the part of the live wire that has stopped changing:
+ * once a prefix of the live wire has stayed the same for several pointer moves, a point at its
+ * end is added automatically, so searches restart from nearby and stay small.
+ */
+public class ScissorsSelectionModel extends SelectionModel {
+
+    /**
+     * Per-pixel path weights for `weightsSource`, or null if they have not been computed since the
+     * image was set.
+     */
+    private byte[] weights;
+
+    /**
+     * The gradient that `weights` was computed from.
+     */
+    private GradientMap weightsSource;
+
+    /**
+     * Default number of consecutive pointer moves for which a prefix of the live wire must stay
+     * unchanged before it is committed.
+     */
+    public static final int DEFAULT_COOLING_MOVES = 6;
+
+    /**
+     * Fewest points (beyond the anchor) that a prefix of the live wire must have to be committed
+     * by path cooling, so that cooling does not litter the path with tiny segments.
+     */
+    private static final int MIN_COOLED_POINTS = 16;
+
+    /**
+     * Largest number of trees kept for reuse.  Each takes about 5 bytes per pixel.
+     */
+    private static final int MAX_TREES = 3;
+
+    /**
+     * Number of recent pointer positions whose mean is taken as the hint for speculation.
+     */
+    private static final int CURSOR_HISTORY = 8;
+
+    /**
+     * Distance (in pixels) within which hovering near a control point is taken as a sign that it
+     * is about to be dragged.
+     */
+    private static final int HOVER_RADIUS = 8;
+
+    /**
+     * Trees of paths from recently used seeds (clamped to the image), least recently used first.
+     */
+    private final Map<Point, ShortestPathTree> trees =
+            new LinkedHashMap<>(MAX_TREES + 1, 1f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Point, ShortestPathTree> eldest) {
+                    return size() > MAX_TREES;
+                }
+            };
+
+    /**
+     * Grows trees in idle time.
+     */
+    private final PathSpeculator speculator = new PathSpeculator(tasks);
+
+    /**
+     * Recent pointer positions (a ring buffer; the first `cursorCount` entries are valid).
+     */
+    private final int[] cursorXs = new int[CURSOR_HISTORY];
+    private final int[] cursorYs = new int[CURSOR_HISTORY];
+    private int cursorCount, cursorNext;
+
+    /**
+     * The control point whose neighbors' trees were last grown speculatively, or -1.
+     */
+    private int hoverIndex = -1;
+
+    /**
+     * Number of consecutive pointer moves for which a prefix of the live wire must stay unchanged
+     * before it is committed, or 0 if path cooling is disabled.
+     */
+    private int coolingMoves = DEFAULT_COOLING_MOVES;
+
+    /**
+     * The live wire at the previous pointer move while selecting, the anchor it started from, and
+     * for each of its points, the number of consecutive moves for which the wire up to that point
+     * has stayed the same.  Null if no wire has been tracked from the current anchor.
+     */
+    private PolyLine coolingWire;
+    private Point coolingAnchor;
+    private int[] coolingAges;
+
+    /**
+     * Provisional paths for the control point being dragged, or null if no point is being
+     * dragged.
+     */
+    private MovePreview preview;
+
+    public ScissorsSelectionModel(boolean notifyOnEdt) {
+        super(notifyOnEdt);
+    }
+
+    public ScissorsSelectionModel(SelectionModel copy) {
+        super(copy);
+        if (copy instanceof ScissorsSelectionModel scissors) {
+            coolingMoves = scissors.coolingMoves;
+        }
+    }
+
+    /**
+     * Return the number of pointer moves for which a prefix of the live wire must stay unchanged
+     * before it is committed, or 0 if path cooling is disabled.
+     */
+    public int coolingMoves() {
+        return coolingMoves;
+    }
+
+    /**
+     * Commit prefixes of the live wire that stay unchanged for `moves` consecutive pointer moves,
+     * or disable path cooling if `moves` is 0.  Throws an IllegalArgumentException if `moves` is
+     * negative.
+     */
+    public void setCoolingMoves(int moves) {
+        if (moves < 0) {
+            throw new IllegalArgumentException("Invalid cooling moves " + moves);
+        }
+        coolingMoves = moves;
+        coolingWire = null;
+    }
+
+    /**
+     * As in `SelectionModel`, but `p` is first clamped to our image, so that paths can end there.
+     */
+    @Override
+    public void addPoint(Point p) {
+        super.addPoint(clampToImage(p));
+    }
+
+    /**
+     * Return the path of least cost from our last point to `p`.
+     */
+    @Override
+    public PolyLine liveWire(Point p) {
+        PolyLine wire = shortestPath(lastPoint(), p);
+        speculateFromLastPoint();
+        return wire;
+    }
+
+    /**
+     * Append the path of least cost from our last point to `p` to the selection.
+     */
+    @Override
+    protected void appendToSelection(Point p) {
+        selection.add(shortestPath(lastPoint(), p));
+        if (!p.equals(start)) {
+            speculateFromLastPoint();
+        }
+    }
+
+    /**
+     * Return the path of least cost from `before`'s start to `after`'s end, so that removing a
+     * control point re-traces the boundary between its neighbors.
+     */
+    @Override
+    protected PolyLine mergeSegments(PolyLine before, PolyLine after) {
+        return shortestPath(before.start(), after.end());
+    }
+
+    /**
+     * Move the starting point of the segment of our selection with index `index` to `newPos`,
+     * replacing that segment and the previous one (wrapping around) with the paths of least cost
+     * through `newPos` from and to their fixed ends.  If the point was being dragged (or hovered
+     * over), the trees already grown for it are reused, so little work remains.  Notify listeners
+     * that the "selection" property has changed.
+     */
+    @Override
+    public void movePoint(int index, Point newPos) {
+        if (state() != SelectionState.SELECTED) {
+            throw new IllegalStateException("May not move point in state " + state());
+        }
+        if (index < 0 || index >= selection.size()) {
+            throw new IllegalArgumentException("Invalid segment index " + index);
+        }
+        newPos = clampToImage(newPos);
+        int prev = (index == 0) ? selection.size() - 1 : index - 1;
+        Point from = selection.get(prev).start();
+        Point to = selection.get(index).end();
+
+        PolyLine before;
+        PolyLine after;
+        MovePreview dragged = preview;
+        endPreview();
+        speculator.cancel();
+        hoverIndex = -1;
+        if (weights() == null) {
+            before = new PolyLine(from, newPos);
+            after = new PolyLine(newPos, to);
+        } else if (dragged != null && dragged.index == index) {
+            before = dragged.fromPrev.pathTo(newPos);
+            after = dragged.fromNext.pathFrom(newPos);
+        } else {
+            before = shortestPath(from, newPos);
+            after = tree(to).pathFrom(newPos);
+        }
+        selection.set(prev, commit(before));
+        selection.set(index, commit(after));
+        if (index == 0) {
+            start = new Point(newPos);
+        }
+        propSupport.firePropertyChange("selection", null, selection());
+        recordEdit(EditJournal.Op.MOVE_POINT, index, newPos);
+    }
+
+    /**
+     * Start (or retarget) the background computation of provisional paths through `newPos` for
+     * the control point with index `index`.  Trees of paths from its two neighbors are created
+     * when a new point starts being dragged and are grown further for each new position.
+     * Listeners are notified that the "preview" property has changed whenever newer paths are
+     * ready.
+     */
+    @Override
+    public void previewMove(int index, Point newPos) {
+        if (state() != SelectionState.SELECTED || weights() == null) {
+            return;
+        }
+        speculator.cancel();
+        if (preview == null || preview.index != index) {
+            endPreview();
+            int prev = (index == 0) ? selection.size() - 1 : index - 1;
+            preview = new MovePreview(index, tree(selection.get(prev).start()),
+                    tree(selection.get(index).end()));
+        }
+        preview.request(clampToImage(newPos));
+    }
+
+    /**
+     * Return the most recent provisional paths computed for dragging the control point with index
+     * `index`, or straight lines through `newPos` if none are ready yet.
+     */
+    @Override
+    public PolyLine[] movePreview(int index, Point newPos) {
+        MovePreview current = preview;
+        PolyLine[] paths = (current != null && current.index == index) ? current.paths : null;
+        return (paths != null) ? paths : super.movePreview(index, newPos);
+    }
+
+    @Override
+    public void endPreview() {
+        if (preview != null) {
+            preview.cancelled = true;
+            preview = null;
+        }
+    }
+
+    /**
+     * Record `p` as a hint of where the user is aiming, and speculatively grow the trees that a
+     * click or drag near it would need: the tree from our last point while selecting, or the trees
+     * from the neighbors of a control point hovered over in a finished selection.
+     */
+    @Override
+    public void trackCursor(Point p) {
+        if (weights() == null) {
+            return;
+        }
+        cursorXs[cursorNext] = p.x;
+        cursorYs[cursorNext] = p.y;
+        cursorNext = (cursorNext + 1) % CURSOR_HISTORY;
+        cursorCount = Math.min(cursorCount + 1, CURSOR_HISTORY);
+        if (state() == SelectionState.SELECTING) {
+            if (coolingMoves > 0) {
+                cool(p);
+            }
+            speculateFromLastPoint();
+        } else if (state() == SelectionState.SELECTED && preview == null) {
+            int index = hoveredControlPoint(p);
+            if (index >= 0 && index != hoverIndex) {
+                hoverIndex = index;
+                int prev = (index == 0) ? selection.size() - 1 : index - 1;
+                speculator.speculate(List.of(tree(selection.get(prev).start()),
+                        tree(selection.get(index).end())), selection.get(index).start());
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        endPreview();
+        speculator.cancel();
+        trees.clear();
+        hoverIndex = -1;
+        cursorCount = 0;
+        coolingWire = null;
+        super.reset();
+    }
+
+    @Override
+    public void cancelBackgroundWork() {
+        endPreview();
+        speculator.cancel();
+        hoverIndex = -1;
+        super.cancelBackgroundWork();
+    }
+
+    /**
+     * Update the ages of the points of the live wire to `p`, and if a long enough prefix of it
+     * has stayed unchanged for `coolingMoves` moves, add the last point of that prefix (not the
+     * wire's end) to the selection.  Requires our state is SELECTING and we have an image.
+     */
+    private void cool(Point p) {
+        Point anchor = lastPoint();
+        PolyLine wire = shortestPath(anchor, p);
+        int[][] points = wire.coordinates();
+        int[] xs = points[0];
+        int[] ys = points[1];
+        int[] ages = new int[xs.length];
+        if (coolingWire != null && anchor.equals(coolingAnchor)) {
+            // Points in the prefix shared with the previous wire have survived one more move
+            int[][] oldPoints = coolingWire.coordinates();
+            int[] oldXs = oldPoints[0];
+            int[] oldYs = oldPoints[1];
+            int n = Math.min(xs.length, oldXs.length);
+            for (int i = 0; i < n && xs[i] == oldXs[i] && ys[i] == oldYs[i]; i++) {
+                ages[i] = coolingAges[i] + 1;
+            }
+        }
+        coolingWire = wire;
+        coolingAnchor = anchor;
+        coolingAges = ages;
+
+        // Ages never increase along the wire, so the cooled prefix ends before the first young
+        //  point
+        int last = 0;
+        while (last + 1 < xs.length - 1 && ages[last + 1] >= coolingMoves) {
+            last++;
+        }
+        if (last >= MIN_COOLED_POINTS) {
+            coolingWire = null;
+            addPoint(new Point(xs[last], ys[last]));
+        }
+    }
+
+    /**
+     * Return the tree of paths from `seed` (clamped to our image) if one is kept, or null.
+     */
+    ShortestPathTree cachedTree(Point seed) {
+        return trees.get(clampToImage(seed));
+    }
+
+    /**
+     * Grow the tree from our last point towards the mean of the recent pointer positions in the
+     * background.  Requires we have an image and our state is SELECTING.
+     */
+    private void speculateFromLastPoint() {
+        if (cursorCount == 0) {
+            return;
+        }
+        long sumX = 0;
+        long sumY = 0;
+        for (int i = 0; i < cursorCount; i++) {
+            sumX += cursorXs[i];
+            sumY += cursorYs[i];
+        }
+        Point hint = new Point((int) (sumX / cursorCount), (int) (sumY / cursorCount));
+        speculator.speculate(List.of(tree(lastPoint())), hint);
+    }
+
+    /**
+     * Return the index of the control point within `HOVER_RADIUS` of `p`, or -1 if there is none.
+     */
+    private int hoveredControlPoint(Point p) {
+        EdgeHit hit = closestEdge(p, HOVER_RADIUS);
+        if (hit == null) {
+            return -1;
+        }
+        PolyLine segment = selection.get(hit.segment());
+        if (segment.start().distanceSq(p) <= HOVER_RADIUS * HOVER_RADIUS) {
+            return hit.segment();
+        }
+        if (segment.end().distanceSq(p) <= HOVER_RADIUS * HOVER_RADIUS) {
+            return (hit.segment() + 1) % selection.size();
+        }
+        return -1;
+    }
+
+    /**
+     * Return the path of least cost from `from` to `to` (clamped to the image), or a straight line
+     * if there is no image.  Reuses the tree from our previous anchor if `from` is the same.
+     */
+    private PolyLine shortestPath(Point from, Point to) {
+        if (weights() == null) {
+            return new PolyLine(from, to);
+        }
+        // Don't wait for speculation to finish growing the tree
+        speculator.cancel();
+        return tree(from).pathTo(to);
+    }
+
+    /**
+     * Return the tree of paths from `seed` over our image, reusing a kept tree (which may already
+     * have been grown) if possible.  Requires `weights()` is non-null.
+     */
+    private ShortestPathTree tree(Point seed) {
+        return trees.computeIfAbsent(clampToImage(seed), s ->
+                new ShortestPathTree(img.getWidth(), img.getHeight(), weights, s));
+    }
+
+    /**
+     * Return the per-pixel path weights for our image, computing them if the image has changed,
+     * or null if there is no image or its gradient is not ready yet (see `gradient()`).  Until it
+     * is, points are joined by straight lines, as without an image.
+     */
+    private byte[] weights() {
+        GradientMap gradient = gradient();
+        if (gradient == null) {
+            return null;
+        }
+        if (weightsSource != gradient) {
+            weights = ShortestPathTree.weights(gradient);
+            weightsSource = gradient;
+            speculator.cancel();
+            trees.clear();
+        }
+        return weights;
+    }
+
+    /**
+     * Return `p` with its coordinates clamped to our image (unchanged if there is no image).
+     */
+    private Point clampToImage(Point p) {
+        if (img == null) {
+            return new Point(p);
+        }
+        return new Point(Math.clamp(p.x, 0, img.getWidth() - 1),
+                Math.clamp(p.y, 0, img.getHeight() - 1));
+    }
+
+    /**
+     * The background computation of provisional paths for a dragged control point.  At most one
+     * task runs at a time; positions requested while it runs are coalesced, and it keeps going
+     * until it has caught up with the latest one.
+     */
+    private class MovePreview {
+        final int index;
+
+        /**
+         * Trees of paths from the start of the previous segment and from the end of the dragged
+         * point's segment, which stay fixed during the drag.
+         */
+        final ShortestPathTree fromPrev, fromNext;
+
+        /**
+         * The latest paths computed (through the previous and to the next fixed point), or null.
+         */
+        volatile PolyLine[] paths;
+
+        /**
+         * Set when this preview is discarded, to stop its task.
+         */
+        volatile boolean cancelled;
+
+        /**
+         * The latest requested position, and whether a task is running.  Guarded by `this`.
+         */
+        private Point target;
+        private boolean running;
+
+        MovePreview(int index, ShortestPathTree fromPrev, ShortestPathTree fromNext) {
+            this.index = index;
+            this.fromPrev = fromPrev;
+            this.fromNext = fromNext;
+        }
+
+        /**
+         * Compute paths through `p` as soon as possible, superseding earlier requests.
+         */
+        void request(Point p) {
+            synchronized (this) {
+                target = p;
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            tasks.submitCpu(() -> {
+                run();
+                return null;
+            });
+        }
+
+        private void run() {
+            BooleanSupplier stopped = () -> cancelled || Thread.currentThread().isInterrupted();
+            while (true) {
+                Point p;
+                synchronized (this) {
+                    p = target;
+                }
+                if (!fromPrev.expandTo(p, stopped) || !fromNext.expandTo(p, stopped)) {
+                    break;
+                }
+                paths = new PolyLine[]{fromPrev.pathTo(p), fromNext.pathFrom(p)};
+                propSupport.firePropertyChange("preview", null, paths);
+                synchronized (this) {
+                    if (target == p || cancelled) {
+                        running = false;
+                        return;
+                    }
+                }
+            }
+            synchronized (this) {
+                running = false;
+            }
+        }
+    }
+}
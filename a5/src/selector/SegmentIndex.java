@@ -0,0 +1,341 @@
+package selector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An R-tree over the bounding boxes of the segments of a selection path, for finding the segment
+ * closest to a point without measuring the distance to every segment.  The tree is first packed
+ * with the Sort-Tile-Recursive algorithm (boxes are sorted into vertical slices by their centers'
+ * x coordinates, then into nodes within each slice by their y coordinates), so nearby segments
+ * share nodes.  Segments may then be inserted and removed in logarithmic time: insertions descend
+ * to the leaf whose box grows least and split nodes that overflow, while removals leave their
+ * ancestors' boxes loose (still enclosing, but no longer tight).  Owners should repack the tree
+ * once many edits have accumulated.
+ *
+ * @param <T> the type of the objects that own each indexed segment
+ */
+final class SegmentIndex<T> {
+
+    /**
+     * Largest number of children of each node.
+     */
+    private static final int FANOUT = 16;
+
+    /**
+     * An axis-aligned rectangle in the tree, enclosing everything below it.
+     */
+    private abstract static class Box {
+        int minX, minY, maxX, maxY;
+
+        /**
+         * The node containing this box, or null if this is the root.
+         */
+        Node parent;
+
+        /**
+         * Return the squared distance from (`x`, `y`) to this box (0 if the point is inside it).
+         */
+        double distanceSq(double x, double y) {
+            double dx = Math.max(Math.max(minX - x, x - maxX), 0);
+            double dy = Math.max(Math.max(minY - y, y - maxY), 0);
+            return dx * dx + dy * dy;
+        }
+
+        /**
+         * Return the area of this box, grown if necessary to enclose `other`.
+         */
+        long areaWith(Box other) {
+            long w = (long) Math.max(maxX, other.maxX) - Math.min(minX, other.minX);
+            long h = (long) Math.max(maxY, other.maxY) - Math.min(minY, other.minY);
+            return w * h;
+        }
+
+        long area() {
+            return (long) (maxX - minX) * (maxY - minY);
+        }
+
+        /**
+         * Grow this box to enclose `other`.
+         */
+        void include(Box other) {
+            minX = Math.min(minX, other.minX);
+            minY = Math.min(minY, other.minY);
+            maxX = Math.max(maxX, other.maxX);
+            maxY = Math.max(maxY, other.maxY);
+        }
+
+        /**
+         * Return twice the x or y coordinate (depending on `axis`) of this box's center.
+         */
+        int center2(int axis) {
+            return (axis == 0) ? minX + maxX : minY + maxY;
+        }
+    }
+
+    /**
+     * An indexed segment and its owner.
+     */
+    static final class Entry<T> extends Box {
+        final PolyLine segment;
+        final T owner;
+
+        Entry(PolyLine segment, T owner) {
+            this.segment = segment;
+            this.owner = owner;
+            int[][] points = segment.coordinates();
+            int[] xs = points[0];
+            int[] ys = points[1];
+            minX = maxX = xs[0];
+            minY = maxY = ys[0];
+            for (int i = 1; i < xs.length; i++) {
+                minX = Math.min(minX, xs[i]);
+                maxX = Math.max(maxX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+        }
+    }
+
+    /**
+     * A node of the tree.  The children of a leaf node are entries; those of other nodes are
+     * nodes.  The node's box encloses its children's boxes.
+     */
+    private static final class Node extends Box {
+        final boolean leaf;
+        Box[] children = new Box[FANOUT + 1];
+        int count;
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        void add(Box child) {
+            if (count == 0) {
+                minX = child.minX;
+                minY = child.minY;
+                maxX = child.maxX;
+                maxY = child.maxY;
+            } else {
+                include(child);
+            }
+            children[count++] = child;
+            child.parent = this;
+        }
+    }
+
+    /**
+     * The root of the tree.
+     */
+    private Node root;
+
+    /**
+     * Number of entries in the tree.
+     */
+    private int size;
+
+    /**
+     * Index `entries`, packing them with Sort-Tile-Recursive.
+     */
+    SegmentIndex(List<Entry<T>> entries) {
+        size = entries.size();
+        List<Box> level = new ArrayList<>(entries);
+        boolean leaves = true;
+        do {
+            level = pack(level, leaves);
+            leaves = false;
+        } while (level.size() > 1);
+        root = level.isEmpty() ? new Node(true) : (Node) level.getFirst();
+        root.parent = null;
+    }
+
+    /**
+     * Return the number of entries in this index.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return nodes enclosing the boxes of `level`, which are grouped in Sort-Tile-Recursive order.
+     * The nodes are leaves if `leaves` is true.
+     */
+    private static List<Box> pack(List<Box> level, boolean leaves) {
+        int n = level.size();
+        int nodes = (n + FANOUT - 1) / FANOUT;
+        int sliceSize = (int) Math.ceil(Math.sqrt(nodes)) * FANOUT;
+        Box[] boxes = level.toArray(new Box[0]);
+        Arrays.sort(boxes, Comparator.comparingInt(b -> b.center2(0)));
+        for (int s = 0; s < n; s += sliceSize) {
+            Arrays.sort(boxes, s, Math.min(s + sliceSize, n),
+                    Comparator.comparingInt(b -> b.center2(1)));
+        }
+        List<Box> parents = new ArrayList<>(nodes);
+        for (int first = 0; first < n; first += FANOUT) {
+            Node node = new Node(leaves);
+            for (int c = first; c < Math.min(first + FANOUT, n); c++) {
+                node.add(boxes[c]);
+            }
+            parents.add(node);
+        }
+        return parents;
+    }
+
+    /**
+     * Add `entry` to this index.
+     */
+    void insert(Entry<T> entry) {
+        if (root.count == 0) {
+            root = new Node(true);
+        }
+        Node node = root;
+        while (!node.leaf) {
+            // Descend into the child whose box grows the least (preferring smaller boxes)
+            Box best = null;
+            long bestGrowth = Long.MAX_VALUE;
+            for (int c = 0; c < node.count; c++) {
+                Box child = node.children[c];
+                long growth = child.areaWith(entry) - child.area();
+                if (growth < bestGrowth || (growth == bestGrowth && child.area() < best.area())) {
+                    best = child;
+                    bestGrowth = growth;
+                }
+            }
+            node = (Node) best;
+        }
+        node.add(entry);
+        for (Node n = node.parent; n != null; n = n.parent) {
+            n.include(entry);
+        }
+        size++;
+
+        // Split overflowing nodes from the leaf upwards
+        while (node.count > FANOUT) {
+            Node sibling = split(node);
+            Node parent = node.parent;
+            if (parent == null) {
+                root = new Node(false);
+                root.add(node);
+                root.add(sibling);
+                break;
+            }
+            parent.add(sibling);
+            node = parent;
+        }
+    }
+
+    /**
+     * Move the half of `node`'s children with the larger centers along its longer axis to a new
+     * node, recompute `node`'s box, and return the new node.
+     */
+    private Node split(Node node) {
+        int axis = (node.maxX - node.minX >= node.maxY - node.minY) ? 0 : 1;
+        Box[] children = Arrays.copyOf(node.children, node.count);
+        Arrays.sort(children, Comparator.comparingInt(b -> b.center2(axis)));
+        int half = children.length / 2;
+        node.count = 0;
+        Arrays.fill(node.children, null);
+        Node sibling = new Node(node.leaf);
+        for (int c = 0; c < children.length; c++) {
+            (c < half ? node : sibling).add(children[c]);
+        }
+        return sibling;
+    }
+
+    /**
+     * Remove `entry`, which must be in this index.  Boxes of its ancestors are not shrunk.
+     */
+    void remove(Entry<T> entry) {
+        Box child = entry;
+        Node node = entry.parent;
+        while (node != null) {
+            for (int c = 0; c < node.count; c++) {
+                if (node.children[c] == child) {
+                    node.children[c] = node.children[--node.count];
+                    node.children[node.count] = null;
+                    break;
+                }
+            }
+            // Drop nodes left empty (but keep an empty root)
+            if (node.count > 0 || node == root) {
+                break;
+            }
+            child = node;
+            node = node.parent;
+        }
+        entry.parent = null;
+        size--;
+    }
+
+    /**
+     * Return the owner of the segment closest to (`x`, `y`), as long as its squared distance is no
+     * greater than `maxDistanceSq`; otherwise, return null.  If several segments are tied, the
+     * owner that is least according to `order` is returned.
+     */
+    T closest(double x, double y, double maxDistanceSq, Comparator<? super T> order) {
+        Search search = new Search(x, y, maxDistanceSq, order);
+        search.visit(root);
+        return search.best;
+    }
+
+    /**
+     * The state of a branch-and-bound search for the segment closest to a point.
+     */
+    private class Search {
+        final double x, y;
+        final Comparator<? super T> order;
+        double bestDist;
+        T best;
+
+        Search(double x, double y, double maxDistanceSq, Comparator<? super T> order) {
+            this.x = x;
+            this.y = y;
+            this.order = order;
+            bestDist = maxDistanceSq;
+        }
+
+        /**
+         * Search below `box`, skipping it if it cannot contain a segment closer than the best so
+         * far.
+         */
+        @SuppressWarnings("unchecked")
+        void visit(Box box) {
+            if (box.distanceSq(x, y) > bestDist) {
+                return;
+            }
+            if (box instanceof Entry<?> e) {
+                Entry<T> entry = (Entry<T>) e;
+                double dist = entry.segment.distanceSq(x, y);
+                if (dist < bestDist || (dist == bestDist
+                        && (best == null || order.compare(entry.owner, best) < 0))) {
+                    bestDist = dist;
+                    best = entry.owner;
+                }
+                return;
+            }
+
+            // Visit children nearest-first so that distant ones are more likely to be pruned
+            Node node = (Node) box;
+            int count = node.count;
+            Box[] sorted = new Box[count];
+            double[] dists = new double[count];
+            for (int c = 0; c < count; c++) {
+                Box child = node.children[c];
+                double dist = child.distanceSq(x, y);
+                int k = c;
+                while (k > 0 && dists[k - 1] > dist) {
+                    dists[k] = dists[k - 1];
+                    sorted[k] = sorted[k - 1];
+                    k--;
+                }
+                dists[k] = dist;
+                sorted[k] = child;
+            }
+            for (int c = 0; c < count && dists[c] <= bestDist; c++) {
+                visit(sorted[c]);
+            }
+        }
+    }
+}
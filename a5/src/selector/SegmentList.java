@@ -0,0 +1,582 @@
+package selector;
+
+import java.awt.Polygon;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The segments of a selection path, stored in a balanced tree (a treap ordered by position in the
+ * path) so that segments can be read, replaced, inserted, and removed anywhere in O(log n) time.
+ * <p>
+ * The list also maintains structures derived from the path:
+ * <ul>
+ * <li>A flattened copy of all of the path's points, which lets the polygon enclosed by the path be
+ * obtained in constant time between edits.  Appending or removing the last segment, and replacing
+ * a segment with one of the same size (as moving a control point usually does), patch the copy in
+ * place; other edits mark it stale, and it is rebuilt the next time the polygon is requested.</li>
+ * <li>A spatial index of the segments, which once built is updated in O(log n) time per edit and
+ * repacked after about n/2 edits.</li>
+ * <li>An index of the pixels inside the polygon, rebuilt the next time it is requested after any
+ * edit.</li>
+ * </ul>
+ * The flattened copy assumes the path is continuous (each segment starts where the previous one
+ * ends), as required of a `SelectionModel`'s selection: it holds the start of the first segment
+ * followed by every point but the start of each segment in turn.  Briefly breaking continuity
+ * while replacing adjacent segments one at a time is fine.
+ */
+public final class SegmentList extends AbstractList<PolyLine> {
+
+    /**
+     * Number of edits, beyond half of the list's size, after which the spatial index is repacked.
+     * Keeps small lists from being repacked after every edit.
+     */
+    private static final int REPACK_SLACK = 16;
+
+    /**
+     * A node of the treap, holding one segment.  Nodes are ordered in-order by their segments'
+     * positions in the path, and heap-ordered by `priority`, which keeps the tree's expected
+     * depth logarithmic.
+     */
+    private static final class Node {
+        PolyLine segment;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        Node left, right, parent;
+
+        /**
+         * Number of segments in this subtree.
+         */
+        int count = 1;
+
+        /**
+         * Total number of steps (points beyond the first) of the segments in this subtree.
+         */
+        long steps;
+
+        /**
+         * This segment's entry in the spatial index, if the index has been built.
+         */
+        SegmentIndex.Entry<Node> entry;
+
+        Node(PolyLine segment) {
+            this.segment = segment;
+            steps = segment.size() - 1;
+        }
+
+        /**
+         * Recompute `count` and `steps` from this node's segment and children.
+         */
+        void update() {
+            count = 1 + count(left) + count(right);
+            steps = segment.size() - 1 + steps(left) + steps(right);
+        }
+    }
+
+    /**
+     * The root of the treap, or null if the list is empty.
+     */
+    private Node root;
+
+    /**
+     * Flattened coordinates of the path's points; the first `points` elements are used.  Only
+     * meaningful while `bufferValid` is true.
+     */
+    private int[] xs, ys;
+    private int points;
+    private boolean bufferValid;
+
+    /**
+     * Polygon sharing `xs` and `ys`, or null if it has not been requested since the last edit.
+     */
+    private Polygon polygon;
+
+    /**
+     * Index of the pixels inside `polygon`, or null if it has not been requested since the last
+     * edit.
+     */
+    private SpanIndex spans;
+
+    /**
+     * Spatial index of the segments, whose entries are owned by our nodes, or null if no query
+     * has needed it yet.
+     */
+    private SegmentIndex<Node> segmentIndex;
+
+    /**
+     * Number of edits applied to `segmentIndex` since it was packed.
+     */
+    private int indexEdits;
+
+    /**
+     * Create an empty segment list.
+     */
+    public SegmentList() {
+        xs = new int[64];
+        ys = new int[64];
+        bufferValid = true;
+    }
+
+    /**
+     * Create a segment list containing the segments of `copy`, in order.
+     */
+    public SegmentList(Collection<PolyLine> copy) {
+        this();
+        addAll(copy);
+    }
+
+    @Override
+    public PolyLine get(int index) {
+        checkIndex(index);
+        return nodeAt(index).segment;
+    }
+
+    @Override
+    public int size() {
+        return count(root);
+    }
+
+    @Override
+    public PolyLine set(int index, PolyLine segment) {
+        checkIndex(index);
+        Node node = nodeAt(index);
+        PolyLine old = node.segment;
+        node.segment = segment;
+        for (Node n = node; n != null; n = n.parent) {
+            n.update();
+        }
+        if (bufferValid && old.size() == segment.size()) {
+            write(segment, index == 0, (index == 0) ? 0 : (int) stepsBefore(node) + 1);
+        } else {
+            bufferValid = false;
+        }
+        reindex(node, true);
+        edited();
+        return old;
+    }
+
+    @Override
+    public void add(int index, PolyLine segment) {
+        int n = size();
+        if (index < 0 || index > n) {
+            throw new IndexOutOfBoundsException("Invalid segment index " + index);
+        }
+        Node node = new Node(segment);
+        Node[] parts = new Node[2];
+        split(root, index, parts);
+        setRoot(merge(merge(parts[0], node), parts[1]));
+        if (bufferValid && index == n) {
+            // Only a new first segment stores its start; later ones share the previous end
+            int added = (n == 0) ? segment.size() : segment.size() - 1;
+            ensureCapacity(points + added);
+            write(segment, n == 0, (n == 0) ? 0 : points);
+            points += added;
+        } else {
+            bufferValid = false;
+        }
+        if (segmentIndex != null) {
+            node.entry = new SegmentIndex.Entry<>(segment, node);
+            segmentIndex.insert(node.entry);
+            indexEdits++;
+        }
+        modCount++;
+        edited();
+    }
+
+    @Override
+    public PolyLine remove(int index) {
+        int n = size();
+        checkIndex(index);
+        Node[] parts = new Node[2];
+        split(root, index, parts);
+        Node before = parts[0];
+        split(parts[1], 1, parts);
+        Node node = parts[0];
+        setRoot(merge(before, parts[1]));
+        node.parent = null;
+        if (bufferValid && index == n - 1) {
+            // The removed segment's start is the new end of the path (unless it was the only one)
+            points = (n == 1) ? 0 : points - (node.segment.size() - 1);
+        } else {
+            bufferValid = false;
+        }
+        reindex(node, false);
+        modCount++;
+        edited();
+        return node.segment;
+    }
+
+    /**
+     * Append the segments of `segments`, in order.  If this list is empty, the tree is built
+     * directly from them in linear time (rather than by inserting them one at a time), and the
+     * derived structures are left to be rebuilt on demand.
+     */
+    @Override
+    public boolean addAll(Collection<? extends PolyLine> segments) {
+        if (root != null || segments.isEmpty()) {
+            return super.addAll(segments);
+        }
+        // Build the treap as a Cartesian tree on the nodes' priorities, keeping its right spine
+        // on a stack.  Every node popped off the spine is complete, so its totals can be updated
+        // (from its own, which it still holds, rather than by re-reading its segment)
+        Node[] spine = new Node[64];
+        int depth = 0;
+        for (PolyLine segment : segments) {
+            Node node = new Node(segment);
+            Node last = null;
+            while (depth > 0 && spine[depth - 1].priority < node.priority) {
+                last = spine[--depth];
+                addChildTotals(last);
+            }
+            node.left = last;
+            if (last != null) {
+                last.parent = node;
+            }
+            if (depth > 0) {
+                spine[depth - 1].right = node;
+                node.parent = spine[depth - 1];
+            }
+            if (depth == spine.length) {
+                spine = Arrays.copyOf(spine, depth * 2);
+            }
+            spine[depth++] = node;
+        }
+        while (depth > 0) {
+            addChildTotals(spine[--depth]);
+        }
+        setRoot(spine[0]);
+        bufferValid = false;
+        segmentIndex = null;
+        modCount++;
+        edited();
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        points = 0;
+        bufferValid = true;
+        segmentIndex = null;
+        modCount++;
+        edited();
+    }
+
+    /**
+     * Return an iterator over the segments in order, taking constant amortized time per step
+     * (rather than the O(log n) of `get()`).
+     */
+    @Override
+    public Iterator<PolyLine> iterator() {
+        return new Iterator<>() {
+            private Node next = first(root);
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public PolyLine next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                PolyLine segment = next.segment;
+                next = successor(next);
+                return segment;
+            }
+        };
+    }
+
+    /**
+     * Return the polygon enclosed by this path.  If the path is closed, its repeated final point is
+     * omitted; otherwise, its end is implicitly joined to its start.  The polygon has the same
+     * vertices as `PolyLine.makePolygon(this)`, possibly starting from a different one.  Takes
+     * constant time if the list has not been modified since the previous call.  Rep exposure: the
+     * polygon shares this list's coordinate buffers, so clients must not mutate it, and it is
+     * only valid until this list is next modified.  Requires this list is non-empty.
+     */
+    public Polygon polygon() {
+        assert root != null;
+        if (polygon == null) {
+            if (!bufferValid) {
+                rebuildBuffer();
+            }
+            int n = points;
+            if (n > 1 && xs[0] == xs[n - 1] && ys[0] == ys[n - 1]) {
+                n--;
+            }
+            polygon = new Polygon();
+            polygon.xpoints = xs;
+            polygon.ypoints = ys;
+            polygon.npoints = n;
+        }
+        return polygon;
+    }
+
+    /**
+     * Return an index of the pixels whose centers lie inside `polygon()`, building it if this list
+     * has been modified since it was last requested.  Requires this list is non-empty.
+     */
+    SpanIndex spans() {
+        if (spans == null) {
+            spans = new SpanIndex(polygon());
+        }
+        return spans;
+    }
+
+    /**
+     * Return the index of the segment closest to (`x`, `y`), as long as its squared distance is
+     * no greater than `maxDistanceSq`; otherwise (or if this list is empty), return -1.  If
+     * several segments are tied, the one with the smallest index is chosen.  Builds the spatial
+     * index on first use, and repacks it once enough edits have loosened it.
+     */
+    int closestSegment(double x, double y, double maxDistanceSq) {
+        if (root == null) {
+            return -1;
+        }
+        if (segmentIndex == null || indexEdits > size() / 2 + REPACK_SLACK) {
+            packIndex();
+        }
+        Node closest = segmentIndex.closest(x, y, maxDistanceSq,
+                Comparator.comparingInt(SegmentList::indexOf));
+        return (closest == null) ? -1 : indexOf(closest);
+    }
+
+    /**
+     * Index every segment in a newly packed spatial index.
+     */
+    private void packIndex() {
+        List<SegmentIndex.Entry<Node>> entries = new ArrayList<>(size());
+        for (Node node = first(root); node != null; node = successor(node)) {
+            node.entry = new SegmentIndex.Entry<>(node.segment, node);
+            entries.add(node.entry);
+        }
+        segmentIndex = new SegmentIndex<>(entries);
+        indexEdits = 0;
+    }
+
+    /**
+     * Remove `node`'s entry from the spatial index (if it has been built), replacing it with an
+     * entry for its current segment if `keep` is true.
+     */
+    private void reindex(Node node, boolean keep) {
+        if (segmentIndex == null) {
+            return;
+        }
+        segmentIndex.remove(node.entry);
+        node.entry = null;
+        if (keep) {
+            node.entry = new SegmentIndex.Entry<>(node.segment, node);
+            segmentIndex.insert(node.entry);
+        }
+        indexEdits++;
+    }
+
+    /**
+     * Discard the derived structures that are rebuilt on demand after every edit.
+     */
+    private void edited() {
+        polygon = null;
+        spans = null;
+    }
+
+    /**
+     * Refill the flattened coordinates from the segments, in order.
+     */
+    private void rebuildBuffer() {
+        ensureCapacity((int) root.steps + 1);
+        points = 0;
+        for (Node node = first(root); node != null; node = successor(node)) {
+            PolyLine segment = node.segment;
+            boolean first = points == 0;
+            write(segment, first, points);
+            points += first ? segment.size() : segment.size() - 1;
+        }
+        bufferValid = true;
+    }
+
+    /**
+     * Grow the coordinate buffers if necessary to hold `capacity` points.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            int newCapacity = Math.max(xs.length * 2, capacity);
+            xs = Arrays.copyOf(xs, newCapacity);
+            ys = Arrays.copyOf(ys, newCapacity);
+        }
+    }
+
+    /**
+     * Store the points of `segment` starting at buffer index `at`.  Its start is only stored if
+     * it is the `first` segment, since otherwise it is the previous segment's end.
+     */
+    private void write(PolyLine segment, boolean first, int at) {
+        int skip = first ? 0 : 1;
+        segment.copyTo(skip, xs, ys, at, segment.size() - skip);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Invalid segment index " + index);
+        }
+    }
+
+    /* Treap operations */
+
+    private static int count(Node node) {
+        return (node == null) ? 0 : node.count;
+    }
+
+    private static long steps(Node node) {
+        return (node == null) ? 0 : node.steps;
+    }
+
+    /**
+     * Add the totals of `node`'s children to its own, which must only include its segment.
+     */
+    private static void addChildTotals(Node node) {
+        node.count += count(node.left) + count(node.right);
+        node.steps += steps(node.left) + steps(node.right);
+    }
+
+    private void setRoot(Node node) {
+        root = node;
+        if (root != null) {
+            root.parent = null;
+        }
+    }
+
+    /**
+     * Return the node holding the segment with index `index`.  Requires the index is valid.
+     */
+    private Node nodeAt(int index) {
+        Node node = root;
+        while (true) {
+            int leftCount = count(node.left);
+            if (index < leftCount) {
+                node = node.left;
+            } else if (index == leftCount) {
+                return node;
+            } else {
+                index -= leftCount + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Return the index in the path of `node`'s segment.
+     */
+    private static int indexOf(Node node) {
+        int index = count(node.left);
+        for (Node n = node; n.parent != null; n = n.parent) {
+            if (n == n.parent.right) {
+                index += count(n.parent.left) + 1;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Return the total number of steps of the segments before `node`'s segment in the path.
+     */
+    private static long stepsBefore(Node node) {
+        long steps = steps(node.left);
+        for (Node n = node; n.parent != null; n = n.parent) {
+            if (n == n.parent.right) {
+                steps += steps(n.parent.left) + n.parent.segment.size() - 1;
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Return the first node of the subtree rooted at `node` in order, or null if it is empty.
+     */
+    private static Node first(Node node) {
+        if (node == null) {
+            return null;
+        }
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    /**
+     * Return the node after `node` in order, or null if it is the last.
+     */
+    private static Node successor(Node node) {
+        if (node.right != null) {
+            return first(node.right);
+        }
+        while (node.parent != null && node == node.parent.right) {
+            node = node.parent;
+        }
+        return node.parent;
+    }
+
+    /**
+     * Return the root of a treap holding the segments of treap `a` followed by those of treap `b`.
+     * The returned root's parent is not updated.
+     */
+    private static Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            a.right.parent = a;
+            a.update();
+            return a;
+        } else {
+            b.left = merge(a, b.left);
+            b.left.parent = b;
+            b.update();
+            return b;
+        }
+    }
+
+    /**
+     * Split the treap rooted at `node` into one holding its first `k` segments and one holding
+     * the rest, storing their roots in `out[0]` and `out[1]`.  The roots' parents are not updated.
+     */
+    private static void split(Node node, int k, Node[] out) {
+        if (node == null) {
+            out[0] = null;
+            out[1] = null;
+            return;
+        }
+        if (k <= count(node.left)) {
+            split(node.left, k, out);
+            node.left = out[1];
+            if (node.left != null) {
+                node.left.parent = node;
+            }
+            node.update();
+            out[1] = node;
+        } else {
+            split(node.right, k - count(node.left) - 1, out);
+            node.right = out[0];
+            if (node.right != null) {
+                node.right.parent = node;
+            }
+            node.update();
+            out[0] = node;
+        }
+    }
+}
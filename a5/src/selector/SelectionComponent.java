@@ -92,6 +92,7 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
         // (null check makes this save to call from the constructor)
         if (model != null) {
             model.removePropertyChangeListener(this);
+            model.endPreview();
         }
 
         // Assign and listen to the new model
@@ -142,29 +143,32 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
 
     /**
      * Visualize our model's state, as well as our interaction state, by drawing our view using
-     * `g`.
+     * `g`.  Painting is timed as a stage of interaction (see `Metrics`), as are the live wire and
+     * point moves requested here.
      */
     @Override
     public void paintComponent(Graphics g) {
-        List<PolyLine> segments = model.selection();
+        Metrics.time(Metrics.PAINT, () -> {
+            List<PolyLine> segments = model.selection();
 
-        // Draw perimeter
-        paintSelectionPerimeter(g, segments);
+            // Draw perimeter
+            paintSelectionPerimeter(g, segments);
 
-        // If dragging a point, draw guide lines
-        if (isInteractingWithPoint() && mouseLocation != null) {
-            paintMoveGuides(g, segments);
-        }
+            // If dragging a point, draw guide lines
+            if (isInteractingWithPoint() && mouseLocation != null) {
+                paintMoveGuides(g, segments);
+            }
 
-        // Draw live wire
-        if (model.state() == SELECTING && mouseLocation != null) {
-            paintLiveWire(g);
-        }
+            // Draw live wire
+            if (model.state() == SELECTING && mouseLocation != null) {
+                paintLiveWire(g);
+            }
 
-        // Draw handles
-        if (model.state() == SELECTED) {
-            paintControlPoints(g, segments);
-        }
+            // Draw handles
+            if (model.state() == SELECTED) {
+                paintControlPoints(g, segments);
+            }
+        });
     }
 
     /**
@@ -174,7 +178,7 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
     private void paintSelectionPerimeter(Graphics g, List<PolyLine> segments) {
         g.setColor(selectionPerimeterColor);
         for(PolyLine p : segments) {
-            g.drawPolyline(p.xs(),p.ys(),p.size());
+            p.draw(g);
         }
     }
 
@@ -184,8 +188,8 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
      */
     private void paintLiveWire(Graphics g) {
         g.setColor(liveWireColor);
-        PolyLine p = model.liveWire(mouseLocation);
-        g.drawPolyline(p.xs(),p.ys(),p.size());
+        PolyLine p = Metrics.time(Metrics.LIVE_WIRE, () -> model.liveWire(mouseLocation));
+        p.draw(g);
     }
 
     /**
@@ -195,67 +199,29 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
      */
     private void paintControlPoints(Graphics g, List<PolyLine> segments) {
         g.setColor(controlPointColor);
-        Point lastPoint = null; // Track the last point drawn
         for (PolyLine p : segments) {
-            int[] xs = p.xs();
-            int[] ys = p.ys();
-
-            for (int i = 0; i < xs.length; i++) {
-                Point currentPoint = new Point(xs[i], ys[i]);
-                // Only draw if this point is not the same as the last point drawn
-                if (!currentPoint.equals(lastPoint)) {
-                    g.fillOval(xs[i] - controlPointRadius, ys[i] - controlPointRadius,
-                            2 * controlPointRadius, 2 * controlPointRadius);
-                }
-                lastPoint = currentPoint; // Update the last point drawn
-            }
+            // Control points are where segments join, so only draw each segment's start (the end
+            //  of the last segment is the start of the first)
+            int x = p.startX();
+            int y = p.startY();
+            g.fillOval(x - controlPointRadius, y - controlPointRadius,
+                    2 * controlPointRadius, 2 * controlPointRadius);
         }
     }
 
     /**
-     * Draw straight lines on `g` connecting our last-known mouse pointer location to the control
-     * points before and after our selected point.  Requires `selectedIndex` is in
-     * [0..segments.size()).
+     * Draw on `g` the provisional paths through our last-known mouse pointer location that would
+     * replace the segments before and after our selected point if it were released there.
+     * Requires `selectedIndex` is in [0..segments.size()).
      */
     private void paintMoveGuides(Graphics g, List<PolyLine> segments) {
         if (selectedIndex < 0 || selectedIndex >= segments.size()) {
-            // Handle out-of-bounds selectedIndex, such as throwing an exception or returning early
             return;
         }
         g.setColor(Color.RED);
-
-        int[] xs1;
-        int[] ys1;
-        int[] xs2;
-        int[] ys2;
-
-        if (selectedIndex == 0) {
-            xs1 = segments.getLast().xs();
-            ys1 = segments.getLast().ys();
-            xs2 = segments.get(selectedIndex).xs();
-            ys2 = segments.get(selectedIndex).ys();
-        } else if (selectedIndex == segments.size() - 1) {
-            xs1 = segments.get(selectedIndex - 1).xs();
-            ys1 = segments.get(selectedIndex - 1).ys();
-            xs2 = segments.get(selectedIndex).xs();
-            ys2 = segments.get(selectedIndex).ys();
-        } else {
-            xs1 = segments.get(selectedIndex - 1).xs();
-            ys1 = segments.get(selectedIndex - 1).ys();
-            xs2 = segments.get(selectedIndex).xs();
-            ys2 = segments.get(selectedIndex).ys();
+        for (PolyLine p : model.movePreview(selectedIndex, mouseLocation)) {
+            p.draw(g);
         }
-
-        int[] x1 = new int[2];
-        int[] y1 = new int[2];
-        x1[1] = mouseLocation.x;
-        y1[1] = mouseLocation.y;
-        x1[0] = xs1[0];
-        y1[0] = ys1[0];
-        g.drawPolyline(x1, y1, 2);
-        x1[0] = xs2[1];
-        y1[0] = ys2[1];
-        g.drawPolyline(x1, y1, 2);
     }
 
     /* Event listeners */
@@ -291,26 +257,34 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
 
     /**
      * When a selection is in progress, update our last-observed mouse location to the location of
-     * this event and repaint ourselves to draw a "live wire" to the mouse pointer.
+     * this event and repaint ourselves to draw a "live wire" to the mouse pointer.  In any case,
+     * let our model know where the pointer is hovering, so it can prepare for the next click.
      */
     @Override
     public void mouseMoved(MouseEvent e) {
         if (model.state() == SELECTING) {
             updateMouseLocation(e.getPoint());
         }
+        if (model.image() != null) {
+            model.trackCursor(e.getPoint());
+        }
     }
 
     /**
      * When a selection is in progress, or when we are interacting with a control point, update our
      * last-observed mouse location to the location of this event and repaint ourselves to draw a
      * "live wire" to the mouse pointer.  (Note that mouseMoved events are not sent while dragging,
-     * which is why this overlaps with the duties of that handler.)
+     * which is why this overlaps with the duties of that handler.)  When dragging a control point,
+     * also let our model start computing provisional paths through the new location.
      */
     @Override
     public void mouseDragged(MouseEvent e) {
         if (model.state() == SELECTING || isInteractingWithPoint()) {
             updateMouseLocation(e.getPoint());
         }
+        if (isInteractingWithPoint()) {
+            model.previewMove(selectedIndex, mouseLocation);
+        }
     }
 
     /**
@@ -333,7 +307,7 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
     @Override
     public void mouseReleased(MouseEvent e) {
         if (e.getButton() == MouseEvent.BUTTON1 && isInteractingWithPoint()) {
-            model.movePoint(selectedIndex, mouseLocation);
+            Metrics.time(Metrics.MOVE_POINT, () -> model.movePoint(selectedIndex, mouseLocation));
             // No need to call `repaint()` ourselves, since moving the point will trigger a property
             // change, which will then trigger a repaint when we observe it.
 
@@ -356,8 +330,9 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
 
         // If the model's selection changed while we are interacting with a control point, cancel
         // that interaction (since our selected index may no longer be valid).
-        if (e.getPropertyName().equals("selection")) {
+        if (e.getPropertyName().equals("selection") && selectedIndex != -1) {
             selectedIndex = -1;
+            model.endPreview();
         }
 
         // If any property of the model changed, repaint to update view
@@ -0,0 +1,243 @@
+package selector;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.imageio.ImageIO;
+
+/**
+ * Extracts the pixels of images that lie within a fixed selection path, independently of any
+ * selection model or user interface.  An extractor is immutable once created, and its methods may
+ * be called from many threads at once, so one extractor can serve every request that crops with
+ * the same path (for example, in a service, or over the frames of a video).  Selection models
+ * create one with `SelectionModel.extractor()` to save their selections.
+ * <p>
+ * The runs of pixels inside the path (those whose centers are inside it) are found once, when the
+ * extractor is created, and kept as spans rather than as a per-pixel mask.  Extracting then copies
+ * the pixels in the path's bounding box and clears those between the spans, rather than
+ * compositing through a Graphics2D clip.  When an extracted image is only encoded, the image and
+ * the encoding buffer are taken from small pools and reused by later calls, unless they are too
+ * large to be worth keeping.
+ */
+public final class SelectionExtractor {
+
+    /**
+     * A source of the image to extract from, such as a file or an image already in memory.
+     */
+    @FunctionalInterface
+    public interface ImageSource {
+
+        /**
+         * Return the image, decoding it if needed.  Throws an IOException if it could not be read
+         * or decoded.
+         */
+        BufferedImage read() throws IOException;
+
+        /**
+         * Return a source of `img`.
+         */
+        static ImageSource of(BufferedImage img) {
+            return () -> img;
+        }
+
+        /**
+         * Return a source of the image in `file`, in any format supported by ImageIO.
+         */
+        static ImageSource of(Path file) {
+            return () -> decode(ImageIO.read(file.toFile()));
+        }
+
+        /**
+         * Return a source of the image encoded by `bytes`, in any format supported by ImageIO.
+         * Rep exposure: `bytes` must not be modified while the source is in use.
+         */
+        static ImageSource of(byte[] bytes) {
+            return () -> decode(ImageIO.read(new ByteArrayInputStream(bytes)));
+        }
+
+        /**
+         * Return `img`, as decoded by ImageIO.  Throws an IOException if it is null (meaning that
+         * no reader supported its format).
+         */
+        private static BufferedImage decode(BufferedImage img) throws IOException {
+            if (img == null) {
+                throw new IOException("Unsupported image format");
+            }
+            return img;
+        }
+    }
+
+    /**
+     * Largest number of images and of encoding buffers kept for reuse.
+     */
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Initial size of a new encoding buffer, and the largest encoding (in bytes) after which its
+     * buffer is still kept for reuse.  A buffer grows to fit the largest image encoded into it,
+     * so buffers that grew past the limit are dropped rather than held for the extractor's life.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_POOLED_BUFFER = 1 << 22;
+
+    /**
+     * Largest number of pixels in the bounding box for which extracted images are kept for reuse.
+     */
+    private static final long MAX_POOLED_CROP = 1 << 22;
+
+    /**
+     * The bounding box of the selection, in image coordinates.  Never empty.
+     */
+    private final Rectangle bounds;
+
+    /**
+     * The runs of pixels inside the selection, in image coordinates.  Never modified after
+     * construction.
+     */
+    private final SpanIndex spans;
+
+    /**
+     * Whether extracted images are small enough to keep in `crops` for reuse.
+     */
+    private final boolean poolCrops;
+
+    /**
+     * TYPE_INT_ARGB images of the size of `bounds`, and encoding buffers, that are not in use.
+     */
+    private final BlockingQueue<BufferedImage> crops = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<ByteArrayOutputStream> buffers =
+            new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * Create an extractor for the closed selection path whose segments are `segments`, in order.
+     * The segments' full-resolution paths are used (see `PolyLine.fullResolution()`).  Throws an
+     * IllegalArgumentException if `segments` is empty, if some segment does not end where the
+     * next one (or, for the last segment, the first one) starts, or if the path encloses no
+     * pixels.
+     */
+    public SelectionExtractor(List<PolyLine> segments) {
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("Selection has no segments");
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            if (!segments.get(i).end().equals(segments.get((i + 1) % segments.size()).start())) {
+                throw new IllegalArgumentException("Selection is not closed after segment " + i);
+            }
+        }
+        Polygon clip = PolyLine.makePolygon(PolyLine.fullResolution(segments));
+        bounds = clip.getBounds();
+        if (bounds.isEmpty()) {
+            throw new IllegalArgumentException("Selection encloses no pixels");
+        }
+        spans = new SpanIndex(clip);
+        poolCrops = (long) bounds.width * bounds.height <= MAX_POOLED_CROP;
+    }
+
+    /**
+     * Return the bounding box of the selection, in image coordinates; extracted images have its
+     * size.
+     */
+    public Rectangle bounds() {
+        return new Rectangle(bounds);
+    }
+
+    /**
+     * Return a new TYPE_INT_ARGB image of the pixels of `img` within the selection's bounding box,
+     * in which pixels outside of the selection, or beyond the edges of `img`, are fully
+     * transparent.
+     */
+    public BufferedImage extract(BufferedImage img) {
+        BufferedImage dst = new BufferedImage(bounds.width, bounds.height,
+                BufferedImage.TYPE_INT_ARGB);
+        cropInto(img, dst);
+        return dst;
+    }
+
+    /**
+     * Return the image described by `extract()` for the image read from `source`.  Throws an
+     * IOException if the image could not be read.
+     */
+    public BufferedImage extract(ImageSource source) throws IOException {
+        return extract(source.read());
+    }
+
+    /**
+     * Write the image described by `extract()` for the image read from `source` to `out` as a
+     * PNG image.  Throws an IOException if the image could not be read or written.
+     */
+    public void write(ImageSource source, OutputStream out) throws IOException {
+        BufferedImage img = source.read();
+        Metrics.time(Metrics.SAVE_SELECTION, () -> {
+            BufferedImage dst = takeCrop();
+            try {
+                cropInto(img, dst);
+                return ImageIO.write(dst, "png", out);
+            } finally {
+                if (poolCrops) {
+                    crops.offer(dst);
+                }
+            }
+        });
+    }
+
+    /**
+     * Write the image described by `extract()` for `img` to `out` as a PNG image.  Throws an
+     * IOException if the image could not be written.
+     */
+    public void write(BufferedImage img, OutputStream out) throws IOException {
+        write(ImageSource.of(img), out);
+    }
+
+    /**
+     * Return the bytes of the PNG image that `write()` would write for the image read from
+     * `source`.  Throws an IOException if the image could not be read.
+     */
+    public byte[] encode(ImageSource source) throws IOException {
+        ByteArrayOutputStream buffer = buffers.poll();
+        if (buffer == null) {
+            buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+        }
+        try {
+            write(source, buffer);
+            return buffer.toByteArray();
+        } finally {
+            if (buffer.size() <= MAX_POOLED_BUFFER) {
+                buffer.reset();
+                buffers.offer(buffer);
+            }
+        }
+    }
+
+    /**
+     * Return an image of the size of `bounds` that no other call is using, either from the pool
+     * or newly created.  Its pixels are unspecified.
+     */
+    private BufferedImage takeCrop() {
+        BufferedImage dst = crops.poll();
+        return (dst != null) ? dst : new BufferedImage(bounds.width, bounds.height,
+                BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Replace the pixels of `dst` with those of `img` within `bounds`, and clear those outside of
+     * the selection.  Requires `dst` is a TYPE_INT_ARGB image of the size of `bounds`.
+     */
+    private void cropInto(BufferedImage img, BufferedImage dst) {
+        int[] pixels = ((DataBufferInt) dst.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, 0);
+        var g = dst.createGraphics();
+        g.drawImage(img, -bounds.x, -bounds.y, null);
+        g.dispose();
+        spans.clearOutside(pixels, bounds.x, bounds.y, bounds.width);
+    }
+}
@@ -0,0 +1,340 @@
+package selector;
+
+import java.awt.Point;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the selection path of a `SelectionModel` in a file, so that work on a selection survives
+ * the application closing (`SelectionModel.saveSelection()` only saves the selected pixels).
+ * <p>
+ * Paths are stored in a compact binary format: the bytes "SELS", a version byte, and a byte
+ * holding the selection's state (0 for none, 1 for a selection in progress, 2 for a finished
+ * one).  Unless there is no selection, the start point follows as zigzag varints (see `VarInts`),
+ * then the number of segments as a varint, then each segment in order.  A segment is a varint
+ * holding twice its number of points, plus 1 if it was simplified, followed by the change in x and
+ * y from each point to the next as zigzag varints, beginning from the previous segment's end
+ * (which is not repeated).  A simplified segment is followed by its full-resolution path in the
+ * same form, so the detail needed for export is kept.  Steps between adjacent pixels, as traced by
+ * the scissors and the magic wand, take 2 bytes per point.
+ * <p>
+ * Files are loaded through a memory map and decoded straight into the coordinate arrays of the
+ * segments, without creating an object per point.  Paths may also be exported as JSON for other
+ * tools, though they cannot be read back from it.
+ */
+public final class SelectionFile {
+
+    /**
+     * A selection path as stored in a file: its start point (null if there is no selection), its
+     * segments in order, and whether it is finished.
+     */
+    public record Contents(Point start, List<PolyLine> segments, boolean finished) {
+
+        /**
+         * Replace the selection of `model` with this path (see
+         * `SelectionModel.restoreSelection()`).
+         */
+        public void restoreTo(SelectionModel model) {
+            model.restoreSelection(start, segments, finished);
+        }
+    }
+
+    /**
+     * First bytes of every selection file ("SELS").
+     */
+    private static final int MAGIC = 0x53454C53;
+
+    /**
+     * Version of the format written by this class.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Values of the state byte.
+     */
+    private static final int NONE = 0, SELECTING = 1, SELECTED = 2;
+
+    /**
+     * Size of the buffer that files are encoded into before being written.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Largest number of bytes that one point (two zigzag-encoded int deltas) can take.
+     */
+    private static final int MAX_POINT_BYTES = 10;
+
+    private SelectionFile() {
+    }
+
+    /**
+     * Write the selection path of `model` to `out` in the binary selection format.  A selection
+     * that is processing is stored as in progress.  Does not close `out`.  Must be called on the
+     * thread that edits `model` (or on a snapshot of it).
+     */
+    public static void write(SelectionModel model, OutputStream out) throws IOException {
+        write(new Contents(model.start, model.selection(),
+                model.state() == SelectionModel.SelectionState.SELECTED), out);
+    }
+
+    /**
+     * Write the selection path `contents` to `out` in the binary selection format.  Does not close
+     * `out`.
+     */
+    public static void write(Contents contents, OutputStream out) throws IOException {
+        Encoder encoder = new Encoder(out);
+        ByteBuffer buf = encoder.buf;
+        buf.putInt(MAGIC);
+        buf.put((byte) VERSION);
+        if (contents.start() == null) {
+            buf.put((byte) NONE);
+        } else {
+            buf.put((byte) (contents.finished() ? SELECTED : SELECTING));
+            VarInts.writeSigned(buf, contents.start().x);
+            VarInts.writeSigned(buf, contents.start().y);
+            List<PolyLine> segments = contents.segments();
+            VarInts.write(buf, segments.size());
+            for (PolyLine segment : segments) {
+                PolyLine source = segment.fullResolution();
+                boolean simplified = source != segment;
+                encoder.reserve(MAX_POINT_BYTES);
+                VarInts.write(buf, 2L * segment.size() + (simplified ? 1 : 0));
+                encoder.writeSteps(segment);
+                if (simplified) {
+                    encoder.reserve(MAX_POINT_BYTES);
+                    VarInts.write(buf, source.size());
+                    encoder.writeSteps(source);
+                }
+            }
+        }
+        encoder.flush();
+    }
+
+    /**
+     * Read a selection path in the binary selection format from `buf`, from its position to its
+     * limit.  Throws an IOException if the bytes are not a selection file of a supported version,
+     * end early, or describe a finished path that does not return to its start.
+     */
+    public static Contents read(ByteBuffer buf) throws IOException {
+        try {
+            if (buf.getInt() != MAGIC) {
+                throw new IOException("Not a selection file");
+            }
+            int version = buf.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported selection file version " + version);
+            }
+            int state = buf.get();
+            if (state == NONE) {
+                return new Contents(null, List.of(), false);
+            } else if (state != SELECTING && state != SELECTED) {
+                throw new IOException("Invalid selection state " + state);
+            }
+            int x = (int) VarInts.readSigned(buf);
+            int y = (int) VarInts.readSigned(buf);
+            Point start = new Point(x, y);
+            // Every segment takes at least 3 bytes, and every step 2, which bounds the counts
+            int count = checkedCount(VarInts.read(buf), 0, buf.remaining() / 3);
+            List<PolyLine> segments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long header = VarInts.read(buf);
+                int n = checkedCount(header >>> 1, 2, buf.remaining() / 2 + 1);
+                int[] xs = new int[n];
+                int[] ys = new int[n];
+                readSteps(buf, x, y, xs, ys);
+                x = xs[n - 1];
+                y = ys[n - 1];
+                PolyLine source = null;
+                if ((header & 1) != 0) {
+                    int sourceN = checkedCount(VarInts.read(buf), 2, buf.remaining() / 2 + 1);
+                    int[] sourceXs = new int[sourceN];
+                    int[] sourceYs = new int[sourceN];
+                    readSteps(buf, xs[0], ys[0], sourceXs, sourceYs);
+                    if (sourceXs[sourceN - 1] != x || sourceYs[sourceN - 1] != y) {
+                        throw new IOException("Segment " + i + " ends away from its source");
+                    }
+                    source = ChainCodePolyLine.encode(sourceXs, sourceYs);
+                    if (source == null) {
+                        source = new PolyLine(sourceXs, sourceYs);
+                    }
+                }
+                segments.add(new PolyLine(xs, ys, source));
+            }
+            if (state == SELECTED && (count == 0 || x != start.x || y != start.y)) {
+                throw new IOException("Finished selection does not return to its start");
+            }
+            return new Contents(start, segments, state == SELECTED);
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Truncated selection file");
+        }
+    }
+
+    /**
+     * Read the selection file `file` through a memory map.  Throws an IOException as for `read()`,
+     * or if the file cannot be opened.
+     */
+    public static Contents load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buf);
+        }
+    }
+
+    /**
+     * Write the selection path of `model` to `out` as JSON (see `writeJson(Contents, Writer)`),
+     * with a selection that is processing stored as in progress.  Does not close `out`.  Must be
+     * called on the thread that edits `model` (or on a snapshot of it).
+     */
+    public static void writeJson(SelectionModel model, Writer out) throws IOException {
+        writeJson(new Contents(model.start, model.selection(),
+                model.state() == SelectionModel.SelectionState.SELECTED), out);
+    }
+
+    /**
+     * Write the selection path `contents` to `out` as a JSON object with the properties "version"
+     * (1), "state" ("NO_SELECTION" if it has no start, else "SELECTED" if it is finished and
+     * "SELECTING" if not), "start" (an [x, y] pair, or null), and "segments".  Each segment is an
+     * object with property "points", an array of [x, y] pairs, and, if it was simplified,
+     * "fullResolution", the path it was simplified from in the same form.  Does not close `out`.
+     */
+    public static void writeJson(Contents contents, Writer out) throws IOException {
+        BufferedWriter w = new BufferedWriter(out, BUFFER_SIZE);
+        SelectionModel.SelectionState state = (contents.start() == null)
+                ? SelectionModel.SelectionState.NO_SELECTION
+                : contents.finished() ? SelectionModel.SelectionState.SELECTED
+                : SelectionModel.SelectionState.SELECTING;
+        Point start = contents.start();
+        w.write("{\"version\": " + VERSION + ", \"state\": \"" + state + "\", \"start\": ");
+        w.write((start == null) ? "null" : "[" + start.x + ", " + start.y + "]");
+        w.write(", \"segments\": [");
+        String separator = "\n";
+        for (PolyLine segment : contents.segments()) {
+            w.write(separator);
+            w.write("{\"points\": ");
+            writeJsonPoints(segment, w);
+            if (segment.fullResolution() != segment) {
+                w.write(", \"fullResolution\": ");
+                writeJsonPoints(segment.fullResolution(), w);
+            }
+            w.write('}');
+            separator = ",\n";
+        }
+        w.write("]}\n");
+        w.flush();
+    }
+
+    /**
+     * Write the points of `line` to `w` as a JSON array of [x, y] pairs.
+     */
+    private static void writeJsonPoints(PolyLine line, Writer w) throws IOException {
+        int n = line.size();
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        line.copyTo(0, xs, ys, 0, n);
+        w.write('[');
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                w.write(", ");
+            }
+            w.write('[');
+            w.write(Integer.toString(xs[i]));
+            w.write(", ");
+            w.write(Integer.toString(ys[i]));
+            w.write(']');
+        }
+        w.write(']');
+    }
+
+    /**
+     * Return `count` as an int, or throw an IOException if it is less than `min` or greater than
+     * `max` (so that a corrupt count cannot make us allocate huge arrays).
+     */
+    private static int checkedCount(long count, int min, int max) throws IOException {
+        if (count < min || count > max) {
+            throw new IOException("Invalid count " + count);
+        }
+        return (int) count;
+    }
+
+    /**
+     * Read the steps of a path starting at (`x`, `y`) from `buf`, and store the coordinates of its
+     * points in `xs` and `ys`, whose length is its number of points.
+     */
+    private static void readSteps(ByteBuffer buf, int x, int y, int[] xs, int[] ys)
+            throws IOException {
+        xs[0] = x;
+        ys[0] = y;
+        for (int i = 1; i < xs.length; i++) {
+            x += (int) VarInts.readSigned(buf);
+            y += (int) VarInts.readSigned(buf);
+            xs[i] = x;
+            ys[i] = y;
+        }
+    }
+
+    /**
+     * Encodes a file into a fixed-size buffer, writing it to the output stream whenever it fills.
+     */
+    private static final class Encoder {
+
+        final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        private final OutputStream out;
+
+        /**
+         * Scratch space for the points of one path.
+         */
+        private int[] xs = new int[64];
+        private int[] ys = new int[64];
+
+        Encoder(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Make sure at least `bytes` bytes remain in the buffer, writing out its contents if not.
+         */
+        void reserve(int bytes) throws IOException {
+            if (buf.remaining() < bytes) {
+                out.write(buf.array(), 0, buf.position());
+                buf.clear();
+            }
+        }
+
+        /**
+         * Encode the change from each point of `line` to the next.
+         */
+        void writeSteps(PolyLine line) throws IOException {
+            int n = line.size();
+            if (n > xs.length) {
+                xs = new int[Math.max(n, xs.length * 2)];
+                ys = new int[xs.length];
+            }
+            line.copyTo(0, xs, ys, 0, n);
+            for (int i = 1; i < n; i++) {
+                reserve(MAX_POINT_BYTES);
+                VarInts.writeSigned(buf, xs[i] - xs[i - 1]);
+                VarInts.writeSigned(buf, ys[i] - ys[i - 1]);
+            }
+        }
+
+        /**
+         * Write out everything encoded so far, and flush the output stream.
+         */
+        void flush() throws IOException {
+            out.write(buf.array(), 0, buf.position());
+            buf.clear();
+            out.flush();
+        }
+    }
+}
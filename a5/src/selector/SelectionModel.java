@@ -9,11 +9,13 @@ import java.awt.Point;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import javax.imageio.ImageIO;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import javax.swing.SwingUtilities;
 import javax.swing.event.SwingPropertyChangeSupport;
 
 /**
@@ -51,6 +53,31 @@ public abstract class SelectionModel {
         PROCESSING
     }
 
+    /**
+     * The location on a selection path closest to a query point: the index of the segment it lies
+     * on, the point itself (rounded to pixel coordinates), and its distance from the query point.
+     */
+    public record EdgeHit(int segment, Point point, double distance) {
+    }
+
+    /**
+     * Largest number of boundary vertices (beyond its start) in each segment of a selection traced
+     * from a mask.  Bounds the number of control points for large regions.
+     */
+    private static final int MAX_SEGMENT_EDGES = 64;
+
+    /**
+     * Minimum number of segments a selection traced from a mask is split into (if its boundary has
+     * enough vertices), so that small regions can still be adjusted.
+     */
+    private static final int MIN_SEGMENTS = 4;
+
+    /**
+     * Default largest distance (in pixels) between a committed segment's full-resolution path and
+     * its simplified approximation.
+     */
+    public static final double DEFAULT_SIMPLIFY_TOLERANCE = 1.0;
+
     /**
      * The current state of this SelectionModel.
      */
@@ -70,9 +97,9 @@ public abstract class SelectionModel {
      * The most recently added segment is therefore at the end of the list.  If our state is
      * SELECTED, then this list must be non-empty, and the end point of the last segment must also
      * equal `start`.  Whenever the contents of this list change, a "selection" property change
-     * event must be fired.
+     * event must be fired.  The list maintains the polygon enclosed by the path as it is edited.
      */
-    protected LinkedList<PolyLine> selection;
+    protected SegmentList selection;
 
     /**
      * The image we are selecting from (may be null, in which case no operations should be attempted
@@ -80,11 +107,54 @@ public abstract class SelectionModel {
      */
     protected BufferedImage img;
 
+    /**
+     * The computation of the luminance gradient of `img`, started in the CPU lane when the image
+     * was set, or null if there is no image.  Used by edge-aware selection tools through
+     * `gradient()`.  Guarded by `gradientLock`.
+     */
+    private FutureTask<GradientMap> gradient;
+
+    /**
+     * Lock guarding `gradient`, which may be needed by background tasks.
+     */
+    private final Object gradientLock = new Object();
+
+    /**
+     * Runs the computation of `gradient`.  Separate from `tasks`, since the gradient is needed
+     * for as long as the image is, not just until the selection is reset.
+     */
+    private final ProcessingExecutor.TaskGroup gradientTasks =
+            ProcessingExecutor.shared().newGroup();
+
+    /**
+     * Largest distance (in pixels) that points of a segment's full-resolution path may lie from
+     * the simplified path stored in `selection` when the segment is committed.  Non-negative; 0
+     * only drops points that lie exactly on the simplified path.
+     */
+    private double simplifyTolerance = DEFAULT_SIMPLIFY_TOLERANCE;
+
     /**
      * Helper object for managing property change notifications.
      */
     protected SwingPropertyChangeSupport propSupport;
 
+    /**
+     * Background tasks run on behalf of this model (see `ProcessingExecutor`).  All of them are
+     * cancelled when the selection is reset or the model is discarded, so subclasses should submit
+     * any work whose result depends on the current selection or image through this group.
+     */
+    protected final ProcessingExecutor.TaskGroup tasks = ProcessingExecutor.shared().newGroup();
+
+    /**
+     * The journal that edits to our selection are recorded to, or null (see `EditJournal`).
+     */
+    private EditJournal journal;
+
+    /**
+     * Whether edits are being replayed from a journal (see `replaying()`).
+     */
+    private boolean replaying;
+
 
     /**
      * If `notifyOnEdt` is true, property change listeners will be notified on Swing's Event
@@ -94,7 +164,7 @@ public abstract class SelectionModel {
      */
     protected SelectionModel(boolean notifyOnEdt) {
         state = NO_SELECTION;
-        selection = new LinkedList<>();
+        selection = new SegmentList();
         propSupport = new SwingPropertyChangeSupport(this, notifyOnEdt);
     }
 
@@ -110,8 +180,12 @@ public abstract class SelectionModel {
             state = SELECTING;
         }
         start = copy.start;
-        selection = new LinkedList<>(copy.selection);
+        selection = new SegmentList(copy.selection);
         img = copy.img;
+        synchronized (copy.gradientLock) {
+            gradient = copy.gradient;
+        }
+        simplifyTolerance = copy.simplifyTolerance;
         propSupport = new SwingPropertyChangeSupport(this, copy.propSupport.isNotifyOnEDT());
     }
 
@@ -133,6 +207,43 @@ public abstract class SelectionModel {
         return Collections.unmodifiableList(selection);
     }
 
+    /**
+     * Return the polygon enclosed by the current selection path (closed from its last point back to
+     * its start if it is not finished).  Takes constant time between edits.  Rep exposure: the
+     * polygon is shared with this model, so clients must not mutate it, and it is only valid until
+     * the selection next changes.  Requires the selection path is non-empty.
+     */
+    public Polygon selectionPolygon() {
+        return selection.polygon();
+    }
+
+    /**
+     * Return whether the center of pixel (`x`, `y`) lies inside the finished selection path as
+     * stored (after any simplification), by the even-odd rule.  The first query after the
+     * selection changes indexes the selection's rows; later queries take logarithmic time.
+     * Throws an IllegalStateException if our selection is not finished.
+     */
+    public boolean contains(int x, int y) {
+        if (state != SELECTED) {
+            throw new IllegalStateException("Cannot test containment in state " + state);
+        }
+        return selection.spans().contains(x, y);
+    }
+
+    /**
+     * Return a mask the size of `region` in which bit (mx, my) is set if `contains(region.x + mx,
+     * region.y + my)`.  Pass the selection polygon's bounds to mask the whole selection.  Throws
+     * an IllegalStateException if our selection is not finished.
+     */
+    public BitMask selectionMask(Rectangle region) {
+        if (state != SELECTED) {
+            throw new IllegalStateException("Cannot mask selection in state " + state);
+        }
+        BitMask mask = new BitMask(region.width, region.height);
+        selection.spans().fill(mask, region.x, region.y);
+        return mask;
+    }
+
     /**
      * Return the image we are currently selecting from.
      */
@@ -141,12 +252,78 @@ public abstract class SelectionModel {
     }
 
     /**
-     * Select from `newImg` instead of any previous set image.  Resets the selection.  Notifies
-     * listeners that the "image" property has changed.
+     * Return the luminance gradient of the image we are currently selecting from, or null if no
+     * image has been set.  The gradient is computed in the background as soon as the image is set.
+     * On Swing's Event Dispatch thread, this returns null until it is ready, so that the UI never
+     * waits for it; elsewhere, it waits for the gradient (computing it on this thread if no other
+     * thread has started to), or returns null if the thread is interrupted while waiting.
+     */
+    public GradientMap gradient() {
+        FutureTask<GradientMap> task;
+        synchronized (gradientLock) {
+            task = gradient;
+        }
+        if (task == null) {
+            return null;
+        }
+        if (!task.isDone()) {
+            if (SwingUtilities.isEventDispatchThread()) {
+                return null;
+            }
+            // Does nothing if a CPU thread is already computing it
+            task.run();
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not compute gradient", e.getCause());
+        }
+    }
+
+    /**
+     * Return the largest distance (in pixels) that committed segments may deviate from their
+     * full-resolution paths.
+     */
+    public double simplifyTolerance() {
+        return simplifyTolerance;
+    }
+
+    /**
+     * Simplify segments committed to the selection from now on so that no point of their
+     * full-resolution paths lies farther than `tolerance` pixels from the stored path.  Segments
+     * already in the selection are not affected.  Throws an IllegalArgumentException if
+     * `tolerance` is negative or NaN.
+     */
+    public void setSimplifyTolerance(double tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("Invalid simplify tolerance " + tolerance);
+        }
+        simplifyTolerance = tolerance;
+    }
+
+    /**
+     * Select from `newImg` instead of any previous set image, and start computing its gradient in
+     * the CPU lane (see `gradient()`).  Resets the selection.  Notifies listeners that the "image"
+     * property has changed.
      */
     public void setImage(BufferedImage newImg) {
         BufferedImage oldImg = img;
-        img = newImg;
+        FutureTask<GradientMap> task = (newImg == null) ? null : new FutureTask<>(
+                () -> new GradientMap(newImg, ProcessingExecutor.shared().cpuPool()));
+        synchronized (gradientLock) {
+            img = newImg;
+            gradient = task;
+        }
+        gradientTasks.cancelAll();
+        if (task != null) {
+            gradientTasks.submitCpu(() -> {
+                task.run();
+                return null;
+            });
+        }
         reset();
         propSupport.firePropertyChange("image", oldImg, img);
     }
@@ -161,16 +338,28 @@ public abstract class SelectionModel {
         if (state() == SelectionState.NO_SELECTION) {
             startSelection(p);
         } else if (state() == SelectionState.SELECTING) {
-            // Defer to our subclass to append a segment ending at `p` to our selection.
-            appendToSelection(p);
-
-            // Notify observers that the selection has changed.  There is no reason to include an
-            //  old value, but we do include an unmodifiable copy of the current selection as the
-            //  new value.
-            propSupport.firePropertyChange("selection", null, selection());
+            extendSelection(p);
         } else {
             throw new IllegalStateException("Cannot add point in state " + state());
         }
+        recordEdit(EditJournal.Op.ADD_POINT, 0, p);
+    }
+
+    /**
+     * Append a segment from our last point to `p` and notify listeners that the selection has
+     * changed.  Unlike `addPoint()`, this is not overridden by subclasses, so `p` is used exactly
+     * as given.  Requires that our state is SELECTING.
+     */
+    private void extendSelection(Point p) {
+        // Defer to our subclass to append a segment ending at `p` to our selection, then
+        //  simplify the segment it committed.
+        Metrics.time(Metrics.APPEND_TO_SELECTION, () -> appendToSelection(p));
+        selection.add(commit(selection.removeLast()));
+
+        // Notify observers that the selection has changed.  There is no reason to include an
+        //  old value, but we do include an unmodifiable copy of the current selection as the
+        //  new value.
+        propSupport.firePropertyChange("selection", null, selection());
     }
 
     /**
@@ -209,7 +398,12 @@ public abstract class SelectionModel {
         if (state == PROCESSING) {
             cancelProcessing();
         } else {
+            // Undoing the start resets, which records itself
+            boolean resets = selection.isEmpty();
             undoPoint();
+            if (!resets) {
+                recordEdit(EditJournal.Op.UNDO, 0, null);
+            }
         }
     }
 
@@ -226,20 +420,110 @@ public abstract class SelectionModel {
         if (selection.isEmpty()) {
             reset();
         } else {
-            addPoint(start);
+            // Close the path exactly at `start` (bypassing any adjustment subclasses make to
+            //  points added by clients)
+            extendSelection(start);
             setState(SELECTED);
+            recordEdit(EditJournal.Op.FINISH, 0, null);
         }
     }
 
     /**
      * Clear the current selection path and any starting point and transition to the NO_SELECTION
-     * state.  Listeners will be notified if the "state" or "selection" properties are changed.
+     * state, cancelling any background work for the old selection.  Listeners will be notified if
+     * the "state" or "selection" properties are changed.
      */
     public void reset() {
+        tasks.cancelAll();
         start = null;
         selection.clear();
         setState(NO_SELECTION);
         propSupport.firePropertyChange("selection", null, selection());
+        recordEdit(EditJournal.Op.RESET, 0, null);
+    }
+
+    /**
+     * Replace the current selection with the outer boundary of the region in `mask` (whose
+     * coordinates are those of the image) that contains its first set pixel, and transition to the
+     * SELECTED state.  The boundary follows pixel edges, with vertices only where it turns, and is
+     * split into segments whose joints become control points.  If `mask` is empty, reset this
+     * selection instead.  Listeners will be notified that the "state" and "selection" properties
+     * have changed.
+     */
+    public void selectMask(BitMask mask) {
+        int[][] boundary = ContourTracer.traceOuter(mask);
+        if (boundary == null) {
+            reset();
+            return;
+        }
+        int[] xs = boundary[0];
+        int[] ys = boundary[1];
+        int edges = xs.length - 1;
+        int perSegment = Math.max(1, Math.min(MAX_SEGMENT_EDGES, edges / MIN_SEGMENTS));
+        selection.clear();
+        for (int i = 0; i < edges; i += perSegment) {
+            int end = Math.min(i + perSegment, edges);
+            selection.add(commit(new PolyLine(Arrays.copyOfRange(xs, i, end + 1),
+                    Arrays.copyOfRange(ys, i, end + 1))));
+        }
+        start = new Point(xs[0], ys[0]);
+        setState(SELECTED);
+        propSupport.firePropertyChange("selection", null, selection());
+        recordReplacement();
+    }
+
+    /**
+     * Replace the current selection with the path from `start` through `segments` (as read back
+     * by `SelectionFile`), cancelling any background work for the old selection.  The new state is
+     * SELECTED if `finished` is true, SELECTING if `start` is non-null, and NO_SELECTION
+     * otherwise.  The segments are stored as given, without simplifying them again.  Throws an
+     * IllegalArgumentException if the segments do not form a continuous path from `start`, or if
+     * a finished path is empty or does not end at `start`.  Listeners will be notified that the
+     * "state" and "selection" properties have changed.
+     */
+    public void restoreSelection(Point start, List<PolyLine> segments, boolean finished) {
+        if (start == null && (finished || !segments.isEmpty())) {
+            throw new IllegalArgumentException("Path has no start");
+        }
+        int x = (start == null) ? 0 : start.x;
+        int y = (start == null) ? 0 : start.y;
+        for (PolyLine segment : segments) {
+            if (segment.startX() != x || segment.startY() != y) {
+                throw new IllegalArgumentException("Path is not continuous at (" + x + ", " + y
+                        + ")");
+            }
+            x = segment.endX();
+            y = segment.endY();
+        }
+        if (finished && (segments.isEmpty() || x != start.x || y != start.y)) {
+            throw new IllegalArgumentException("Finished path must return to its start");
+        }
+        reset();
+        if (start == null) {
+            return;
+        }
+        this.start = new Point(start);
+        selection.addAll(segments);
+        setState(finished ? SELECTED : SELECTING);
+        propSupport.firePropertyChange("selection", null, selection());
+        recordReplacement();
+    }
+
+    /**
+     * Return `segment` as it should be stored in the selection: simplified to within our
+     * tolerance, with its full-resolution path retained for export.
+     */
+    protected PolyLine commit(PolyLine segment) {
+        return segment.simplify(simplifyTolerance);
+    }
+
+    /**
+     * Return the full-resolution paths of the segments of the current selection (see
+     * `PolyLine.fullResolution()`), in order.  Suitable for export, where the detail dropped by
+     * simplification is wanted.
+     */
+    public List<PolyLine> fullResolutionSelection() {
+        return PolyLine.fullResolution(selection);
     }
 
     /**
@@ -254,8 +538,10 @@ public abstract class SelectionModel {
         int closestIndex = -1;
         //Something to initially compare and then store the closest point
         int closestDistanceSq = Integer.MAX_VALUE;
-        for (int i = 0; i < selection.size(); i++) {
-            PolyLine poly = selection.get(i);
+        // Walk the segments in order rather than calling `get(i)` for each index, which would cost
+        //  a search of the segment tree per segment
+        int i = 0;
+        for (PolyLine poly : selection) {
             Point compareP = poly.start();
             int dx = compareP.x - p.x;
             int dy = compareP.y - p.y;
@@ -266,17 +552,145 @@ public abstract class SelectionModel {
                 closestIndex = i;
                 closestDistanceSq = distanceSq;
             }
+            i++;
         }
         return closestIndex;
     }
 
+    /**
+     * Return the location on our selection path closest to `p`, as long as it is no farther than
+     * `maxDistance` from `p`; otherwise (or if the path has no segments), return null.  If several
+     * segments are equally close, the one with the smallest index is chosen.  Segments are found
+     * through a spatial index that is kept up to date as the selection changes, so queries stay
+     * fast for selections with many segments.
+     */
+    public EdgeHit closestEdge(Point p, double maxDistance) {
+        int index = selection.closestSegment(p.x, p.y, maxDistance * maxDistance);
+        if (index < 0) {
+            return null;
+        }
+        PolyLine segment = selection.get(index);
+        return new EdgeHit(index, segment.project(p.x, p.y),
+                Math.sqrt(segment.distanceSq(p.x, p.y)));
+    }
+
+    /**
+     * Split the segment of our finished selection with index `index` in two at `p` (usually a
+     * point found by `closestEdge()`), so that `p` becomes a new control point with index
+     * `index + 1`.  Notify listeners that the "selection" property has changed.  Throws an
+     * IllegalStateException if our selection is not finished.  Throws an IllegalArgumentException
+     * if `index` is invalid or if `p` is already one of the segment's endpoints.
+     */
+    public void insertPoint(int index, Point p) {
+        if (state != SELECTED) {
+            throw new IllegalStateException("May not insert point in state " + state);
+        }
+        if (index < 0 || index >= selection.size()) {
+            throw new IllegalArgumentException("Invalid segment index " + index);
+        }
+        PolyLine segment = selection.get(index);
+        if (p.equals(segment.start()) || p.equals(segment.end())) {
+            throw new IllegalArgumentException("Point " + p + " is already a control point");
+        }
+        PolyLine[] parts = segment.split(p);
+        selection.set(index, parts[0]);
+        selection.add(index + 1, parts[1]);
+        propSupport.firePropertyChange("selection", null, selection());
+        recordEdit(EditJournal.Op.INSERT_POINT, index, p);
+    }
+
+    /**
+     * Remove the control point at the start of the segment of our finished selection with index
+     * `index`, replacing that segment and the one before it (wrapping around) with a single
+     * segment joining their outer endpoints (see `mergeSegments()`).  Notify listeners that the
+     * "selection" property has changed.  Takes O(log n) time in the number of segments, plus time
+     * proportional to the length of the merged segment.  Throws an IllegalStateException if our
+     * selection is not finished or if it has only 3 control points (so that removing one would
+     * leave no area).  Throws an IllegalArgumentException if `index` is invalid.
+     */
+    public void removePoint(int index) {
+        if (state != SELECTED) {
+            throw new IllegalStateException("May not remove point in state " + state);
+        }
+        if (index < 0 || index >= selection.size()) {
+            throw new IllegalArgumentException("Invalid segment index " + index);
+        }
+        if (selection.size() <= 3) {
+            throw new IllegalStateException("May not remove point from a selection with "
+                    + selection.size() + " points");
+        }
+        if (index == 0) {
+            // The last segment merges with the first, whose end becomes the path's start
+            PolyLine merged = commit(mergeSegments(selection.removeLast(), selection.get(0)));
+            selection.set(0, merged);
+            start = merged.start();
+        } else {
+            PolyLine merged = commit(mergeSegments(selection.get(index - 1), selection.get(index)));
+            selection.remove(index);
+            selection.set(index - 1, merged);
+        }
+        propSupport.firePropertyChange("selection", null, selection());
+        recordEdit(EditJournal.Op.REMOVE_POINT, index, null);
+    }
+
+    /**
+     * Return the segment that should replace the consecutive segments `before` and `after` when
+     * the control point between them is removed.  It must start at `before.start()` and end at
+     * `after.end()`.  By default, the two are joined by a straight line; subclasses that trace
+     * their segments should override this to follow the image instead.
+     */
+    protected PolyLine mergeSegments(PolyLine before, PolyLine after) {
+        return new PolyLine(before.start(), after.end());
+    }
+
     /**
      * Move the end point of the segment of the selection with index `index` to `newPos`, updating
      * the path of that segment and the next segment (wrapping around) to keep the selection
-     * continuous.
+     * continuous.  Implementations must record the move with `recordEdit()`.
      */
     public abstract void movePoint(int index, Point newPos);
 
+    /**
+     * Note that the mouse pointer is hovering at `p` with no button pressed, as a hint of where
+     * the user may click or drag next.  Subclasses may use idle time to prepare for that.  Does
+     * not modify or retain `p`.  By default, does nothing.
+     */
+    public void trackCursor(Point p) {
+        // No preparation needed
+    }
+
+    /**
+     * Note that the control point at the start of the segment with index `index` is being dragged
+     * to `newPos`, so that subclasses whose segments are expensive to compute can start computing
+     * provisional paths for `movePreview()` in the background.  The selection is not changed until
+     * `movePoint()` is called.  By default, does nothing.
+     */
+    public void previewMove(int index, Point newPos) {
+        // Straight previews need no preparation
+    }
+
+    /**
+     * Return provisional paths for the two segments that would replace the segment with index
+     * `index` and the one before it (wrapping around) if its starting point were moved to
+     * `newPos`: the first from the previous segment's start to `newPos`, and the second from
+     * `newPos` to the segment's end.  Subclasses computing paths in the background return the
+     * most recent paths they have finished, which may end at an earlier position of the point.  By
+     * default, returns straight lines.  Requires our selection is finished and `index` is valid.
+     */
+    public PolyLine[] movePreview(int index, Point newPos) {
+        int prev = (index == 0) ? selection.size() - 1 : index - 1;
+        return new PolyLine[]{new PolyLine(selection.get(prev).start(), newPos),
+                new PolyLine(newPos, selection.get(index).end())};
+    }
+
+    /**
+     * Discard any provisional paths computed for a point that is no longer being dragged, and
+     * cancel their computation.  By default, does nothing.
+     */
+    public void endPreview() {
+        // Nothing to discard
+    }
+
     /**
      * Write a PNG image to `out` containing the pixels from the current selection.  The size of the
      * image matches the bounding box of the selection, and pixels outside of the selection are
@@ -285,18 +699,20 @@ public abstract class SelectionModel {
      */
     public void saveSelection(OutputStream out) throws IOException {
         assert img != null;
+        extractor().write(img, out);
+    }
+
+    /**
+     * Return an extractor of the pixels inside our finished selection, which `saveSelection()`
+     * writes.  It does not depend on this model, so it may be used on any thread, and keeps
+     * working after our selection changes.  Throws an IllegalStateException if our selection is
+     * not finished.
+     */
+    public SelectionExtractor extractor() {
         if (state != SELECTED) {
             throw new IllegalStateException("Must complete selection before saving");
         }
-        Polygon clip = PolyLine.makePolygon(selection);
-        Rectangle bounds = clip.getBounds();
-        clip.translate(-bounds.x, -bounds.y);
-        BufferedImage dst = new BufferedImage(bounds.width, bounds.height,
-                BufferedImage.TYPE_INT_ARGB);
-        var g = dst.createGraphics();
-        g.setClip(clip);
-        g.drawImage(img, -bounds.x, -bounds.y, null);
-        ImageIO.write(dst, "png", out);
+        return new SelectionExtractor(selection);
     }
 
     /* Specialization interface */
@@ -311,6 +727,51 @@ public abstract class SelectionModel {
         propSupport.firePropertyChange("state", oldState, state);
     }
 
+    /**
+     * Record that an edit of kind `op` was applied to our selection, with segment index `index`
+     * and point `p` (null if the edit has none), to our journal, if any.  Subclasses must call
+     * this at the end of their implementations of `movePoint()`, with the point as finally used.
+     * Edits made while replaying are not recorded.
+     */
+    protected void recordEdit(EditJournal.Op op, int index, Point p) {
+        if (journal != null && !replaying) {
+            journal.append(op, index, p);
+        }
+    }
+
+    /**
+     * Return whether edits are being replayed from a journal.  Points given while replaying were
+     * recorded after any adjustment (such as snapping to edges), so subclasses must use them
+     * exactly as given.
+     */
+    protected boolean replaying() {
+        return replaying;
+    }
+
+    /**
+     * Record that our whole selection was replaced, by checkpointing it in our journal, if any.
+     */
+    private void recordReplacement() {
+        if (journal != null && !replaying) {
+            journal.checkpoint();
+        }
+    }
+
+    /**
+     * Record edits to our selection to `journal`, or stop recording them if it is null (internal
+     * operation of `EditJournal`).
+     */
+    void setJournal(EditJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Set whether edits are being replayed from a journal (internal operation of `EditJournal`).
+     */
+    void setReplaying(boolean replaying) {
+        this.replaying = replaying;
+    }
+
     /**
      * When no selection has yet been started, set our starting point to `start` and transition to
      * the SELECTING state.  Listeners will be notified that the "state" property has changed.
@@ -326,7 +787,8 @@ public abstract class SelectionModel {
 
     /**
      * Append a segment from our last point to `p` to our selection.  Requires that our state is
-     * SELECTING.  Not responsible for notifying listeners that the selection has changed.
+     * SELECTING.  Not responsible for notifying listeners that the selection has changed.  The
+     * appended segment will then be replaced by its simplification (see `commit()`).
      */
     protected abstract void appendToSelection(Point p);
 
@@ -383,6 +845,15 @@ public abstract class SelectionModel {
         propSupport.removePropertyChangeListener(propertyName, listener);
     }
 
+    /**
+     * Cancel all background work being performed on behalf of this model, such as previews and
+     * speculative searches.  Call when this model is being replaced, so that its work does not
+     * keep running after it is discarded.  The selection is not changed.
+     */
+    public void cancelBackgroundWork() {
+        tasks.cancelAll();
+    }
+
     /* Methods not used until A6 */
 
     /**
@@ -0,0 +1,328 @@
+package selector;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Carries a finished selection from one image of a sequence (such as the frames of a video or a
+ * time-lapse) to the next, so that nearly the same outline need not be traced again on each one.
+ * <p>
+ * Each control point of the selection (the start of each segment) is refined independently by
+ * patch matching: the square patch of luminance around the point in the previous image is
+ * compared, by the sum of squared differences, with the patch around every position within a
+ * bounded search window of the next image, and the point moves to the best match.  Ties go to the
+ * smallest move, so a point on a featureless area stays put.  The path of each segment is then
+ * carried along with its endpoints: each point along it moves by an offset interpolated between
+ * the moves of the two endpoints, so a segment whose endpoints move together keeps its shape.
+ * <p>
+ * Matching is done from each image to the next, so small errors may accumulate over many frames.
+ * Paths are carried from frame to frame at full resolution, and the path handed over for each
+ * frame is simplified as a selection model would simplify committed segments.  Control points are
+ * matched in parallel on the CPU lane of the shared `ProcessingExecutor`.  Over a sequence, the
+ * next frames are decoded on the I/O lane while the current one is matched, and each frame's
+ * result is handled while the next one is matched.
+ * <p>
+ * Usage: `SelectionPropagator [--patch P] [--search S] [--look-ahead K] <path file> <image dir>
+ * <output dir>`, where the path file holds a finished selection of the first image (by name) in
+ * the image directory.  For each image, the propagated path is saved to "name.sel" and the
+ * selected pixels to "name.png" in the output directory.
+ */
+public final class SelectionPropagator {
+
+    /**
+     * Default radius of the patches compared, and of the window searched around each point.
+     */
+    public static final int DEFAULT_PATCH_RADIUS = 4;
+    public static final int DEFAULT_SEARCH_RADIUS = 8;
+
+    /**
+     * Handles the selection propagated to one frame of a sequence.
+     */
+    @FunctionalInterface
+    public interface FrameHandler {
+
+        /**
+         * Handle the selection propagated to the frame with index `frame`, whose image is
+         * `image`: the finished path `path` (with simplified segments that keep their
+         * full-resolution paths), and `extractor`, an extractor of the pixels of `image` inside
+         * it.  Throws an IOException if the result could not be saved.
+         */
+        void accept(int frame, BufferedImage image, SelectionFile.Contents path,
+                SelectionExtractor extractor) throws IOException;
+    }
+
+    /**
+     * Radius of the square patches compared around each point.  Non-negative.
+     */
+    private final int patchRadius;
+
+    /**
+     * Largest distance, along each axis, that a point may move between consecutive frames.
+     * Non-negative.
+     */
+    private final int searchRadius;
+
+    /**
+     * Create a propagator that compares patches of radius `patchRadius` (so of side
+     * `2 * patchRadius + 1`), moving each point by up to `searchRadius` pixels along each axis
+     * between frames.  Throws an IllegalArgumentException if either is negative.
+     */
+    public SelectionPropagator(int patchRadius, int searchRadius) {
+        if (patchRadius < 0 || searchRadius < 0) {
+            throw new IllegalArgumentException("Radii must be non-negative");
+        }
+        this.patchRadius = patchRadius;
+        this.searchRadius = searchRadius;
+    }
+
+    /**
+     * Return the segments of the finished selection `selection` of image `from` carried over to
+     * image `to`, at full resolution.  The result has as many segments as `selection`, each
+     * starting where the previous one ends, and each control point lies within `to`.  Requires
+     * `selection` is a closed path.
+     */
+    public List<PolyLine> propagate(BufferedImage from, List<PolyLine> selection,
+            BufferedImage to) {
+        int n = selection.size();
+        PixelReader src = new PixelReader(from);
+        PixelReader dst = new PixelReader(to);
+        Point[] moved = new Point[n];
+        Tiles.forEachIndex(ProcessingExecutor.shared().cpuPool(), n,
+                i -> moved[i] = match(src, dst, selection.get(i).start()));
+
+        List<PolyLine> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            PolyLine segment = selection.get(i);
+            Point a = moved[i];
+            Point b = moved[(i + 1) % n];
+            result.add(warp(segment.fullResolution(), a.x - segment.start().x,
+                    a.y - segment.start().y, b.x - segment.end().x, b.y - segment.end().y));
+        }
+        return result;
+    }
+
+    /**
+     * Propagate the finished selection `selection` of image `first` along `frames`, the images
+     * that follow it in order, and pass the result for each frame to `handler`.  Up to
+     * `lookAhead` frames are decoded ahead of the one being matched, and up to `lookAhead`
+     * results are handled while later frames are matched, so `handler` may be called from several
+     * threads at once and not in frame order.  Each result is simplified to within
+     * `SelectionModel.DEFAULT_SIMPLIFY_TOLERANCE`, and its extractor is created, on the thread
+     * that handles it.  Returns once every frame has been handled.  Throws
+     * an IOException if a frame could not be read or `handler` failed, after which no more frames
+     * are handled.  Requires `selection` is a closed path and `lookAhead` is positive.
+     */
+    public void propagateAll(BufferedImage first, List<PolyLine> selection,
+            List<SelectionExtractor.ImageSource> frames, int lookAhead, FrameHandler handler)
+            throws IOException, InterruptedException {
+        ProcessingExecutor.TaskGroup tasks = ProcessingExecutor.shared().newGroup();
+        Queue<Future<BufferedImage>> decoded = new ArrayDeque<>();
+        Queue<Future<?>> handled = new ArrayDeque<>();
+        try {
+            int next = 0;
+            while (next < Math.min(lookAhead, frames.size())) {
+                decoded.add(tasks.submitIo(frames.get(next++)::read));
+            }
+            BufferedImage prev = first;
+            List<PolyLine> path = selection;
+            for (int frame = 0; frame < frames.size(); frame++) {
+                BufferedImage img = await(decoded.remove());
+                if (next < frames.size()) {
+                    decoded.add(tasks.submitIo(frames.get(next++)::read));
+                }
+                path = propagate(prev, path, img);
+                prev = img;
+
+                if (handled.size() >= lookAhead) {
+                    await(handled.remove());
+                }
+                int index = frame;
+                List<PolyLine> result = path;
+                handled.add(tasks.submitCpu(() -> {
+                    List<PolyLine> simplified = new ArrayList<>(result.size());
+                    for (PolyLine segment : result) {
+                        simplified.add(segment.simplify(
+                                SelectionModel.DEFAULT_SIMPLIFY_TOLERANCE));
+                    }
+                    handler.accept(index, img, new SelectionFile.Contents(
+                                    simplified.getFirst().start(), simplified, true),
+                            new SelectionExtractor(simplified));
+                    return null;
+                }));
+            }
+            while (!handled.isEmpty()) {
+                await(handled.remove());
+            }
+        } finally {
+            tasks.cancelAll();
+        }
+    }
+
+    /**
+     * Return the result of `future`, waiting for it if needed.  Rethrows an IOException or
+     * unchecked exception thrown by its task.
+     */
+    private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            } else if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Return the position in the image read by `dst` whose surrounding patch best matches the
+     * patch around `p` in the image read by `src`, among positions within `searchRadius` of `p`
+     * along each axis.  Among equally good matches, the one closest to `p` is returned.  The
+     * result is clamped to the corners of `dst`'s pixels, so a point on the image's right or
+     * bottom edge (at its width or height) stays there.
+     */
+    private Point match(PixelReader src, PixelReader dst, Point p) {
+        int side = 2 * patchRadius + 1;
+        int windowSide = side + 2 * searchRadius;
+        int[] patch = readWindow(src, p.x, p.y, patchRadius);
+        int[] window = readWindow(dst, p.x, p.y, patchRadius + searchRadius);
+
+        long best = Long.MAX_VALUE;
+        int bestDistance = Integer.MAX_VALUE;
+        int bestDx = 0;
+        int bestDy = 0;
+        for (int dy = -searchRadius; dy <= searchRadius; dy++) {
+            for (int dx = -searchRadius; dx <= searchRadius; dx++) {
+                int distance = dx * dx + dy * dy;
+                int base = (dy + searchRadius) * windowSide + dx + searchRadius;
+                long ssd = 0;
+                // Give up on this position once it is worse than the best so far
+                for (int j = 0; j < side && ssd <= best; j++) {
+                    int pi = j * side;
+                    int wi = base + j * windowSide;
+                    for (int i = 0; i < side; i++) {
+                        int d = patch[pi + i] - window[wi + i];
+                        ssd += d * d;
+                    }
+                }
+                if (ssd < best || (ssd == best && distance < bestDistance)) {
+                    best = ssd;
+                    bestDistance = distance;
+                    bestDx = dx;
+                    bestDy = dy;
+                }
+            }
+        }
+        return new Point(Math.clamp(p.x + bestDx, 0, dst.width()),
+                Math.clamp(p.y + bestDy, 0, dst.height()));
+    }
+
+    /**
+     * Return the luminance of the square of pixels of radius `radius` around (`cx`, `cy`) in the
+     * image read by `pixels`, in row-major order.  Pixels beyond the edges of the image take the
+     * value of the nearest pixel on its edge, even if the whole square lies beyond them.
+     */
+    static int[] readWindow(PixelReader pixels, int cx, int cy, int radius) {
+        int side = 2 * radius + 1;
+        int[] window = new int[side * side];
+        int w = pixels.width();
+        int x0 = Math.clamp(cx - radius, 0, w - 1);
+        int x1 = Math.clamp(cx + radius, 0, w - 1);
+        // Offsets in each row of the first and last columns read from the image; if the square
+        // misses the image, the one edge column read goes at the square's nearer side
+        int first = Math.clamp(x0 - (cx - radius), 0, side - 1);
+        int last = Math.clamp(x1 - (cx - radius), 0, side - 1);
+        for (int j = 0; j < side; j++) {
+            int y = Math.clamp(cy - radius + j, 0, pixels.height() - 1);
+            int row = j * side;
+            pixels.readLuma(x0, y, last - first + 1, window, row + first);
+            Arrays.fill(window, row, row + first, window[row + first]);
+            Arrays.fill(window, row + last + 1, row + side, window[row + last]);
+        }
+        return window;
+    }
+
+    /**
+     * Return a copy of `path` whose first point is moved by (`dx0`, `dy0`) and whose last point
+     * is moved by (`dx1`, `dy1`), and each point between them is moved by an offset interpolated
+     * linearly (by index) between the two.
+     */
+    static PolyLine warp(PolyLine path, int dx0, int dy0, int dx1, int dy1) {
+        int n = path.size();
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        path.copyTo(0, xs, ys, 0, n);
+        for (int k = 0; k < n; k++) {
+            double t = (double) k / (n - 1);
+            xs[k] += (int) Math.round(dx0 + t * (dx1 - dx0));
+            ys[k] += (int) Math.round(dy0 + t * (dy1 - dy0));
+        }
+        return new PolyLine(xs, ys);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int patch = DEFAULT_PATCH_RADIUS;
+        int search = DEFAULT_SEARCH_RADIUS;
+        int lookAhead = Runtime.getRuntime().availableProcessors();
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--patch" -> patch = Integer.parseInt(args[++i]);
+                case "--search" -> search = Integer.parseInt(args[++i]);
+                case "--look-ahead" -> lookAhead = Integer.parseInt(args[++i]);
+                default -> positional.add(args[i]);
+            }
+        }
+        if (positional.size() != 3 || patch < 0 || search < 0 || lookAhead < 1) {
+            System.err.println("Usage: SelectionPropagator [--patch P] [--search S] "
+                    + "[--look-ahead K] <path file> <image dir> <output dir>");
+            System.exit(2);
+        }
+        SelectionFile.Contents path = SelectionFile.load(Path.of(positional.get(0)));
+        if (!path.finished()) {
+            System.err.println(positional.get(0) + ": selection is not finished");
+            System.exit(1);
+        }
+        List<Path> images = BatchExtractor.listImages(Path.of(positional.get(1)));
+        if (images.isEmpty()) {
+            System.err.println(positional.get(1) + ": no images");
+            System.exit(1);
+        }
+        Path outDir = Files.createDirectories(Path.of(positional.get(2)));
+        BufferedImage first = SelectionExtractor.ImageSource.of(images.getFirst()).read();
+        List<Path> rest = images.subList(1, images.size());
+        List<SelectionExtractor.ImageSource> frames = new ArrayList<>();
+        for (Path image : rest) {
+            frames.add(SelectionExtractor.ImageSource.of(image));
+        }
+
+        long t0 = System.nanoTime();
+        new SelectionPropagator(patch, search).propagateAll(first, path.segments(), frames,
+                lookAhead, (frame, image, result, extractor) -> {
+                    String name = BatchExtractor.baseName(rest.get(frame));
+                    try (OutputStream out = Files.newOutputStream(
+                            outDir.resolve(name + ".sel"))) {
+                        SelectionFile.write(result, out);
+                    }
+                    try (OutputStream out = Files.newOutputStream(
+                            outDir.resolve(name + ".png"))) {
+                        extractor.write(image, out);
+                    }
+                });
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("%d frames propagated in %.1f s (%.1f frames/s)%n", rest.size(),
+                seconds, rest.size() / seconds);
+    }
+}
@@ -5,10 +5,17 @@ import static selector.SelectionModel.SelectionState.*;
 import java.awt.*;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -20,6 +27,11 @@ import selector.SelectionModel.SelectionState;
  */
 public class SelectorApp implements PropertyChangeListener {
 
+    /**
+     * How far (in pixels) points are snapped to nearby edges when "Snap to edges" is checked.
+     */
+    private static final int SNAP_RADIUS = 5;
+
     /**
      * Our application window.  Disposed when application exits.
      */
@@ -37,13 +49,42 @@ public class SelectorApp implements PropertyChangeListener {
 
     /* Components whose state must be changed during the selection process. */
     private JMenuItem saveItem;
+    private JMenuItem savePathItem;
+    private JMenuItem exportPathItem;
     private JMenuItem undoItem;
+    private JCheckBoxMenuItem snapItem;
+    private JCheckBoxMenuItem coolingItem;
     private JButton cancelButton;
     private JButton undoButton;
     private JButton resetButton;
     private JButton finishButton;
     private final JLabel statusLabel;
 
+    /**
+     * The menu item choosing each selection tool, by the class name of its model.
+     */
+    private final Map<String, JRadioButtonMenuItem> toolItems = new HashMap<>();
+
+    /**
+     * Image loads and saves running in the background.
+     */
+    private final ProcessingExecutor.TaskGroup ioTasks = ProcessingExecutor.shared().newGroup();
+
+    /**
+     * Records the mouse events of the current session while "Record trace" is checked, else null.
+     */
+    private TraceRecorder recorder;
+
+    /**
+     * Directory holding the journal of the current session (see `EditJournal`).
+     */
+    private static final Path JOURNAL_DIR =
+            Path.of(System.getProperty("user.home"), ".selector", "journal");
+
+    /**
+     * Journal of the edits made to our selection model, or null until the first image is opened.
+     */
+    private EditJournal journal;
 
     /**
      * Construct a new application instance.  Initializes GUI components, so must be invoked on the
@@ -54,6 +95,12 @@ public class SelectorApp implements PropertyChangeListener {
         // Initialize application window
         frame = new JFrame("Selector");
         frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                closeJournal();
+            }
+        });
 
         // Add status bar
         statusLabel = new JLabel();
@@ -106,6 +153,12 @@ public class SelectorApp implements PropertyChangeListener {
         fileMenu.add(openItem);
         saveItem = new JMenuItem("Save...");
         fileMenu.add(saveItem);
+        JMenuItem openPathItem = new JMenuItem("Open path...");
+        fileMenu.add(openPathItem);
+        savePathItem = new JMenuItem("Save path...");
+        fileMenu.add(savePathItem);
+        exportPathItem = new JMenuItem("Export path as JSON...");
+        fileMenu.add(exportPathItem);
         JMenuItem closeItem = new JMenuItem("Close");
         fileMenu.add(closeItem);
         JMenuItem exitItem = new JMenuItem("Exit");
@@ -116,6 +169,28 @@ public class SelectorApp implements PropertyChangeListener {
         menuBar.add(editMenu);
         undoItem = new JMenuItem("Undo");
         editMenu.add(undoItem);
+        snapItem = new JCheckBoxMenuItem("Snap to edges");
+        editMenu.add(snapItem);
+        coolingItem = new JCheckBoxMenuItem("Path cooling", true);
+        editMenu.add(coolingItem);
+        JMenuItem timingsItem = new JMenuItem("Show timings...");
+        editMenu.add(timingsItem);
+        JCheckBoxMenuItem recordItem = new JCheckBoxMenuItem("Record trace");
+        editMenu.add(recordItem);
+
+        // Create and populate Selection menu (choice of selection tool)
+        JMenu selectionMenu = new JMenu("Selection");
+        menuBar.add(selectionMenu);
+        ButtonGroup toolGroup = new ButtonGroup();
+        JRadioButtonMenuItem pointToPointItem = new JRadioButtonMenuItem("Point-to-point", true);
+        toolGroup.add(pointToPointItem);
+        selectionMenu.add(pointToPointItem);
+        JRadioButtonMenuItem magicWandItem = new JRadioButtonMenuItem("Magic wand");
+        toolGroup.add(magicWandItem);
+        selectionMenu.add(magicWandItem);
+        JRadioButtonMenuItem scissorsItem = new JRadioButtonMenuItem("Intelligent scissors");
+        toolGroup.add(scissorsItem);
+        selectionMenu.add(scissorsItem);
 
         // Assign accelerators to menu items
         openItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O, InputEvent.CTRL_DOWN_MASK));
@@ -128,8 +203,30 @@ public class SelectorApp implements PropertyChangeListener {
         openItem.addActionListener(e -> openImage());
         closeItem.addActionListener(e -> imgPanel.setImage(null));
         saveItem.addActionListener(e -> saveSelection());
+        openPathItem.addActionListener(e -> openPath());
+        savePathItem.addActionListener(e -> savePath(false));
+        exportPathItem.addActionListener(e -> savePath(true));
         exitItem.addActionListener(e -> frame.dispose());
         undoItem.addActionListener(e -> model.undo());
+        snapItem.addActionListener(e -> applySnapSetting());
+        coolingItem.addActionListener(e -> applyCoolingSetting());
+        timingsItem.addActionListener(e -> showTimings());
+        recordItem.addActionListener(e -> {
+            if (recordItem.isSelected()) {
+                startRecording();
+            } else {
+                stopRecording();
+            }
+        });
+        pointToPointItem.addActionListener(
+                e -> setSelectionModel(new PointToPointSelectionModel(model)));
+        magicWandItem.addActionListener(
+                e -> setSelectionModel(new MagicWandSelectionModel(model)));
+        scissorsItem.addActionListener(
+                e -> setSelectionModel(new ScissorsSelectionModel(model)));
+        toolItems.put(PointToPointSelectionModel.class.getName(), pointToPointItem);
+        toolItems.put(MagicWandSelectionModel.class.getName(), magicWandItem);
+        toolItems.put(ScissorsSelectionModel.class.getName(), scissorsItem);
 
         return menuBar;
     }
@@ -189,6 +286,8 @@ public class SelectorApp implements PropertyChangeListener {
         cancelButton.setEnabled(false);
         finishButton.setEnabled(false);
         saveItem.setEnabled(false);
+        savePathItem.setEnabled(false);
+        exportPathItem.setEnabled(false);
         undoButton.setEnabled(false);
         resetButton.setEnabled(false);
         //Could have done an if else statement tree. Or something with ?. Wanted to try this.
@@ -198,6 +297,8 @@ public class SelectorApp implements PropertyChangeListener {
                 cancelButton.setEnabled(true);
                 break;
             case SELECTING:
+                savePathItem.setEnabled(true);
+                exportPathItem.setEnabled(true);
                 finishButton.setEnabled(true);
                 undoButton.setEnabled(true);
                 resetButton.setEnabled(true);
@@ -206,6 +307,8 @@ public class SelectorApp implements PropertyChangeListener {
                 undoButton.setEnabled(true);
                 resetButton.setEnabled(true);
                 saveItem.setEnabled(true);
+                savePathItem.setEnabled(true);
+                exportPathItem.setEnabled(true);
                 break;
             case NO_SELECTION:
                 // Nothing to enable for NO_SELECTION state
@@ -226,18 +329,101 @@ public class SelectorApp implements PropertyChangeListener {
      * instead respond to property changes from `newModel`.
      */
     public void setSelectionModel(SelectionModel newModel) {
-        // Stop listening to old model
+        // Stop listening to old model, and stop any work it was doing in the background
         if (model != null) {
             model.removePropertyChangeListener(this);
+            model.cancelBackgroundWork();
         }
 
         imgPanel.setSelectionModel(newModel);
         model = imgPanel.selection();
         model.addPropertyChangeListener("state", this);
+        applySnapSetting();
+        applyCoolingSetting();
 
         // Since the new model's initial state may be different from the old model's state, manually
         //  trigger an update to our state-dependent view.
         reflectSelectionState(model.state());
+        if (journal != null) {
+            journal.setModel(model);
+        }
+    }
+
+    /**
+     * Enable or disable edge snapping on our selection model (if it supports snapping) according
+     * to whether "Snap to edges" is checked.
+     */
+    private void applySnapSetting() {
+        if (model instanceof PointToPointSelectionModel p2p) {
+            p2p.setSnapRadius(snapItem.isSelected() ? SNAP_RADIUS : 0);
+        }
+    }
+
+    /**
+     * Enable or disable automatic commitment of stable live-wire prefixes on our selection model
+     * (if it supports path cooling) according to whether "Path cooling" is checked.
+     */
+    private void applyCoolingSetting() {
+        if (model instanceof ScissorsSelectionModel scissors) {
+            scissors.setCoolingMoves(coolingItem.isSelected()
+                    ? ScissorsSelectionModel.DEFAULT_COOLING_MOVES : 0);
+        }
+    }
+
+    /**
+     * Show a dialog with the latency percentiles of each stage of interaction timed so far (see
+     * `Metrics`).
+     */
+    private void showTimings() {
+        JTextArea text = new JTextArea(Metrics.report());
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        text.setEditable(false);
+        JOptionPane.showMessageDialog(frame, text, "Timings", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Start recording the mouse events received by our selection component (see
+     * `TraceRecorder`), for replaying offline with `TraceReplay`.
+     */
+    private void startRecording() {
+        BufferedImage img = imgPanel.image();
+        recorder = (img == null) ? new TraceRecorder(0, 0)
+                : new TraceRecorder(img.getWidth(), img.getHeight());
+        recorder.attach(imgPanel.selectionComponent());
+    }
+
+    /**
+     * Stop recording mouse events, and save the trace to a file selected from a "save" dialog
+     * (unless the dialog is cancelled).  The trace is written on an I/O thread.
+     */
+    private void stopRecording() {
+        if (recorder == null) {
+            return;
+        }
+        recorder.detach();
+        InteractionTrace trace = recorder.trace();
+        recorder = null;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
+        chooser.setFileFilter(new FileNameExtensionFilter("Interaction traces", "trace"));
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        if (!file.getName().toLowerCase().endsWith(".trace")) {
+            file = new File(file.getAbsolutePath() + ".trace");
+        }
+        File target = file;
+        ioTasks.submitIo(() -> {
+            try (OutputStream out = new FileOutputStream(target)) {
+                trace.write(out);
+            } catch (IOException e) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame,
+                        e.getMessage(), e.getClass().getSimpleName(),
+                        JOptionPane.ERROR_MESSAGE));
+            }
+            return null;
+        });
     }
 
     /**
@@ -246,12 +432,88 @@ public class SelectorApp implements PropertyChangeListener {
      */
     public void setImage(BufferedImage img) {
         imgPanel.setImage(img);
+        if (img != null && journal == null) {
+            startJournal(img);
+        }
+    }
+
+    /**
+     * Offer to restore the session journaled by the previous run, if it crashed while editing a
+     * selection of `img`, then start journaling edits to our selection model.  The journal is read
+     * (and `img` compared with the session's image) on an I/O thread.  If the user accepts, the
+     * selection tool the session was recorded with is selected and the session is replayed into
+     * it.  Show an error message dialog if the journal could not be started.
+     */
+    private void startJournal(BufferedImage img) {
+        ioTasks.submitIo(() -> {
+            EditJournal.Session session;
+            try {
+                session = EditJournal.load(JOURNAL_DIR);
+            } catch (IOException e) {
+                session = null;
+            }
+            EditJournal.Session previous =
+                    (session != null && session.recordedOver(img)) ? session : null;
+            SwingUtilities.invokeLater(() -> {
+                if (journal != null || model.image() != img) {
+                    return;
+                }
+                if (previous != null) {
+                    offerRecovery(previous);
+                }
+                try {
+                    journal = EditJournal.open(JOURNAL_DIR, model);
+                } catch (IOException e) {
+                    showError(e);
+                }
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Ask the user whether to restore `session`, which was recorded over our current image, and
+     * if they agree, switch to the selection tool it was recorded with and replay it.  Sessions
+     * recorded with an unknown tool are ignored.
+     */
+    private void offerRecovery(EditJournal.Session session) {
+        JRadioButtonMenuItem toolItem = toolItems.get(session.tool());
+        if (toolItem == null) {
+            return;
+        }
+        int answer = JOptionPane.showConfirmDialog(frame,
+                "The previous session ended unexpectedly. Restore its selection?",
+                "Restore Selection", JOptionPane.YES_NO_OPTION);
+        if (answer != JOptionPane.YES_OPTION) {
+            return;
+        }
+        if (!toolItem.isSelected()) {
+            // Switches our model just as choosing the tool from the menu would
+            toolItem.doClick();
+        }
+        session.replayInto(model);
+    }
+
+    /**
+     * Stop journaling, if we are, and delete the journal, since a session that ends normally
+     * need not be restored.
+     */
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.discard();
+            } catch (IOException e) {
+                // The session may be offered for recovery next time; the user may decline it
+            }
+            journal = null;
+        }
     }
 
     /**
      * Allow the user to choose a new image from an "open" dialog.  If they do, start displaying and
-     * selecting from that image.  Show an error message dialog (and retain any previous image) if
-     * the chosen image could not be opened.
+     * selecting from that image once it has been read in the background.  Show an error message
+     * dialog (and retain any previous image) if the chosen image could not be opened, then show
+     * the "open" dialog again.
      */
     private void openImage() {
         JFileChooser chooser = new JFileChooser();
@@ -260,50 +522,45 @@ public class SelectorApp implements PropertyChangeListener {
         // Filter for file extensions supported by Java's ImageIO readers
         chooser.setFileFilter(new FileNameExtensionFilter("Image files",
                 ImageIO.getReaderFileSuffixes()));
-        int returnVal = 0;
-        boolean issueAFO = false;
-        while(!issueAFO) {
-            returnVal = chooser.showOpenDialog(null);
-            if (returnVal == JFileChooser.APPROVE_OPTION) { // == 0
-                try {
-                    File selectedFile = chooser.getSelectedFile();
-                    BufferedImage img = ImageIO.read(selectedFile);
-                    if (img != null) {
-                        this.setImage(img);
-                        issueAFO = true; // allow the chooser to close
-                    } else {
-                        throw new IOException("Failed to read image.");
-                    }
-                } catch (IOException e) {
-                    JOptionPane.showMessageDialog(null,
+        openImage(chooser);
+    }
+
+    /**
+     * Show an "open" dialog using `chooser`, and if the user selects a file, read it on an I/O
+     * thread and then set it as the current image.  By reusing the same chooser after a problem,
+     * the dialog shows the same directory as before.
+     */
+    private void openImage(JFileChooser chooser) {
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File selectedFile = chooser.getSelectedFile();
+        ioTasks.submitIo(() -> {
+            try {
+                BufferedImage img = Metrics.time(Metrics.LOAD_IMAGE,
+                        () -> ImageIO.read(selectedFile));
+                if (img == null) {
+                    throw new IOException("Failed to read image.");
+                }
+                SwingUtilities.invokeLater(() -> setImage(img));
+            } catch (IOException e) {
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(frame,
                             "Error opening image: " + e.getMessage(),
                             "Unsupported Image Format",
                             JOptionPane.ERROR_MESSAGE);
-                }
-            }else{
-                break;
+                    openImage(chooser);
+                });
             }
-        }
-        if (!issueAFO && returnVal != JFileChooser.CANCEL_OPTION) {
-            openImage(); // Recursive call to show the dialog again
-        }
-        //  Complete this method as specified by performing the following tasks:
-        //  * Show an "open file" dialog using the above chooser [1].
-        //  * If the user selects a file, read it into a BufferedImage [2], then set that as the
-        //    current image (by calling `this.setImage()`).
-        //  * If a problem occurs when reading the file (either an exception is thrown or null is
-        //    returned), show an error dialog with a descriptive title and message [3].
-        //  [1] https://docs.oracle.com/javase/tutorial/uiswing/components/filechooser.html
-        //  [2] https://docs.oracle.com/javase/tutorial/2d/images/loadimage.html
-        //  [3] https://docs.oracle.com/javase/tutorial/uiswing/components/dialog.html
-        //  (embellishment): After a problem, re-show the open dialog.  By reusing the same
-        //  chooser, the dialog will show the same directory as before the problem. (1 point)
-
+            return null;
+        });
     }
 
     /**
-     * Save the selected region of the current image to a file selected from a "save" dialog.
-     * Show an error message dialog if the image could not be saved.
+     * Save the selected region of the current image to a file selected from a "save" dialog.  The
+     * image is encoded and written on an I/O thread by an extractor of the current selection, so
+     * editing may continue meanwhile.  Show an error message dialog if the image could not be
+     * saved.
      */
     private void saveSelection() {
         JFileChooser chooser = new JFileChooser();
@@ -334,20 +591,103 @@ public class SelectorApp implements PropertyChangeListener {
                 }
             }
 
+            SelectionExtractor extractor = model.extractor();
+            BufferedImage img = model.image();
+            File target = file;
+            ioTasks.submitIo(() -> {
+                try (OutputStream fileOut = new FileOutputStream(target)) {
+                    extractor.write(img, fileOut);
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame,
+                            "Image saved successfully!", "Success",
+                            JOptionPane.INFORMATION_MESSAGE));
+                } catch (IOException e) {
+                    SwingUtilities.invokeLater(() -> {
+                        JOptionPane.showMessageDialog(frame,
+                                e.getMessage(),
+                                e.getClass().getSimpleName(), JOptionPane.ERROR_MESSAGE);
+                        // (3)
+                        saveSelection();
+                    });
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Allow the user to choose a selection file (see `SelectionFile`) from an "open" dialog, and
+     * if they do, read it on an I/O thread and then replace the current selection with its path.
+     * Show an error message dialog if the file could not be read.
+     */
+    private void openPath() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
+        chooser.setFileFilter(new FileNameExtensionFilter("Selection paths", "sel"));
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        ioTasks.submitIo(() -> {
             try {
-                //ImageIO.write(dst, "png", file);
-                FileOutputStream fileOut = new FileOutputStream(file);
-                model.saveSelection(fileOut);
-                JOptionPane.showMessageDialog(frame,
-                        "Image saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                SelectionFile.Contents path = SelectionFile.load(file.toPath());
+                SwingUtilities.invokeLater(() -> {
+                    try {
+                        path.restoreTo(model);
+                    } catch (IllegalArgumentException e) {
+                        showError(e);
+                    }
+                });
             } catch (IOException e) {
-                JOptionPane.showMessageDialog(frame,
-                        e.getMessage(),
-                        e.getClass().getSimpleName(), JOptionPane.ERROR_MESSAGE);
-                // (3)
-                saveSelection();
+                SwingUtilities.invokeLater(() -> showError(e));
             }
+            return null;
+        });
+    }
+
+    /**
+     * Save the current selection path to a file selected from a "save" dialog, as a selection
+     * file (see `SelectionFile`) or, if `json` is true, as JSON.  The file is written on an I/O
+     * thread from a copy of the current selection.  Show an error message dialog if the path could
+     * not be saved.
+     */
+    private void savePath(boolean json) {
+        String extension = json ? "json" : "sel";
+        JFileChooser chooser = new JFileChooser();
+        chooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
+        chooser.setFileFilter(new FileNameExtensionFilter(
+                json ? "JSON files" : "Selection paths", extension));
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        File file = chooser.getSelectedFile();
+        if (!file.getName().toLowerCase().endsWith("." + extension)) {
+            file = new File(file.getAbsolutePath() + "." + extension);
+        }
+        SelectionFile.Contents snapshot = new SelectionFile.Contents(
+                (model.start == null) ? null : new Point(model.start),
+                List.copyOf(model.selection()), model.state() == SELECTED);
+        File target = file;
+        ioTasks.submitIo(() -> {
+            try (OutputStream out = new FileOutputStream(target)) {
+                if (json) {
+                    SelectionFile.writeJson(snapshot,
+                            new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                } else {
+                    SelectionFile.write(snapshot, out);
+                }
+            } catch (IOException e) {
+                SwingUtilities.invokeLater(() -> showError(e));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Show an error message dialog describing `e`.
+     */
+    private void showError(Exception e) {
+        JOptionPane.showMessageDialog(frame, e.getMessage(), e.getClass().getSimpleName(),
+                JOptionPane.ERROR_MESSAGE);
     }
 
     /**
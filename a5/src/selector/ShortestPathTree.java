@@ -0,0 +1,289 @@
+package selector;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Shortest paths from a seed pixel to the other pixels of an image, where each pixel is connected
+ * to its 8 neighbors and stepping between pixels costs less along strong edges.  The tree is
+ * grown lazily with Dijkstra's algorithm: `expandTo()` settles pixels in order of distance only
+ * until the requested pixel is settled, and later requests resume from where the last one
+ * stopped.  So a tree can be kept for a fixed anchor and queried for a moving target, each query
+ * costing only the pixels newly within reach.
+ * <p>
+ * Step costs are small integers, so the priority queue is a ring of buckets indexed by distance
+ * (Dial's algorithm), making each insertion and removal take constant time.  Step costs are
+ * symmetric, so the path from a to b is the reverse of the path from b to a.
+ * <p>
+ * Expansion and queries are synchronized, so a tree may be grown on a background thread while
+ * another thread waits to query it.
+ */
+final class ShortestPathTree {
+
+    /**
+     * Offsets of the neighbor in each direction, counterclockwise on screen starting from +x (as
+     * in `ChainCodePolyLine`).  Even directions are horizontal or vertical; odd ones are diagonal.
+     */
+    private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] DY = {0, -1, -1, -1, 0, 1, 1, 1};
+
+    /**
+     * Largest per-pixel weight (given to pixels with no gradient).  The strongest edge in an image
+     * has weight 1.
+     */
+    static final int MAX_WEIGHT = 31;
+
+    /**
+     * Multipliers for horizontal/vertical and diagonal steps, approximating a ratio of sqrt(2).
+     */
+    private static final int STRAIGHT = 5, DIAGONAL = 7;
+
+    /**
+     * Number of buckets in the priority queue: one more than the largest step cost, so that every
+     * tentative distance lies within one lap of the ring.
+     */
+    private static final int BUCKETS = 2 * MAX_WEIGHT * DIAGONAL + 1;
+
+    /**
+     * Number of pixels settled between checks for cancellation.
+     */
+    private static final int CHECK_INTERVAL = 4096;
+
+    /**
+     * Bits of `state`: the direction from a pixel to its parent, whether it has a parent, and
+     * whether its distance is final.
+     */
+    private static final byte DIRECTION = 7, REACHED = 8, SETTLED = 16;
+
+    private final int width, height;
+
+    /**
+     * Per-pixel weights in row-major order, as returned by `weights()`.
+     */
+    private final byte[] weights;
+
+    /**
+     * Row-major index of the seed pixel.
+     */
+    private final int seed;
+
+    /**
+     * Tentative (or, once settled, final) distance from the seed to each reached pixel.
+     */
+    private final int[] dist;
+
+    /**
+     * Flags of each pixel; see `DIRECTION`, `REACHED`, and `SETTLED`.
+     */
+    private final byte[] state;
+
+    /**
+     * Priority queue: bucket `d % BUCKETS` holds pixels with tentative distance `d`, for distances
+     * from `cursor` to `cursor + BUCKETS - 1`.  Buckets are used as stacks and may hold stale
+     * entries for pixels whose distance has since decreased.
+     */
+    private final int[][] buckets = new int[BUCKETS][];
+    private final int[] bucketSizes = new int[BUCKETS];
+    private int cursor;
+
+    /**
+     * Number of pixels settled so far.
+     */
+    private int settledCount;
+
+    /**
+     * Create a tree of paths from the pixel `seed` over an image of the given size whose per-pixel
+     * weights are `weights` (see `weights()`).  The seed is clamped to the image.  Allocates
+     * per-pixel arrays but does not search until `expandTo()` is called.
+     */
+    ShortestPathTree(int width, int height, byte[] weights, Point seed) {
+        this.width = width;
+        this.height = height;
+        this.weights = weights;
+        this.seed = Math.clamp(seed.y, 0, height - 1) * width + Math.clamp(seed.x, 0, width - 1);
+        dist = new int[width * height];
+        state = new byte[width * height];
+        push(this.seed, 0);
+        state[this.seed] = REACHED;
+    }
+
+    /**
+     * Return per-pixel weights for paths over the image with gradient `gradient`: from 1 at the
+     * strongest edge up to `MAX_WEIGHT` where the image is flat.
+     */
+    static byte[] weights(GradientMap gradient) {
+        float[] magnitude = gradient.magnitude();
+        float max = gradient.maxMagnitude();
+        byte[] weights = new byte[magnitude.length];
+        float scale = (max == 0) ? 0 : (MAX_WEIGHT - 1) / max;
+        for (int i = 0; i < magnitude.length; i++) {
+            weights[i] = (byte) (MAX_WEIGHT - Math.round(magnitude[i] * scale));
+        }
+        return weights;
+    }
+
+    /**
+     * Return the number of pixels whose shortest paths are known.
+     */
+    synchronized int settledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Settle pixels in order of distance until the shortest path to `target` (clamped to the
+     * image) is known, returning true, or until `cancelled` returns true, returning false.
+     * `cancelled` is polled every few thousand pixels.
+     */
+    synchronized boolean expandTo(Point target, BooleanSupplier cancelled) {
+        int t = index(target);
+        int sinceCheck = 0;
+        while ((state[t] & SETTLED) == 0) {
+            if (++sinceCheck == CHECK_INTERVAL) {
+                sinceCheck = 0;
+                if (cancelled.getAsBoolean()) {
+                    return false;
+                }
+            }
+            settleNext();
+        }
+        return true;
+    }
+
+    /**
+     * Settle up to `pixels` more pixels (fewer if every pixel is settled first), in order of
+     * distance, stopping early if `cancelled` returns true (polled every few thousand pixels).
+     * Used to grow the tree speculatively around where paths are likely to be requested.
+     */
+    synchronized void expandBy(int pixels, BooleanSupplier cancelled) {
+        int goal = (int) Math.min((long) settledCount + pixels, (long) width * height);
+        int sinceCheck = 0;
+        while (settledCount < goal) {
+            if (++sinceCheck == CHECK_INTERVAL) {
+                sinceCheck = 0;
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+            }
+            settleNext();
+        }
+    }
+
+    /**
+     * Return whether the shortest path to `p` (clamped to the image) is already known, so that
+     * `pathTo(p)` needs no further search.
+     */
+    synchronized boolean isSettled(Point p) {
+        return (state[index(p)] & SETTLED) != 0;
+    }
+
+    /**
+     * Return the shortest path from the seed to `target` (clamped to the image), expanding the
+     * tree as far as necessary.  If the target is the seed, the path has two identical points.
+     */
+    synchronized PolyLine pathTo(Point target) {
+        expandTo(target, () -> false);
+        int t = index(target);
+        int n = 1;
+        for (int p = t; p != seed; p = parent(p)) {
+            n++;
+        }
+        int[] xs = new int[Math.max(n, 2)];
+        int[] ys = new int[xs.length];
+        int i = xs.length - 1;
+        for (int p = t; ; p = parent(p)) {
+            xs[i] = p % width;
+            ys[i] = p / width;
+            if (p == seed) {
+                break;
+            }
+            i--;
+        }
+        // A path to the seed itself repeats it
+        xs[0] = seed % width;
+        ys[0] = seed / width;
+        return new PolyLine(xs, ys);
+    }
+
+    /**
+     * Return the shortest path from `target` (clamped to the image) to the seed, the reverse of
+     * `pathTo(target)`.
+     */
+    PolyLine pathFrom(Point target) {
+        // The forward path is not shared, so its arrays can be reversed in place
+        PolyLine path = pathTo(target);
+        int[] xs = path.xs();
+        int[] ys = path.ys();
+        for (int i = 0, j = xs.length - 1; i < j; i++, j--) {
+            int tx = xs[i];
+            xs[i] = xs[j];
+            xs[j] = tx;
+            int ty = ys[i];
+            ys[i] = ys[j];
+            ys[j] = ty;
+        }
+        return new PolyLine(xs, ys);
+    }
+
+    private int index(Point p) {
+        return Math.clamp(p.y, 0, height - 1) * width + Math.clamp(p.x, 0, width - 1);
+    }
+
+    private int parent(int p) {
+        int d = state[p] & DIRECTION;
+        return p + DY[d] * width + DX[d];
+    }
+
+    /**
+     * Settle the closest unsettled pixel and relax the steps to its neighbors.  Requires some
+     * pixel remains unsettled.
+     */
+    private void settleNext() {
+        int p;
+        do {
+            while (bucketSizes[cursor % BUCKETS] == 0) {
+                cursor++;
+            }
+            int b = cursor % BUCKETS;
+            p = buckets[b][--bucketSizes[b]];
+            // Skip stale entries for pixels that were reached again more cheaply
+        } while ((state[p] & SETTLED) != 0 || dist[p] != cursor);
+        state[p] |= SETTLED;
+        settledCount++;
+
+        int x = p % width;
+        int y = p / width;
+        int wp = weights[p];
+        for (int d = 0; d < 8; d++) {
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                continue;
+            }
+            int q = ny * width + nx;
+            byte s = state[q];
+            if ((s & SETTLED) != 0) {
+                continue;
+            }
+            int nd = cursor + (wp + weights[q]) * ((d & 1) == 0 ? STRAIGHT : DIAGONAL);
+            if ((s & REACHED) == 0 || nd < dist[q]) {
+                dist[q] = nd;
+                // Record the direction back towards `p`
+                state[q] = (byte) (REACHED | ((d + 4) & DIRECTION));
+                push(q, nd);
+            }
+        }
+    }
+
+    private void push(int p, int d) {
+        int b = d % BUCKETS;
+        int[] bucket = buckets[b];
+        if (bucket == null) {
+            bucket = buckets[b] = new int[16];
+        } else if (bucketSizes[b] == bucket.length) {
+            bucket = buckets[b] = Arrays.copyOf(bucket, bucket.length * 2);
+        }
+        bucket[bucketSizes[b]++] = p;
+        dist[p] = d;
+    }
+}
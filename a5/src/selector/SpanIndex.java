@@ -0,0 +1,138 @@
+package selector;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * The runs of pixels inside a polygon, bucketed by row, for answering point-in-polygon queries
+ * without walking the polygon's edges.  Pixels are inside if their centers are (see `EdgeTable`).
+ * The answers are only as exact as the polygon indexed: `SelectionModel.contains()` indexes the
+ * path as stored, so near simplified segments it can disagree with `SelectionExtractor`, which
+ * indexes the full-resolution path to decide which pixels are saved.  Building the index
+ * takes time proportional to the number of rows times the number of edges crossing each row;
+ * afterwards, a query takes O(log k) time, where k is the number of runs in the queried row.
+ */
+final class SpanIndex {
+
+    /**
+     * First row covered by the index, and the number of rows.
+     */
+    private final int top, rows;
+
+    /**
+     * Index in `x0` and `x1` of the first span in each row (relative to `top`); `rowStart[rows]`
+     * is the total number of spans.
+     */
+    private final int[] rowStart;
+
+    /**
+     * First column and one past the last column of each span.  Spans in a row are disjoint and
+     * sorted by x.
+     */
+    private int[] x0, x1;
+
+    /**
+     * Number of spans added so far, and the row (relative to `top`) of the last span added.
+     */
+    private int count, lastRow;
+
+    /**
+     * Index the pixels inside the closed polygon `p`.
+     */
+    SpanIndex(Polygon p) {
+        Rectangle bounds = p.getBounds();
+        top = bounds.y;
+        rows = bounds.height;
+        rowStart = new int[rows + 1];
+        x0 = new int[Math.max(16, 2 * rows)];
+        x1 = new int[x0.length];
+        new EdgeTable(p).forEachSpan(bounds.x, bounds.y, bounds.width, bounds.height, this::add);
+        // Rows after the last span (if any) are empty
+        Arrays.fill(rowStart, lastRow + 1, rows + 1, count);
+    }
+
+    /**
+     * Append the span [`a`..`b`) of row `y`.  Spans must be added in order of increasing y and
+     * then increasing x.
+     */
+    private void add(int y, int a, int b) {
+        int r = y - top;
+        // Rows skipped since the last span are empty, so they start (and end) here
+        while (lastRow < r) {
+            rowStart[++lastRow] = count;
+        }
+        if (count == x0.length) {
+            x0 = Arrays.copyOf(x0, count * 2);
+            x1 = Arrays.copyOf(x1, count * 2);
+        }
+        x0[count] = a;
+        x1[count] = b;
+        count++;
+    }
+
+    /**
+     * Return whether the center of pixel (`x`, `y`) lies inside the polygon.
+     */
+    boolean contains(int x, int y) {
+        int r = y - top;
+        if (r < 0 || r >= rows) {
+            return false;
+        }
+        // Find the last span in the row starting at or before x
+        int lo = rowStart[r];
+        int hi = rowStart[r + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (x0[mid] <= x) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi >= rowStart[r] && x < x1[hi];
+    }
+
+    /**
+     * Set to 0 each element of `pixels`, a row-major raster `width` pixels wide whose first
+     * element is pixel (`left`, `top`), whose pixel lies outside of the polygon.  Requires the
+     * length of `pixels` is a multiple of `width`.
+     */
+    void clearOutside(int[] pixels, int left, int top, int width) {
+        int height = pixels.length / width;
+        for (int my = 0; my < height; my++) {
+            int r = top + my - this.top;
+            int row = my * width;
+            // Pixels of the row before column `x` have been kept or cleared
+            int x = 0;
+            if (r >= 0 && r < rows) {
+                for (int s = rowStart[r]; s < rowStart[r + 1]; s++) {
+                    int a = Math.clamp(x0[s] - left, x, width);
+                    int b = Math.clamp(x1[s] - left, a, width);
+                    Arrays.fill(pixels, row + x, row + a, 0);
+                    x = b;
+                }
+            }
+            Arrays.fill(pixels, row + x, row + width, 0);
+        }
+    }
+
+    /**
+     * Set the bits of `mask` for the pixels inside the polygon, where bit (mx, my) of the mask
+     * corresponds to pixel (`left` + mx, `top` + my).  Pixels outside of the mask are ignored.
+     */
+    void fill(BitMask mask, int left, int top) {
+        int yStart = Math.max(top, this.top);
+        int yEnd = Math.min(top + mask.height(), this.top + rows);
+        for (int y = yStart; y < yEnd; y++) {
+            int r = y - this.top;
+            for (int s = rowStart[r]; s < rowStart[r + 1]; s++) {
+                int a = Math.max(x0[s] - left, 0);
+                int b = Math.min(x1[s] - left, mask.width());
+                if (a < b) {
+                    mask.setRange(y - top, a, b);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package selector;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event spanning one timed stage of interaction (see `Metrics`), so that
+ * recordings of real sessions show which stage overran a frame alongside GC and thread activity.
+ * Stack traces are not recorded, keeping the events cheap enough for every mouse move.
+ */
+@Name("selector.Stage")
+@Label("Selector Stage")
+@Category("Selector")
+@Description("A timed stage of selection interaction, such as drawing the live wire")
+@StackTrace(false)
+final class StageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+}
@@ -0,0 +1,115 @@
+package selector;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Helpers for splitting per-pixel work over an image into horizontal tiles (bands of whole rows)
+ * that are processed in parallel on a ForkJoinPool.  Whole rows keep each tile's accesses
+ * contiguous in row-major pixel arrays.
+ */
+final class Tiles {
+
+    /**
+     * Approximate number of pixels below which a tile is processed directly rather than split
+     * further.  Large enough to amortize task overhead, small enough to balance load across cores.
+     */
+    static final int TILE_PIXELS = 1 << 16;
+
+    /**
+     * Work to be performed on a band of rows.
+     */
+    @FunctionalInterface
+    interface BandAction {
+        /**
+         * Process rows in [y0..y1).
+         */
+        void apply(int y0, int y1);
+    }
+
+    private Tiles() {
+    }
+
+    /**
+     * Return the number of rows per tile for an image `width` pixels wide.
+     */
+    static int rowsPerTile(int width) {
+        return Math.max(1, TILE_PIXELS / Math.max(1, width));
+    }
+
+    /**
+     * Invoke `action` on disjoint bands of rows covering [0..height) of an image `width` pixels
+     * wide, running bands in parallel on `pool`.  Returns once all bands have been processed.
+     * Distinct bands may run concurrently, so `action` must only write to pixels within its band.
+     */
+    static void forEachBand(ForkJoinPool pool, int width, int height, BandAction action) {
+        if (height <= 0) {
+            return;
+        }
+        int rowsPerTile = rowsPerTile(width);
+        if (height <= rowsPerTile) {
+            action.apply(0, height);
+            return;
+        }
+        run(pool, new BandTask(action, 0, height, rowsPerTile));
+    }
+
+    /**
+     * Invoke `action` on each index in [0..count) (typically the index of a tile), running
+     * indices in parallel on `pool`.  Returns once all indices have been processed.
+     */
+    static void forEachIndex(ForkJoinPool pool, int count, IntConsumer action) {
+        if (count == 1) {
+            action.accept(0);
+        } else if (count > 1) {
+            run(pool, new BandTask((i0, i1) -> {
+                for (int i = i0; i < i1; i++) {
+                    action.accept(i);
+                }
+            }, 0, count, 1));
+        }
+    }
+
+    /**
+     * Run `task` on `pool` and wait for it to complete.
+     */
+    private static void run(ForkJoinPool pool, RecursiveAction task) {
+        if (ForkJoinTask.getPool() == pool) {
+            // Already running in the pool; fork from this worker rather than blocking it on a
+            //  nested submission.
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    /**
+     * Recursively splits a range of rows (or tile indices) in half until it spans no more than
+     * `rowsPerTile`.
+     */
+    @SuppressWarnings("serial") // Never serialized; its action need not be serializable
+    private static class BandTask extends RecursiveAction {
+        private final BandAction action;
+        private final int y0, y1, rowsPerTile;
+
+        BandTask(BandAction action, int y0, int y1, int rowsPerTile) {
+            this.action = action;
+            this.y0 = y0;
+            this.y1 = y1;
+            this.rowsPerTile = rowsPerTile;
+        }
+
+        @Override
+        protected void compute() {
+            if (y1 - y0 <= rowsPerTile) {
+                action.apply(y0, y1);
+            } else {
+                int mid = (y0 + y1) >>> 1;
+                invokeAll(new BandTask(action, y0, mid, rowsPerTile),
+                        new BandTask(action, mid, y1, rowsPerTile));
+            }
+        }
+    }
+}
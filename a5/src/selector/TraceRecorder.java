@@ -0,0 +1,118 @@
+package selector;
+
+import java.awt.Component;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the mouse events received by a component (normally a `SelectionComponent`) into an
+ * `InteractionTrace`, timestamped when they are received.  Entering and leaving the component are
+ * not recorded, since selection does not react to them.  Events are expected on Swing's Event
+ * Dispatch thread, which is also where the trace should be taken.
+ */
+public final class TraceRecorder implements MouseListener, MouseMotionListener {
+
+    /**
+     * Size of the image the recorded component is selecting from.
+     */
+    private final int width, height;
+
+    /**
+     * Time recording started, as from `System.nanoTime()`.
+     */
+    private final long start = System.nanoTime();
+
+    private final List<InteractionTrace.Event> events = new ArrayList<>();
+
+    /**
+     * The component we are listening to, or null.
+     */
+    private Component source;
+
+    /**
+     * Create a recorder for interaction with an image of size `width`x`height`.  It records
+     * nothing until it is attached to a component.
+     */
+    public TraceRecorder(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Start recording the mouse events received by `component`.  Requires this recorder is not
+     * already attached to a component.
+     */
+    public void attach(Component component) {
+        if (source != null) {
+            throw new IllegalStateException("Recorder is already attached");
+        }
+        source = component;
+        component.addMouseListener(this);
+        component.addMouseMotionListener(this);
+    }
+
+    /**
+     * Stop recording, if attached to a component.
+     */
+    public void detach() {
+        if (source != null) {
+            source.removeMouseListener(this);
+            source.removeMouseMotionListener(this);
+            source = null;
+        }
+    }
+
+    /**
+     * Return a trace of the events recorded so far.
+     */
+    public InteractionTrace trace() {
+        return new InteractionTrace(width, height, events);
+    }
+
+    /**
+     * Append an event of kind `kind` at the time and position of `e`.
+     */
+    private void record(InteractionTrace.Kind kind, MouseEvent e) {
+        int button = (e.getButton() <= MouseEvent.BUTTON3) ? e.getButton() : MouseEvent.NOBUTTON;
+        events.add(new InteractionTrace.Event(kind, button, (System.nanoTime() - start) / 1000,
+                e.getX(), e.getY()));
+    }
+
+    @Override
+    public void mousePressed(MouseEvent e) {
+        record(InteractionTrace.Kind.PRESSED, e);
+    }
+
+    @Override
+    public void mouseReleased(MouseEvent e) {
+        record(InteractionTrace.Kind.RELEASED, e);
+    }
+
+    @Override
+    public void mouseClicked(MouseEvent e) {
+        record(InteractionTrace.Kind.CLICKED, e);
+    }
+
+    @Override
+    public void mouseMoved(MouseEvent e) {
+        record(InteractionTrace.Kind.MOVED, e);
+    }
+
+    @Override
+    public void mouseDragged(MouseEvent e) {
+        record(InteractionTrace.Kind.DRAGGED, e);
+    }
+
+    @Override
+    public void mouseEntered(MouseEvent e) {
+        // Ignored
+    }
+
+    @Override
+    public void mouseExited(MouseEvent e) {
+        // Ignored
+    }
+}
@@ -0,0 +1,158 @@
+package selector;
+
+import java.awt.Graphics2D;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.imageio.ImageIO;
+
+/**
+ * Replays an `InteractionTrace` against a selection model without a display, measuring how long
+ * each event takes to handle.  Events are fed through a `SelectionComponent` exactly as Swing
+ * would deliver them, so the model sees the same sequence of calls as in the recorded session,
+ * and replays of one trace against different models can be compared directly.
+ * <p>
+ * Usage: `TraceReplay [--paint] [--real-time] <image> <trace> [tool...]`, where tools are
+ * "point-to-point", "magic-wand" and "scissors" (all of them by default).  With `--paint`, the
+ * view is also painted after each event, as it would be on screen; with `--real-time`, events are
+ * spaced as they were recorded (so background work has the same time to run) rather than replayed
+ * as fast as possible.
+ */
+public final class TraceReplay {
+
+    private TraceReplay() {
+    }
+
+    /**
+     * Replay `trace` against `model`, whose image must have the size the trace was recorded over,
+     * and return the latencies of handling each kind of event (only kinds that occurred are
+     * included).  If `paint` is true, each event's latency includes painting the view afterwards.
+     * If `realTime` is true, wait between events as long as the user did.  Exceptions thrown by
+     * the model are propagated.
+     */
+    public static Map<InteractionTrace.Kind, LatencyHistogram> replay(InteractionTrace trace,
+            SelectionModel model, boolean paint, boolean realTime) throws InterruptedException {
+        if (model.image() == null || model.image().getWidth() != trace.width()
+                || model.image().getHeight() != trace.height()) {
+            throw new IllegalArgumentException("Model's image must be " + trace.width() + "x"
+                    + trace.height() + " to replay trace");
+        }
+        SelectionComponent view = new SelectionComponent(model);
+        view.setSize(trace.width(), trace.height());
+        Graphics2D g = paint ? new BufferedImage(trace.width(), trace.height(),
+                BufferedImage.TYPE_INT_ARGB).createGraphics() : null;
+
+        Map<InteractionTrace.Kind, LatencyHistogram> latencies =
+                new EnumMap<>(InteractionTrace.Kind.class);
+        long start = System.nanoTime();
+        for (InteractionTrace.Event event : trace.events()) {
+            if (realTime) {
+                TimeUnit.NANOSECONDS.sleep(event.micros() * 1000 - (System.nanoTime() - start));
+            }
+            MouseEvent e = toMouseEvent(view, event);
+            long t0 = System.nanoTime();
+            switch (event.kind()) {
+                case PRESSED -> view.mousePressed(e);
+                case RELEASED -> view.mouseReleased(e);
+                case CLICKED -> view.mouseClicked(e);
+                case MOVED -> view.mouseMoved(e);
+                case DRAGGED -> view.mouseDragged(e);
+            }
+            if (g != null) {
+                view.paintComponent(g);
+            }
+            latencies.computeIfAbsent(event.kind(), k -> new LatencyHistogram())
+                    .record(System.nanoTime() - t0);
+        }
+        if (g != null) {
+            g.dispose();
+        }
+        return latencies;
+    }
+
+    /**
+     * Return the Swing event that `event` was recorded from, with `source` as its source.
+     */
+    private static MouseEvent toMouseEvent(SelectionComponent source,
+            InteractionTrace.Event event) {
+        int id = switch (event.kind()) {
+            case PRESSED -> MouseEvent.MOUSE_PRESSED;
+            case RELEASED -> MouseEvent.MOUSE_RELEASED;
+            case CLICKED -> MouseEvent.MOUSE_CLICKED;
+            case MOVED -> MouseEvent.MOUSE_MOVED;
+            case DRAGGED -> MouseEvent.MOUSE_DRAGGED;
+        };
+        int modifiers = (event.kind() == InteractionTrace.Kind.DRAGGED)
+                ? InputEvent.BUTTON1_DOWN_MASK : 0;
+        int clicks = (event.button() == MouseEvent.NOBUTTON) ? 0 : 1;
+        return new MouseEvent(source, id, event.micros() / 1000, modifiers, event.x(), event.y(),
+                clicks, false, event.button());
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean paint = false;
+        boolean realTime = false;
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            switch (arg) {
+                case "--paint" -> paint = true;
+                case "--real-time" -> realTime = true;
+                default -> positional.add(arg);
+            }
+        }
+        if (positional.size() < 2) {
+            System.err.println("Usage: TraceReplay [--paint] [--real-time] <image> <trace> "
+                    + "[point-to-point|magic-wand|scissors...]");
+            System.exit(2);
+        }
+        BufferedImage img = ImageIO.read(new File(positional.get(0)));
+        if (img == null) {
+            throw new IOException("Unsupported image format: " + positional.get(0));
+        }
+        InteractionTrace trace;
+        try (InputStream in = new FileInputStream(positional.get(1))) {
+            trace = InteractionTrace.read(in);
+        }
+
+        Map<String, Supplier<SelectionModel>> tools = new LinkedHashMap<>();
+        tools.put("point-to-point", () -> new PointToPointSelectionModel(false));
+        tools.put("magic-wand", () -> new MagicWandSelectionModel(false));
+        tools.put("scissors", () -> new ScissorsSelectionModel(false));
+        List<String> names = (positional.size() > 2)
+                ? positional.subList(2, positional.size()) : List.copyOf(tools.keySet());
+
+        System.out.printf("%d events over %.1f s%n", trace.events().size(),
+                trace.events().isEmpty() ? 0 : trace.events().getLast().micros() / 1e6);
+        for (String name : names) {
+            Supplier<SelectionModel> tool = tools.get(name);
+            if (tool == null) {
+                throw new IllegalArgumentException("Unknown tool " + name);
+            }
+            SelectionModel model = tool.get();
+            model.setImage(img);
+            Map<InteractionTrace.Kind, LatencyHistogram> latencies =
+                    replay(trace, model, paint, realTime);
+            model.cancelBackgroundWork();
+            System.out.printf("%n%s (final state %s, %d segments)%n", name, model.state(),
+                    model.selection().size());
+            System.out.printf("%-10s %8s %9s %9s %9s%n", "event", "count", "p50 ms", "p99 ms",
+                    "max ms");
+            for (Map.Entry<InteractionTrace.Kind, LatencyHistogram> e : latencies.entrySet()) {
+                LatencyHistogram h = e.getValue();
+                System.out.printf("%-10s %8d %9.3f %9.3f %9.3f%n", e.getKey(), h.count(),
+                        h.percentile(50) / 1e6, h.percentile(99) / 1e6, h.max() / 1e6);
+            }
+        }
+    }
+}
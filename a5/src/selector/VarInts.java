@@ -0,0 +1,125 @@
+package selector;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Variable-length integer encoding for compact binary files: 7 bits per byte, least significant
+ * group first, with the high bit set on every byte but the last (as in Protocol Buffers).  Signed
+ * values that are usually small in magnitude (such as coordinate deltas) are first mapped to
+ * unsigned ones by "zigzag" encoding, so that -1 takes one byte rather than ten.
+ */
+final class VarInts {
+
+    private VarInts() {
+    }
+
+    /**
+     * Write `value` to `out` as an unsigned varint (1 to 10 bytes).
+     */
+    static void write(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Write `value` to `out` zigzag-encoded as a varint.
+     */
+    static void writeSigned(OutputStream out, long value) throws IOException {
+        write(out, zigzag(value));
+    }
+
+    /**
+     * Read an unsigned varint from `in`.  Throws an EOFException if the stream ends first, or an
+     * IOException if the encoding is longer than any long's.
+     */
+    static long read(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated varint");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Read a zigzag-encoded varint from `in`.
+     */
+    static long readSigned(InputStream in) throws IOException {
+        return unzigzag(read(in));
+    }
+
+    /**
+     * Put `value` into `buf` as an unsigned varint.  Throws a BufferOverflowException if `buf` has
+     * fewer bytes remaining than the encoding needs (at most 10).
+     */
+    static void write(ByteBuffer buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    /**
+     * Put `value` into `buf` zigzag-encoded as a varint.
+     */
+    static void writeSigned(ByteBuffer buf, long value) {
+        write(buf, zigzag(value));
+    }
+
+    /**
+     * Read an unsigned varint from `buf`, which may be a memory-mapped file.  Throws an
+     * EOFException if the buffer ends first, or an IOException if the encoding is longer than any
+     * long's.
+     */
+    static long read(ByteBuffer buf) throws IOException {
+        try {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buf.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Truncated varint");
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Read a zigzag-encoded varint from `buf`.
+     */
+    static long readSigned(ByteBuffer buf) throws IOException {
+        return unzigzag(read(buf));
+    }
+
+    /**
+     * Return `value` mapped to an unsigned value: 0, -1, 1, -2, ... become 0, 1, 2, 3, ...
+     */
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Return the signed value that `zigzag()` maps to `value`.
+     */
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
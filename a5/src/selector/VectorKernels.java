@@ -0,0 +1,82 @@
+package selector;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementations of `PixelKernels` using the Vector API.  Loading this class fails with a
+ * `LinkageError` if the `jdk.incubator.vector` module is not available.
+ */
+final class VectorKernels extends PixelKernels {
+
+    /**
+     * Widest int vectors supported by the CPU.
+     */
+    private static final VectorSpecies<Integer> I = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * Float vectors with as many lanes as `I`.
+     */
+    private static final VectorSpecies<Float> F = VectorSpecies.of(float.class, I.vectorShape());
+
+    /**
+     * Short vectors with as many lanes as `I` (and therefore half as many bits).
+     */
+    private static final VectorSpecies<Short> S = VectorSpecies.of(short.class,
+            VectorShape.forBitSize(I.vectorBitSize() / 2));
+
+    static final VectorKernels INSTANCE = new VectorKernels();
+
+    private VectorKernels() {
+    }
+
+    @Override
+    String name() {
+        return "vector" + I.length();
+    }
+
+    @Override
+    float sobelInterior(int[] luma, int up, int mid, int down, int width, short[] gx, short[] gy,
+            float[] magnitude) {
+        FloatVector maxV = FloatVector.zero(F);
+        int x = 1;
+        for (int bound = 1 + I.loopBound(width - 2); x < bound; x += I.length()) {
+            IntVector ul = IntVector.fromArray(I, luma, up + x - 1);
+            IntVector uc = IntVector.fromArray(I, luma, up + x);
+            IntVector ur = IntVector.fromArray(I, luma, up + x + 1);
+            IntVector ml = IntVector.fromArray(I, luma, mid + x - 1);
+            IntVector mr = IntVector.fromArray(I, luma, mid + x + 1);
+            IntVector dl = IntVector.fromArray(I, luma, down + x - 1);
+            IntVector dc = IntVector.fromArray(I, luma, down + x);
+            IntVector dr = IntVector.fromArray(I, luma, down + x + 1);
+            IntVector h = ur.add(mr.lanewise(VectorOperators.LSHL, 1)).add(dr)
+                    .sub(ul.add(ml.lanewise(VectorOperators.LSHL, 1)).add(dl));
+            IntVector v = dl.add(dc.lanewise(VectorOperators.LSHL, 1)).add(dr)
+                    .sub(ul.add(uc.lanewise(VectorOperators.LSHL, 1)).add(ur));
+            ((ShortVector) h.convertShape(VectorOperators.I2S, S, 0)).intoArray(gx, mid + x);
+            ((ShortVector) v.convertShape(VectorOperators.I2S, S, 0)).intoArray(gy, mid + x);
+            FloatVector m = ((FloatVector) h.mul(h).add(v.mul(v))
+                    .convertShape(VectorOperators.I2F, F, 0)).lanewise(VectorOperators.SQRT);
+            m.intoArray(magnitude, mid + x);
+            maxV = maxV.max(m);
+        }
+        float max = maxV.reduceLanes(VectorOperators.MAX);
+        // Remaining columns that do not fill a whole vector
+        for (; x < width - 1; x++) {
+            int h = (luma[up + x + 1] + 2 * luma[mid + x + 1] + luma[down + x + 1])
+                    - (luma[up + x - 1] + 2 * luma[mid + x - 1] + luma[down + x - 1]);
+            int v = (luma[down + x - 1] + 2 * luma[down + x] + luma[down + x + 1])
+                    - (luma[up + x - 1] + 2 * luma[up + x] + luma[up + x + 1]);
+            gx[mid + x] = (short) h;
+            gy[mid + x] = (short) v;
+            float m = (float) Math.sqrt(h * h + v * v);
+            magnitude[mid + x] = m;
+            max = Math.max(max, m);
+        }
+        return max;
+    }
+}
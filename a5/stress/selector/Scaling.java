@@ -0,0 +1,78 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.function.IntToLongFunction;
+
+/**
+ * Helpers for measuring how the cost of an operation grows with the size of its input.  Costs are
+ * measured at several sizes and summarized by the slope of a least-squares line through
+ * (log size, log cost): 0 for constant (or logarithmic) cost, 1 for linear cost, 2 for quadratic.
+ * Slopes are compared against a generous bound, since timings on a shared machine are noisy, but
+ * an accidental quadratic (which adds a whole 1 to the slope) is always caught.
+ */
+final class Scaling {
+
+    /**
+     * Number of times each measurement is repeated; the fastest run is kept, as the one least
+     * disturbed by garbage collection and other processes.
+     */
+    private static final int ROUNDS = 5;
+
+    private Scaling() {
+    }
+
+    /**
+     * Return the time in nanoseconds per operation of `ops` operations, where
+     * `run.applyAsLong(ops)` performs them and returns the nanoseconds they took (so that untimed
+     * setup can be excluded).  Takes the fastest of several rounds.
+     */
+    static double nanosPerOp(int ops, IntToLongFunction run) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            best = Math.min(best, run.applyAsLong(ops));
+        }
+        return (double) best / ops;
+    }
+
+    /**
+     * Return the slope of the least-squares line through (log `sizes[i]`, log `costs[i]`).
+     * Requires both arrays have the same length of at least 2, with positive entries.
+     */
+    static double exponent(int[] sizes, double[] costs) {
+        int n = sizes.length;
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < n; i++) {
+            meanX += Math.log(sizes[i]) / n;
+            meanY += Math.log(costs[i]) / n;
+        }
+        double sxy = 0;
+        double sxx = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = Math.log(sizes[i]) - meanX;
+            sxy += dx * (Math.log(costs[i]) - meanY);
+            sxx += dx * dx;
+        }
+        return sxy / sxx;
+    }
+
+    /**
+     * Fail unless the cost per operation of `operation`, measured as `costs[i]` nanoseconds at
+     * `sizes[i]` segments, grows with an exponent of at most `maxExponent`.  The measurements are
+     * included in the failure message (and printed regardless, to track trends).
+     */
+    static void assertGrowth(String operation, int[] sizes, double[] costs, double maxExponent) {
+        double exponent = exponent(sizes, costs);
+        StringBuilder report = new StringBuilder(operation).append(':');
+        for (int i = 0; i < sizes.length; i++) {
+            report.append(String.format(" n=%d %.1f ns/op;", sizes[i], costs[i]));
+        }
+        report.append(String.format(" growth exponent %.2f (limit %.2f)", exponent,
+                maxExponent));
+        System.out.println(report);
+        if (exponent > maxExponent) {
+            fail("Cost of " + operation + " grows too fast: " + report);
+        }
+    }
+}
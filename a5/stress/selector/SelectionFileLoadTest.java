@@ -0,0 +1,130 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A stress suite checking that million-vertex selection paths are restored from a
+ * `SelectionFile` within a few frames of the user asking.  A path traced by the scissors or the
+ * magic wand, with long segments, must load in 50 ms.  A path of a million separate segments
+ * is held to a looser limit, since restoring it is dominated by allocating the objects of each
+ * segment (its poly-line, its coordinate arrays and its node in the `SegmentList`).
+ */
+class SelectionFileLoadTest {
+
+    /**
+     * Number of vertices of the paths loaded.
+     */
+    static final int VERTICES = 1_000_000;
+
+    /**
+     * Longest times, in milliseconds, that loading a traced path, and a path of separate
+     * segments, and restoring it into a model may take.
+     */
+    static final double TRACED_LIMIT_MS = 50;
+    static final double SEGMENTS_LIMIT_MS = 150;
+
+    /**
+     * Number of times each load is repeated; the fastest is kept (see `Scaling`).
+     */
+    static final int ROUNDS = 10;
+
+    /**
+     * Save the finished selection from `start` through `segments` to a file in `dir`, and fail
+     * unless the fastest of several loads of it into a fresh model takes at most `limitMs`
+     * milliseconds.
+     */
+    static void assertLoadsQuickly(String shape, Path dir, Point start, List<PolyLine> segments,
+            double limitMs) throws IOException {
+        SelectionModel saved = new PointToPointSelectionModel(false);
+        saved.restoreSelection(start, segments, true);
+        Path file = dir.resolve(shape + ".sel");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            SelectionFile.write(saved, out);
+        }
+        long best = Long.MAX_VALUE;
+        SelectionModel loaded = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            loaded = new PointToPointSelectionModel(false);
+            long t0 = System.nanoTime();
+            SelectionFile.load(file).restoreTo(loaded);
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        double ms = best / 1e6;
+        System.out.printf("load %s: %d vertices, %d segments, %d bytes in %.1f ms%n", shape,
+                VERTICES, segments.size(), Files.size(file), ms);
+        assertEquals(saved.selection(), loaded.selection());
+        assertTrue(ms <= limitMs, "Loading " + shape + " took " + ms + " ms");
+    }
+
+    @DisplayName("GIVEN a finished selection of a million segments between control points, as "
+            + "drawn point-to-point, WHEN it is loaded from a selection file, THEN it will take "
+            + "at most 150 ms.")
+    @Test
+    void testLoadManySegments(@TempDir Path dir) throws IOException {
+        List<PolyLine> segments = new ArrayList<>(VERTICES);
+        Point prev = null;
+        Point first = null;
+        for (int k = 0; k < VERTICES; k++) {
+            double angle = 2 * Math.PI * k / VERTICES;
+            Point p = new Point((int) Math.round(VERTICES * Math.cos(angle)),
+                    (int) Math.round(VERTICES * Math.sin(angle)));
+            if (prev == null) {
+                first = p;
+            } else {
+                segments.add(new PolyLine(prev, p));
+            }
+            prev = p;
+        }
+        segments.add(new PolyLine(prev, first));
+        assertLoadsQuickly("segments", dir, first, segments, SEGMENTS_LIMIT_MS);
+    }
+
+    @DisplayName("GIVEN a finished selection traced pixel by pixel around a million boundary "
+            + "pixels, as by the scissors, and simplified, WHEN it is loaded from a selection "
+            + "file, THEN it will take at most 50 ms.")
+    @Test
+    void testLoadTracedPath(@TempDir Path dir) throws IOException {
+        // The boundary of a square 250,000 pixels on a side
+        int side = VERTICES / 4;
+        int[] xs = new int[VERTICES + 1];
+        int[] ys = new int[VERTICES + 1];
+        for (int i = 0; i <= VERTICES; i++) {
+            int edge = (i / side) % 4;
+            int along = i % side;
+            // Wobble by a pixel so that simplification keeps some vertices
+            int wobble = (along / 1000) % 2;
+            xs[i] = switch (edge) {
+                case 0 -> along;
+                case 1 -> side - wobble;
+                case 2 -> side - along;
+                default -> wobble;
+            };
+            ys[i] = switch (edge) {
+                case 0 -> wobble;
+                case 1 -> along;
+                case 2 -> side - wobble;
+                default -> side - along;
+            };
+        }
+        int perSegment = 1000;
+        List<PolyLine> segments = new ArrayList<>();
+        for (int i = 0; i < VERTICES; i += perSegment) {
+            segments.add(new PolyLine(Arrays.copyOfRange(xs, i, i + perSegment + 1),
+                    Arrays.copyOfRange(ys, i, i + perSegment + 1)).simplify(0.5));
+        }
+        assertLoadsQuickly("traced", dir, new Point(xs[0], ys[0]), segments,
+                TRACED_LIMIT_MS);
+    }
+}
@@ -0,0 +1,214 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A stress suite checking that editing and querying selections stays fast as they grow from a
+ * thousand to a million segments.  Each operation is timed on selections of every size, and the
+ * suite fails if its cost per operation grows faster than expected (see `Scaling`): operations
+ * touching one or two segments may grow at most logarithmically, and whole-path operations at
+ * most linearly.  A lookup by index inside a loop over the path (as with `LinkedList.get(i)`)
+ * would make either kind grow one power of n faster.
+ * <p>
+ * Each test leaves the shared models as it found them: selecting, with a path through every
+ * vertex of a large regular polygon.
+ */
+class SelectionScalingTest {
+
+    /**
+     * Numbers of vertices of the selections measured.
+     */
+    static final int[] SIZES = {1_000, 10_000, 100_000, 1_000_000};
+
+    /**
+     * Largest growth exponent accepted for operations that should cost O(log n), and for those
+     * that should cost O(n).
+     */
+    static final double LOGARITHMIC = 0.5;
+    static final double LINEAR = 1.5;
+
+    /**
+     * Number of single-segment operations timed per measurement.
+     */
+    static final int OPS = 2_000;
+
+    /**
+     * Approximate number of vertices visited per measurement of whole-path operations.
+     */
+    static final int VISITS = 20_000_000;
+
+    /**
+     * A model per size in `SIZES`, selecting with a path through `SIZES[i]` vertices.
+     */
+    static PointToPointSelectionModel[] models;
+
+    @BeforeAll
+    static void buildModels() {
+        models = new PointToPointSelectionModel[SIZES.length];
+        for (int i = 0; i < SIZES.length; i++) {
+            models[i] = new PointToPointSelectionModel(false);
+            int radius = SIZES[i];
+            for (int k = 0; k < SIZES[i]; k++) {
+                double angle = 2 * Math.PI * k / SIZES[i];
+                models[i].addPoint(new Point((int) Math.round(radius * Math.cos(angle)),
+                        (int) Math.round(radius * Math.sin(angle))));
+            }
+        }
+    }
+
+    /**
+     * Return the cost per operation of `measure` on each model, after running it once on the
+     * smallest model to warm up the JIT compiler.
+     */
+    static double[] costs(ToDoubleFunction<PointToPointSelectionModel> measure) {
+        measure.applyAsDouble(models[0]);
+        double[] costs = new double[SIZES.length];
+        for (int i = 0; i < SIZES.length; i++) {
+            costs[i] = measure.applyAsDouble(models[i]);
+        }
+        return costs;
+    }
+
+    /**
+     * Return a point off the path of the shared models, distinct for each `k`.
+     */
+    static Point offPath(int k) {
+        return new Point(k % 1000, -1 - k / 1000);
+    }
+
+    @DisplayName("GIVEN selections in progress of 10^3 to 10^6 segments, WHEN points are added, "
+            + "THEN the cost per point will grow at most logarithmically with the path length.")
+    @Test
+    void testAddPoint() {
+        double[] costs = costs(model -> Scaling.nanosPerOp(OPS, ops -> {
+            long start = System.nanoTime();
+            for (int k = 0; k < ops; k++) {
+                model.addPoint(offPath(k));
+            }
+            long elapsed = System.nanoTime() - start;
+            for (int k = 0; k < ops; k++) {
+                model.undo();
+            }
+            return elapsed;
+        }));
+        Scaling.assertGrowth("addPoint", SIZES, costs, LOGARITHMIC);
+    }
+
+    @DisplayName("GIVEN selections in progress of 10^3 to 10^6 segments, WHEN points are undone, "
+            + "THEN the cost per undo will grow at most logarithmically with the path length.")
+    @Test
+    void testUndo() {
+        double[] costs = costs(model -> Scaling.nanosPerOp(OPS, ops -> {
+            for (int k = 0; k < ops; k++) {
+                model.addPoint(offPath(k));
+            }
+            long start = System.nanoTime();
+            for (int k = 0; k < ops; k++) {
+                model.undo();
+            }
+            return System.nanoTime() - start;
+        }));
+        Scaling.assertGrowth("undo", SIZES, costs, LOGARITHMIC);
+    }
+
+    @DisplayName("GIVEN selections in progress of 10^3 to 10^6 segments, WHEN they are finished "
+            + "(and the closing segment undone again), THEN the cost of finishing will grow at "
+            + "most logarithmically with the path length.")
+    @Test
+    void testFinishSelection() {
+        double[] costs = costs(model -> Scaling.nanosPerOp(OPS, ops -> {
+            long elapsed = 0;
+            for (int k = 0; k < ops; k++) {
+                long start = System.nanoTime();
+                model.finishSelection();
+                elapsed += System.nanoTime() - start;
+                model.undo();
+            }
+            return elapsed;
+        }));
+        for (PointToPointSelectionModel model : models) {
+            assertEquals(SELECTING, model.state());
+        }
+        Scaling.assertGrowth("finishSelection", SIZES, costs, LOGARITHMIC);
+    }
+
+    @DisplayName("GIVEN finished selections of 10^3 to 10^6 segments, WHEN control points all "
+            + "along the path are moved and moved back, THEN the cost per move will grow at most "
+            + "logarithmically with the path length.")
+    @Test
+    void testMovePoint() {
+        double[] costs = costs(model -> {
+            model.finishSelection();
+            Random rng = new Random(1);
+            double cost = Scaling.nanosPerOp(OPS, ops -> {
+                int[] indices = rng.ints(ops / 2, 0, model.selection().size()).toArray();
+                Point[] original = new Point[indices.length];
+                for (int k = 0; k < indices.length; k++) {
+                    original[k] = model.selection().get(indices[k]).start();
+                }
+                long start = System.nanoTime();
+                for (int k = 0; k < indices.length; k++) {
+                    model.movePoint(indices[k], offPath(k));
+                    model.movePoint(indices[k], original[k]);
+                }
+                return System.nanoTime() - start;
+            });
+            model.undo();
+            return cost;
+        });
+        Scaling.assertGrowth("movePoint", SIZES, costs, LOGARITHMIC);
+    }
+
+    @DisplayName("GIVEN finished selections of 10^3 to 10^6 segments, WHEN the control point "
+            + "nearest a point is searched for, THEN the cost per search will grow at most "
+            + "linearly with the path length.")
+    @Test
+    void testClosestPoint() {
+        double[] costs = costs(model -> {
+            model.finishSelection();
+            Point target = model.selection().get(model.selection().size() / 3).start();
+            int ops = Math.max(VISITS / model.selection().size(), 10);
+            double cost = Scaling.nanosPerOp(ops, n -> {
+                long start = System.nanoTime();
+                for (int k = 0; k < n; k++) {
+                    assertTrue(model.closestPoint(target, 1) >= 0);
+                }
+                return System.nanoTime() - start;
+            });
+            model.undo();
+            return cost;
+        });
+        Scaling.assertGrowth("closestPoint", SIZES, costs, LINEAR);
+    }
+
+    @DisplayName("GIVEN finished selections of 10^3 to 10^6 segments, WHEN the polygon enclosed "
+            + "by each path is built, THEN the cost per polygon will grow at most linearly with "
+            + "the path length.")
+    @Test
+    void testMakePolygon() {
+        double[] costs = costs(model -> {
+            model.finishSelection();
+            int ops = Math.max(VISITS / model.selection().size(), 10);
+            double cost = Scaling.nanosPerOp(ops, n -> {
+                long start = System.nanoTime();
+                for (int k = 0; k < n; k++) {
+                    Polygon polygon = PolyLine.makePolygon(model.selection());
+                    assertEquals(model.selection().size(), polygon.npoints);
+                }
+                return System.nanoTime() - start;
+            });
+            model.undo();
+            return cost;
+        });
+        Scaling.assertGrowth("makePolygon", SIZES, costs, LINEAR);
+    }
+}
@@ -0,0 +1,85 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A test suite for cropping many images with one selection path using `BatchExtractor`.
+ */
+class BatchExtractorTest {
+
+    /**
+     * Return a 30x30 opaque image whose pixels all differ, and differ from those of the images
+     * made for other values of `frame`.
+     */
+    static BufferedImage frame(int frame) {
+        BufferedImage img = new BufferedImage(30, 30, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 30; x++) {
+                img.setRGB(x, y, frame << 16 | x << 8 | y);
+            }
+        }
+        return img;
+    }
+
+    /**
+     * Return the pixels of `img`, in row-major order.
+     */
+    static int[] pixels(BufferedImage img) {
+        return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    }
+
+    @DisplayName("GIVEN a directory of images and a finished selection, WHEN they are extracted "
+            + "in a batch with fewer images in flight than images, THEN each image will be "
+            + "cropped to a PNG file of the same name, AND each crop will have the same pixels as "
+            + "saving the selection of that image from a model, AND a file that is not a valid "
+            + "image will be counted as a failure without stopping the others.")
+    @Test
+    void testExtractAll(@TempDir Path dir) throws Exception {
+        Path images = Files.createDirectory(dir.resolve("frames"));
+        int count = 12;
+        for (int i = 0; i < count; i++) {
+            ImageIO.write(frame(i), "png", images.resolve(String.format("f%02d.png", i)).toFile());
+        }
+        Files.writeString(images.resolve("notes.txt"), "not an image");
+        Files.writeString(images.resolve("broken.png"), "not a png either");
+        SelectionModel model = new PointToPointSelectionModel(false);
+        model.addPoint(new Point(2, 3));
+        model.addPoint(new Point(25, 5));
+        model.addPoint(new Point(14, 27));
+        model.finishSelection();
+        BatchExtractor extractor = new BatchExtractor(model.selection());
+
+        List<Path> listed = BatchExtractor.listImages(images);
+        assertEquals(count + 1, listed.size());
+        Path out = dir.resolve("crops");
+        assertEquals(1, extractor.extractAll(listed, out, 3, 2));
+
+        List<PolyLine> segments = List.copyOf(model.selection());
+        for (int i = 0; i < count; i++) {
+            // Setting the image resets the selection
+            model.setImage(frame(i));
+            model.restoreSelection(new Point(2, 3), segments, true);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            model.saveSelection(expected);
+            BufferedImage saved = ImageIO.read(new ByteArrayInputStream(expected.toByteArray()));
+            BufferedImage crop = ImageIO.read(out.resolve(String.format("f%02d.png", i))
+                    .toFile());
+            assertEquals(saved.getWidth(), crop.getWidth());
+            assertEquals(saved.getHeight(), crop.getHeight());
+            assertArrayEquals(pixels(saved), pixels(crop), "Frame " + i);
+        }
+        assertFalse(Files.exists(out.resolve("notes.png")));
+    }
+}
@@ -0,0 +1,217 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A test suite for journaling selection edits with `EditJournal` and recovering sessions.
+ */
+class EditJournalTest {
+
+    /**
+     * Return the names of the files in `dir`, sorted.
+     */
+    static List<String> fileNames(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @DisplayName("GIVEN a journaled model, WHEN points are added, undone, inserted, moved and "
+            + "removed and the selection is finished, and the process then stops without closing "
+            + "the journal, THEN loading the journal will yield one record per edit, AND "
+            + "replaying it into a fresh model will restore the same selection.")
+    @Test
+    void testRecoverAfterCrash(@TempDir Path dir) throws Exception {
+        SelectionModel model = new PointToPointSelectionModel(false);
+        EditJournal journal = EditJournal.open(dir, model);
+        model.addPoint(new Point(10, 10));
+        model.addPoint(new Point(50, 10));
+        model.addPoint(new Point(70, 70));
+        model.undo();
+        model.addPoint(new Point(50, 50));
+        model.addPoint(new Point(10, 50));
+        model.finishSelection();
+        model.insertPoint(1, new Point(50, 30));
+        model.movePoint(2, new Point(60, 60));
+        model.removePoint(4);
+        journal.sync();
+
+        EditJournal.Session session = EditJournal.load(dir);
+
+        assertNull(session.checkpoint().start());
+        assertEquals(10, session.edits().size());
+        assertEquals(new EditJournal.Edit(EditJournal.Op.MOVE_POINT, 2, 60, 60),
+                session.edits().get(8));
+        SelectionModel restored = new PointToPointSelectionModel(false);
+        assertEquals(10, session.replayInto(restored));
+        assertEquals(SELECTED, restored.state());
+        assertEquals(model.selection(), restored.selection());
+    }
+
+    @DisplayName("GIVEN a journaled model with only a starting point, WHEN the start is undone, "
+            + "or a selection with no segments is finished, THEN each will be journaled as a "
+            + "single reset.")
+    @Test
+    void testResetRecordedOnce(@TempDir Path dir) throws Exception {
+        SelectionModel model = new PointToPointSelectionModel(false);
+        EditJournal journal = EditJournal.open(dir, model);
+        model.addPoint(new Point(10, 10));
+        model.undo();
+        model.addPoint(new Point(20, 20));
+        model.finishSelection();
+        journal.sync();
+
+        EditJournal.Session session = EditJournal.load(dir);
+
+        assertEquals(List.of(EditJournal.Op.ADD_POINT, EditJournal.Op.RESET,
+                EditJournal.Op.ADD_POINT, EditJournal.Op.RESET),
+                session.edits().stream().map(EditJournal.Edit::op).toList());
+        journal.close();
+    }
+
+    @DisplayName("GIVEN a journal whose last record was cut off or damaged by a crash, WHEN it "
+            + "is loaded, THEN the edits before that record will be recovered.")
+    @Test
+    void testTornRecord(@TempDir Path dir) throws Exception {
+        SelectionModel model = new PointToPointSelectionModel(false);
+        EditJournal journal = EditJournal.open(dir, model);
+        model.addPoint(new Point(1, 2));
+        model.addPoint(new Point(3, 4));
+        model.addPoint(new Point(5, 6));
+        journal.sync();
+        Path log = dir.resolve("journal-0.log");
+        long size = Files.size(log);
+        assertEquals(4 * EditJournal.RECORD_SIZE, size);
+
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+        assertEquals(2, EditJournal.load(dir).edits().size());
+
+        byte[] bytes = Files.readAllBytes(log);
+        bytes[2 * EditJournal.RECORD_SIZE + 9] ^= 1;
+        Files.write(log, bytes);
+        EditJournal.Session session = EditJournal.load(dir);
+        assertEquals(1, session.edits().size());
+        SelectionModel restored = new PointToPointSelectionModel(false);
+        session.replayInto(restored);
+        assertEquals(new Point(1, 2), restored.lastPoint());
+    }
+
+    @DisplayName("GIVEN a journal that checkpoints every 8 edits, WHEN 20 points are added and "
+            + "the selection is then replaced by a saved path, THEN only the latest generation "
+            + "will be kept, AND its checkpoint will hold the saved path with no edits to "
+            + "replay.  WHEN the journal is closed, THEN it will end with a checkpoint of the "
+            + "final selection.")
+    @Test
+    void testCheckpoints(@TempDir Path dir) throws Exception {
+        SelectionModel model = new PointToPointSelectionModel(false);
+        EditJournal journal = EditJournal.open(dir, model, 8, Long.MAX_VALUE);
+        for (int i = 0; i < 20; i++) {
+            model.addPoint(new Point(i, i * i % 7));
+        }
+        journal.sync();
+        EditJournal.Session session = EditJournal.load(dir);
+        assertEquals(List.of("checkpoint-2.sel", "journal-2.log"), fileNames(dir));
+        assertEquals(2, session.edits().size());
+        SelectionModel restored = new PointToPointSelectionModel(false);
+        session.replayInto(restored);
+        assertEquals(model.selection(), restored.selection());
+
+        model.restoreSelection(new Point(0, 0), List.of(new PolyLine(new Point(0, 0),
+                new Point(9, 0)), new PolyLine(new Point(9, 0), new Point(0, 9)),
+                new PolyLine(new Point(0, 9), new Point(0, 0))), true);
+        journal.sync();
+        session = EditJournal.load(dir);
+        assertEquals(List.of("checkpoint-3.sel", "journal-3.log"), fileNames(dir));
+        assertTrue(session.checkpoint().finished());
+        assertEquals(model.selection(), session.checkpoint().segments());
+        assertTrue(session.edits().isEmpty());
+
+        model.movePoint(1, new Point(12, 0));
+        journal.close();
+        model.movePoint(1, new Point(20, 0));
+        session = EditJournal.load(dir);
+        assertTrue(session.edits().isEmpty());
+        assertEquals(new Point(12, 0), session.checkpoint().segments().get(1).start());
+    }
+
+    @DisplayName("GIVEN a point-to-point model that snaps to edges, WHEN a journal of points "
+            + "that were snapped when recorded is replayed into it, THEN the points will be used "
+            + "as recorded rather than snapped again, AND snapping will still apply afterwards.")
+    @Test
+    void testReplayIsExact() {
+        // A vertical edge at x = 20
+        BufferedImage img = new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 40; y++) {
+            for (int x = 20; x < 40; x++) {
+                img.setRGB(x, y, 0xFFFFFF);
+            }
+        }
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        model.setImage(img);
+        model.setSnapRadius(5);
+        EditJournal.Session session = new EditJournal.Session(
+                PointToPointSelectionModel.class.getName(), EditJournal.ImageFingerprint.of(img),
+                new SelectionFile.Contents(null, List.of(), false),
+                List.of(new EditJournal.Edit(EditJournal.Op.ADD_POINT, 0, 3, 3),
+                        new EditJournal.Edit(EditJournal.Op.ADD_POINT, 0, 17, 4)));
+
+        assertEquals(2, session.replayInto(model));
+
+        assertEquals(new Point(17, 4), model.lastPoint());
+        model.addPoint(new Point(17, 30));
+        assertNotEquals(17, model.lastPoint().x);
+    }
+
+    @DisplayName("GIVEN a journaled magic wand model with an image, WHEN the journal is loaded, "
+            + "THEN the session will name the wand's class and match its image but not a "
+            + "different image, AND it will not replay into a model of another class or over an "
+            + "image of another size.  WHEN the journal is discarded, THEN no session will "
+            + "remain.")
+    @Test
+    void testSessionIdentity(@TempDir Path dir) throws Exception {
+        BufferedImage img = new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB);
+        img.setRGB(4, 5, 0x123456);
+        BufferedImage other = new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB);
+        SelectionModel model = new MagicWandSelectionModel(false);
+        model.setImage(img);
+        EditJournal journal = EditJournal.open(dir, model);
+        journal.sync();
+
+        EditJournal.Session session = EditJournal.load(dir);
+
+        assertEquals(MagicWandSelectionModel.class.getName(), session.tool());
+        assertTrue(session.recordedOver(img));
+        assertFalse(session.recordedOver(other));
+        assertFalse(session.recordedOver(null));
+        SelectionModel wrongTool = new PointToPointSelectionModel(false);
+        wrongTool.setImage(img);
+        assertThrows(IllegalArgumentException.class, () -> session.replayInto(wrongTool));
+        SelectionModel wrongSize = new MagicWandSelectionModel(false);
+        wrongSize.setImage(new BufferedImage(20, 30, BufferedImage.TYPE_INT_RGB));
+        assertThrows(IllegalArgumentException.class, () -> session.replayInto(wrongSize));
+        SelectionModel restored = new MagicWandSelectionModel(false);
+        restored.setImage(img);
+        assertEquals(0, session.replayInto(restored));
+
+        model.addPoint(new Point(4, 5));
+        journal.discard();
+        assertNull(EditJournal.load(dir));
+        assertEquals(List.of(), fileNames(dir));
+    }
+}
@@ -0,0 +1,93 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A test suite for `GradientMap` and the raster access it relies on.
+ */
+class GradientMapTest {
+
+    /**
+     * Return an image of type `type` whose left half is black and whose right half (columns
+     * `width/2` and beyond) is white.
+     */
+    static BufferedImage makeStepImage(int type, int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, type);
+        var g = img.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.WHITE);
+        g.fillRect(width / 2, 0, width - width / 2, height);
+        g.dispose();
+        return img;
+    }
+
+    @DisplayName("GIVEN an image with a vertical black-to-white edge, WHEN its gradient is "
+            + "computed, THEN the magnitude will be largest along the edge, AND it will vanish "
+            + "away from the edge, AND the gradient will point in the +x direction.")
+    @Test
+    void testVerticalEdge() {
+        GradientMap grad = new GradientMap(makeStepImage(BufferedImage.TYPE_INT_RGB, 8, 5));
+
+        assertEquals(0, grad.magnitudeAt(1, 2));
+        assertEquals(0, grad.magnitudeAt(6, 2));
+        assertEquals(grad.maxMagnitude(), grad.magnitudeAt(3, 2));
+        assertEquals(grad.maxMagnitude(), grad.magnitudeAt(4, 2));
+        assertTrue(grad.maxMagnitude() > 0);
+        assertEquals(0, grad.directionAt(3, 0), 1e-9);
+        assertEquals(0, grad.gy()[2 * grad.width() + 3]);
+    }
+
+    @DisplayName("GIVEN the same picture stored with different raster layouts, WHEN gradients are "
+            + "computed, THEN they will be identical regardless of how the pixels are read.")
+    @Test
+    void testRasterLayoutsAgree() {
+        int w = 37;
+        int h = 300;  // Tall enough to be split into multiple tiles
+        BufferedImage reference = makeStepImage(BufferedImage.TYPE_INT_RGB, w, h);
+        GradientMap expected = new GradientMap(reference);
+        int[] types = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR,
+                BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+                BufferedImage.TYPE_USHORT_565_RGB};
+        for (int type : types) {
+            GradientMap actual = new GradientMap(makeStepImage(type, w, h));
+            assertArrayEquals(expected.magnitude(), actual.magnitude(), "image type " + type);
+        }
+
+        // Sub-images share their parent's backing array at an offset
+        BufferedImage parent = makeStepImage(BufferedImage.TYPE_3BYTE_BGR, w + 10, h + 4);
+        GradientMap sub = new GradientMap(parent.getSubimage(5, 2, w + 5, h));
+        assertEquals(sub.maxMagnitude(), sub.magnitudeAt((w + 10) / 2 - 5, h / 2));
+        assertEquals(0, sub.magnitudeAt(0, 0));
+    }
+
+    @DisplayName("GIVEN a noisy image, WHEN its gradient is computed with the scalar kernels and "
+            + "with the vector kernels (if available), THEN the results will be identical.")
+    @Test
+    void testKernelsAgree() {
+        PixelKernels vector = PixelKernels.vector();
+        assumeTrue(vector != null, "jdk.incubator.vector is not available");
+        BufferedImage img = new BufferedImage(67, 45, BufferedImage.TYPE_INT_RGB);
+        Random rng = new Random(1);
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                img.setRGB(x, y, rng.nextInt());
+            }
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        GradientMap expected = new GradientMap(img, pool, PixelKernels.scalar());
+        GradientMap actual = new GradientMap(img, pool, vector);
+        assertArrayEquals(expected.gx(), actual.gx());
+        assertArrayEquals(expected.gy(), actual.gy());
+        assertArrayEquals(expected.magnitude(), actual.magnitude());
+        assertEquals(expected.maxMagnitude(), actual.maxMagnitude());
+    }
+}
@@ -0,0 +1,125 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Point;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A test suite for recording, storing and replaying `InteractionTrace`s.
+ */
+class InteractionTraceTest {
+
+    @DisplayName("GIVEN a trace of random events, including positions outside of the image and "
+            + "long pauses, WHEN it is written and read back, THEN the same events will be read, "
+            + "AND a small pointer move a few milliseconds after the last event will take 5 "
+            + "bytes.")
+    @Test
+    void testRoundTrip() throws IOException {
+        Random rng = new Random(45);
+        List<InteractionTrace.Event> events = new ArrayList<>();
+        InteractionTrace.Kind[] kinds = InteractionTrace.Kind.values();
+        long micros = 0;
+        for (int i = 0; i < 1000; i++) {
+            micros += (i % 100 == 0) ? 60_000_000L : rng.nextInt(20_000);
+            events.add(new InteractionTrace.Event(kinds[rng.nextInt(kinds.length)],
+                    rng.nextInt(4), micros, rng.nextInt(1000) - 100, rng.nextInt(800) - 100));
+        }
+        InteractionTrace trace = new InteractionTrace(640, 480, events);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.write(out);
+        InteractionTrace read = InteractionTrace.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(640, read.width());
+        assertEquals(480, read.height());
+        assertEquals(events, read.events());
+
+        InteractionTrace moves = new InteractionTrace(640, 480, List.of(
+                new InteractionTrace.Event(InteractionTrace.Kind.MOVED, 0, 100, 0, 0),
+                new InteractionTrace.Event(InteractionTrace.Kind.MOVED, 0, 8000, 3, -2)));
+        ByteArrayOutputStream small = new ByteArrayOutputStream();
+        moves.write(small);
+        ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        new InteractionTrace(640, 480, List.of()).write(empty);
+        // 4 bytes for the first move (after 100 us), 5 for the second (after 7.9 ms)
+        assertEquals(empty.size() + 4 + 5, small.size());
+    }
+
+    @DisplayName("GIVEN bytes that are not a trace, or a trace cut off partway through an event, "
+            + "WHEN they are read, THEN an IOException will be thrown.")
+    @Test
+    void testReadInvalid() throws IOException {
+        assertThrows(IOException.class, () -> InteractionTrace.read(
+                new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6})));
+        InteractionTrace trace = new InteractionTrace(10, 10, List.of(
+                new InteractionTrace.Event(InteractionTrace.Kind.CLICKED, 1, 5000, 4, 4)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.write(out);
+        byte[] bytes = out.toByteArray();
+        assertThrows(IOException.class, () -> InteractionTrace.read(
+                new ByteArrayInputStream(bytes, 0, bytes.length - 1)));
+    }
+
+    @DisplayName("GIVEN a recorder attached to a selection component, WHEN the user moves the "
+            + "pointer and clicks the corners of a square and then the middle button, THEN the "
+            + "recorded trace will hold those events, AND replaying it against a fresh model "
+            + "will finish the same square selection, AND latencies will be reported for each "
+            + "kind of event.")
+    @Test
+    void testRecordAndReplay() throws InterruptedException {
+        BufferedImage img = new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB);
+        SelectionModel recorded = new PointToPointSelectionModel(false);
+        recorded.setImage(img);
+        SelectionComponent view = new SelectionComponent(recorded);
+        TraceRecorder recorder = new TraceRecorder(50, 50);
+        recorder.attach(view);
+
+        Point[] corners = {new Point(10, 10), new Point(40, 10), new Point(40, 40),
+                new Point(10, 40)};
+        for (Point p : corners) {
+            view.dispatchEvent(new MouseEvent(view, MouseEvent.MOUSE_MOVED, 0, 0, p.x - 1, p.y,
+                    0, false, MouseEvent.NOBUTTON));
+            view.dispatchEvent(new MouseEvent(view, MouseEvent.MOUSE_CLICKED, 0, 0, p.x, p.y,
+                    1, false, MouseEvent.BUTTON1));
+        }
+        view.dispatchEvent(new MouseEvent(view, MouseEvent.MOUSE_CLICKED, 0, 0, 25, 25, 1, false,
+                MouseEvent.BUTTON2));
+        recorder.detach();
+        view.dispatchEvent(new MouseEvent(view, MouseEvent.MOUSE_MOVED, 0, 0, 1, 1, 0, false,
+                MouseEvent.NOBUTTON));
+        InteractionTrace trace = recorder.trace();
+
+        assertEquals(SELECTED, recorded.state());
+        assertEquals(9, trace.events().size());
+        assertEquals(new InteractionTrace.Event(InteractionTrace.Kind.CLICKED, 1,
+                trace.events().get(1).micros(), 10, 10), trace.events().get(1));
+
+        SelectionModel replayed = new PointToPointSelectionModel(false);
+        replayed.setImage(img);
+        Map<InteractionTrace.Kind, LatencyHistogram> latencies =
+                TraceReplay.replay(trace, replayed, true, false);
+
+        assertEquals(SELECTED, replayed.state());
+        assertEquals(recorded.selection(), replayed.selection());
+        assertEquals(5, latencies.get(InteractionTrace.Kind.CLICKED).count());
+        assertEquals(4, latencies.get(InteractionTrace.Kind.MOVED).count());
+        assertFalse(latencies.containsKey(InteractionTrace.Kind.DRAGGED));
+
+        SelectionModel wrongSize = new PointToPointSelectionModel(false);
+        wrongSize.setImage(new BufferedImage(40, 50, BufferedImage.TYPE_INT_RGB));
+        assertThrows(IllegalArgumentException.class,
+                () -> TraceReplay.replay(trace, wrongSize, false, false));
+    }
+}
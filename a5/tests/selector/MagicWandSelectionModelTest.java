@@ -0,0 +1,236 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Random;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A test suite for `MagicWandSelectionModel` and the region growing and boundary tracing it
+ * relies on.
+ */
+class MagicWandSelectionModelTest {
+
+    /**
+     * Return a white image of the given size with each rectangle in `rects` filled in blue.
+     */
+    static BufferedImage makeImage(int width, int height, Rectangle... rects) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var g = img.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.BLUE);
+        for (Rectangle r : rects) {
+            g.fill(r);
+        }
+        g.dispose();
+        return img;
+    }
+
+    @DisplayName("GIVEN an image containing two separate blue rectangles, WHEN a point inside one "
+            + "of them is added to a new model, THEN the model will transition to the SELECTED "
+            + "state, AND its selection will be a closed path around exactly that rectangle's "
+            + "pixels.")
+    @Test
+    void testSelectRectangle() {
+        Rectangle target = new Rectangle(3, 2, 5, 4);
+        BufferedImage img = makeImage(20, 10, target, new Rectangle(12, 2, 3, 3));
+        MagicWandSelectionModel model = new MagicWandSelectionModel(false);
+        model.setImage(img);
+        PclTester observer = new PclTester();
+        model.addPropertyChangeListener(observer);
+
+        model.addPoint(new Point(5, 4));
+
+        observer.assertChangedTo("state", SELECTED);
+        observer.assertChanged("selection");
+        assertEquals(SELECTED, model.state());
+        assertEquals(new Point(3, 2), model.lastPoint());
+        assertEquals(model.selection().getFirst().start(), model.selection().getLast().end());
+        assertEquals(target, PolyLine.makePolygon(model.selection()).getBounds());
+        // A rectangle's boundary has 4 corners, so it is split into 4 straight segments
+        assertEquals(4, model.selection().size());
+    }
+
+    @DisplayName("GIVEN a model with an image, WHEN a point inside a rectangle is added on the "
+            + "Event Dispatch thread, THEN the model will be PROCESSING from that point, AND it "
+            + "will later transition to SELECTED around the rectangle.  WHEN a point is added and "
+            + "then undone before the region is grown, THEN the model will have no selection, "
+            + "AND it will stay that way once the region has been grown.")
+    @Test
+    void testSelectInBackground() throws Exception {
+        Rectangle target = new Rectangle(30, 20, 50, 40);
+        MagicWandSelectionModel model = new MagicWandSelectionModel(false);
+        model.setImage(makeImage(200, 100, target));
+
+        SwingUtilities.invokeAndWait(() -> {
+            model.addPoint(new Point(40, 30));
+            assertEquals(PROCESSING, model.state());
+            assertEquals(new Point(40, 30), model.lastPoint());
+        });
+        SelectionModel.SelectionState[] state = new SelectionModel.SelectionState[1];
+        for (int wait = 0; wait < 500 && state[0] != SELECTED; wait++) {
+            Thread.sleep(10);
+            SwingUtilities.invokeAndWait(() -> state[0] = model.state());
+        }
+        assertEquals(SELECTED, state[0]);
+        assertEquals(target, PolyLine.makePolygon(model.selection()).getBounds());
+
+        SwingUtilities.invokeAndWait(() -> {
+            model.reset();
+            model.addPoint(new Point(40, 30));
+            model.undo();
+        });
+        Thread.sleep(100);
+        SwingUtilities.invokeAndWait(() -> state[0] = model.state());
+        assertEquals(NO_SELECTION, state[0]);
+        assertTrue(model.selection().isEmpty());
+    }
+
+    @DisplayName("GIVEN an L-shaped region, WHEN it is selected, THEN its boundary will only "
+            + "have vertices at the 6 corners of the L.")
+    @Test
+    void testTraceCorners() {
+        BitMask mask = new BitMask(6, 6);
+        mask.setRange(1, 1, 3);
+        mask.setRange(2, 1, 3);
+        mask.setRange(3, 1, 5);
+        int[][] boundary = ContourTracer.traceOuter(mask);
+        assertArrayEquals(new int[]{1, 3, 3, 5, 5, 1, 1}, boundary[0]);
+        assertArrayEquals(new int[]{1, 1, 3, 3, 4, 4, 1}, boundary[1]);
+    }
+
+    @DisplayName("GIVEN a 100 MP mask containing a large rectangle, WHEN it is selected, THEN "
+            + "the selection will have a vertex only at each of the rectangle's 4 corners, AND its "
+            + "polygon will have the rectangle's bounds.")
+    @Test
+    void testSelectLargeMask() {
+        int size = 10_000;
+        BitMask mask = new BitMask(size, size);
+        for (int y = 100; y < size - 100; y++) {
+            mask.setRange(y, 70, size - 30);
+        }
+        MagicWandSelectionModel model = new MagicWandSelectionModel(false);
+
+        model.selectMask(mask);
+
+        assertEquals(SELECTED, model.state());
+        assertEquals(4, model.selection().size());
+        for (PolyLine segment : model.selection()) {
+            assertEquals(2, segment.size());
+        }
+        assertEquals(new Rectangle(70, 100, size - 100, size - 200),
+                PolyLine.makePolygon(model.selection()).getBounds());
+    }
+
+    @DisplayName("GIVEN a tall image with a U-shaped region whose arms only connect near the "
+            + "bottom, WHEN the region is grown from the top of one arm, THEN both arms will be "
+            + "included, AND a separate region will not be.")
+    @Test
+    void testGrowAcrossBands() {
+        int height = 5000;
+        BufferedImage img = makeImage(40, height,
+                new Rectangle(2, 0, 5, height - 1),     // Left arm
+                new Rectangle(20, 0, 5, height - 1),    // Right arm
+                new Rectangle(2, height - 10, 23, 3),   // Bottom joining both arms
+                new Rectangle(30, 0, 5, height));       // Disconnected
+        BitMask region = RegionGrower.grow(new PixelReader(img), 22, 0, 0);
+        assertTrue(region.get(4, 0));
+        assertTrue(region.get(22, height / 2));
+        assertFalse(region.get(32, 0));
+        assertFalse(region.get(10, 0));
+        long expected = 2L * 5 * (height - 1) + 13 * 3;
+        assertEquals(expected, region.count());
+    }
+
+    @DisplayName("GIVEN an image of random blotches, WHEN regions are grown from several seeds "
+            + "with several tolerances, THEN each region will contain exactly the pixels that a "
+            + "pixel-by-pixel breadth-first search finds.")
+    @Test
+    void testGrowMatchesSearch() {
+        int w = 97;
+        int h = 61;
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(7);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                img.setRGB(x, y, random.nextInt(4) * 0x303030);
+            }
+        }
+        for (int tolerance : new int[]{0, 0x30, 0x60}) {
+            for (int[] seed : new int[][]{{0, 0}, {48, 30}, {96, 60}}) {
+                BitMask region = RegionGrower.grow(new PixelReader(img), seed[0], seed[1],
+                        tolerance);
+
+                int ref = img.getRGB(seed[0], seed[1]) & 0xFF;
+                boolean[] seen = new boolean[w * h];
+                ArrayDeque<Integer> queue = new ArrayDeque<>();
+                queue.add(seed[1] * w + seed[0]);
+                seen[seed[1] * w + seed[0]] = true;
+                long count = 0;
+                while (!queue.isEmpty()) {
+                    int i = queue.remove();
+                    count++;
+                    int x = i % w;
+                    int y = i / w;
+                    int[][] neighbors = {{x - 1, y}, {x + 1, y}, {x, y - 1}, {x, y + 1}};
+                    for (int[] n : neighbors) {
+                        if (n[0] >= 0 && n[0] < w && n[1] >= 0 && n[1] < h
+                                && !seen[n[1] * w + n[0]]
+                                && Math.abs((img.getRGB(n[0], n[1]) & 0xFF) - ref)
+                                <= tolerance) {
+                            seen[n[1] * w + n[0]] = true;
+                            queue.add(n[1] * w + n[0]);
+                        }
+                    }
+                }
+                for (int y = 0; y < h; y++) {
+                    for (int x = 0; x < w; x++) {
+                        assertEquals(seen[y * w + x], region.get(x, y), "Pixel " + x + ", " + y);
+                    }
+                }
+                assertEquals(count, region.count());
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a selected region, WHEN one of its control points is moved, THEN the two "
+            + "adjacent segments will meet at the new location, AND the interior points of those "
+            + "segments will be unchanged.")
+    @Test
+    void testMovePoint() {
+        BufferedImage img = makeImage(40, 40, new Rectangle(5, 5, 20, 20),
+                new Rectangle(10, 25, 3, 3));
+        MagicWandSelectionModel model = new MagicWandSelectionModel(false);
+        model.setImage(img);
+        model.addPoint(new Point(10, 10));
+        int n = model.selection().size();
+        PolyLine before = model.selection().get(n - 1);
+        PolyLine first = model.selection().get(0);
+
+        model.movePoint(0, new Point(4, 4));
+
+        assertEquals(new Point(4, 4), model.selection().get(0).start());
+        assertEquals(new Point(4, 4), model.selection().get(n - 1).end());
+        assertEquals(first.end(), model.selection().get(0).end());
+        assertEquals(before.start(), model.selection().get(n - 1).start());
+        assertEquals(before.size(), model.selection().get(n - 1).size());
+    }
+
+    @DisplayName("GIVEN a model, WHEN the tolerance is set outside of [0..255], THEN an "
+            + "IllegalArgumentException will be thrown.")
+    @Test
+    void testToleranceRange() {
+        MagicWandSelectionModel model = new MagicWandSelectionModel(false);
+        assertThrows(IllegalArgumentException.class, () -> model.setTolerance(-1));
+        assertThrows(IllegalArgumentException.class, () -> model.setTolerance(256));
+    }
+}
@@ -0,0 +1,76 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A test suite for `LatencyHistogram` and the `Metrics` registry.
+ */
+class MetricsTest {
+
+    @DisplayName("GIVEN durations spread over many orders of magnitude, WHEN they are recorded in "
+            + "a histogram, THEN each percentile will be at least the exact percentile and within "
+            + "4% of it, AND the count and maximum will be exact.")
+    @Test
+    void testPercentiles() {
+        Random rng = new Random(44);
+        long[] values = new long[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(rng.nextDouble() * 25);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.count());
+        assertEquals(values[values.length - 1], histogram.max());
+        for (double p : new double[]{0, 1, 50, 90, 99, 99.9, 100}) {
+            long exact = values[Math.max(0, (int) Math.ceil(p / 100 * values.length) - 1)];
+            long estimate = histogram.percentile(p);
+            assertTrue(estimate >= exact && estimate <= exact * 1.04 + 1,
+                    "p" + p + ": " + estimate + " vs " + exact);
+        }
+    }
+
+    @DisplayName("GIVEN an empty histogram, WHEN percentiles are requested, THEN they will be 0, "
+            + "AND after recording and resetting they will be 0 again.")
+    @Test
+    void testEmptyAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(50));
+        histogram.record(12345);
+        histogram.record(-1);
+        assertEquals(2, histogram.count());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(12345, histogram.percentile(100));
+
+        histogram.reset();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.max());
+    }
+
+    @DisplayName("GIVEN a selection in progress, WHEN points are added and the selection is "
+            + "finished, THEN each appended segment will be timed in the registry under "
+            + "\"appendToSelection\", AND the report will list that stage.")
+    @Test
+    void testStagesRecorded() {
+        LatencyHistogram histogram = Metrics.histogram(Metrics.APPEND_TO_SELECTION);
+        long before = histogram.count();
+        SelectionModel model = new PointToPointSelectionModel(false);
+        model.addPoint(new Point(0, 0));
+        model.addPoint(new Point(10, 0));
+        model.addPoint(new Point(10, 10));
+        model.finishSelection();
+
+        assertEquals(before + 3, histogram.count());
+        assertSame(histogram, Metrics.histograms().get(Metrics.APPEND_TO_SELECTION));
+        assertTrue(Metrics.report().contains(Metrics.APPEND_TO_SELECTION));
+    }
+}
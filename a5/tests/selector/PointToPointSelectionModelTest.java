@@ -4,10 +4,18 @@ import static org.junit.jupiter.api.Assertions.*;
 import static selector.SelectionModel.SelectionState.*;
 
 import java.awt.Point;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
@@ -362,6 +370,199 @@ class PointToPointSelectionModelTest {
         SelectionModel model = makeSquareSelection();
         assertEquals(1, model.closestPoint(new Point(8, 0), 4));
     }
+
+    /* Tests of edge snapping */
+
+    @DisplayName("GIVEN a model with snapping enabled over an image with a vertical edge, WHEN "
+            + "points are added and moved near the edge, THEN they will be moved onto the edge, "
+            + "AND finishing the selection will close it exactly at its (snapped) start.")
+    @Test
+    void testSnapToEdge() {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        model.setImage(GradientMapTest.makeStepImage(BufferedImage.TYPE_INT_RGB, 20, 20));
+        model.setSnapRadius(3);
+
+        // The edge is between columns 9 and 10, both of which have the strongest gradient
+        model.addPoint(new Point(7, 2));
+        assertEquals(new Point(9, 2), model.lastPoint());
+        model.addPoint(new Point(12, 10));
+        assertEquals(new Point(10, 10), model.lastPoint());
+        // Too far from the edge to snap
+        model.addPoint(new Point(1, 15));
+        assertEquals(new Point(1, 15), model.lastPoint());
+
+        model.finishSelection();
+        assertEquals(new Point(9, 2), model.selection().getLast().end());
+
+        model.movePoint(2, new Point(8, 15));
+        assertEquals(new Point(9, 15), model.selection().get(2).start());
+        assertEquals(new Point(9, 15), model.selection().get(1).end());
+    }
+
+    @DisplayName("GIVEN a model whose image has just been set, WHEN its gradient is asked for on "
+            + "the Event Dispatch thread, THEN it will be returned once the background "
+            + "computation is done (and null before), AND it will be the gradient of the image.  "
+            + "WHEN it is asked for on another thread, THEN it will be returned at once.")
+    @Test
+    void testGradientComputedInBackground() throws Exception {
+        BufferedImage img = GradientMapTest.makeStepImage(BufferedImage.TYPE_INT_RGB, 400, 300);
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        model.setImage(img);
+
+        GradientMap[] onEdt = new GradientMap[1];
+        for (int wait = 0; wait < 500 && onEdt[0] == null; wait++) {
+            SwingUtilities.invokeAndWait(() -> onEdt[0] = model.gradient());
+            Thread.sleep(10);
+        }
+        assertNotNull(onEdt[0]);
+        assertSame(onEdt[0], model.gradient());
+        assertEquals(new GradientMap(img).strongestEdgeNear(195, 150, 5),
+                onEdt[0].strongestEdgeNear(195, 150, 5));
+
+        model.setImage(img);
+        assertNotNull(model.gradient());
+        model.setImage(null);
+        assertNull(model.gradient());
+    }
+
+    @DisplayName("GIVEN a model, WHEN the snap radius is set outside of the supported range, THEN "
+            + "an IllegalArgumentException will be thrown.")
+    @Test
+    void testSnapRadiusRange() {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        assertThrows(IllegalArgumentException.class, () -> model.setSnapRadius(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> model.setSnapRadius(PointToPointSelectionModel.MAX_SNAP_RADIUS + 1));
+    }
+
+    /* Tests of saveSelection() */
+
+    @DisplayName("GIVEN a triangular selection of an opaque image, WHEN the selection is saved, "
+            + "THEN the saved image will match the selection's bounding box, AND pixels whose "
+            + "centers are inside the triangle will be copied from the image, AND all other "
+            + "pixels will be transparent.")
+    @Test
+    void testSaveSelection() throws IOException {
+        BufferedImage img = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 20; y++) {
+            for (int x = 0; x < 20; x++) {
+                img.setRGB(x, y, x * 1000 + y);
+            }
+        }
+        SelectionModel model = new PointToPointSelectionModel(false);
+        model.setImage(img);
+        model.addPoint(new Point(2, 3));
+        model.addPoint(new Point(12, 3));
+        model.addPoint(new Point(2, 13));
+        model.finishSelection();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.saveSelection(out);
+        BufferedImage saved = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(10, saved.getWidth());
+        assertEquals(10, saved.getHeight());
+        assertEquals(img.getRGB(2, 3), saved.getRGB(0, 0));
+        assertEquals(img.getRGB(6, 7), saved.getRGB(4, 4));
+        assertEquals(0, saved.getRGB(9, 9) >>> 24);
+        assertEquals(0, saved.getRGB(5, 5) >>> 24);
+    }
+
+    @DisplayName("GIVEN a finished triangular selection, WHEN pixels are tested for containment, "
+            + "THEN exactly those pixels whose centers are inside the triangle will be contained, "
+            + "AND a mask of its bounding box will contain the same pixels.")
+    @Test
+    void testContains() {
+        SelectionModel model = new PointToPointSelectionModel(false);
+        model.addPoint(new Point(2, 3));
+        model.addPoint(new Point(42, 3));
+        model.addPoint(new Point(2, 23));
+        model.finishSelection();
+
+        Polygon triangle = new Polygon(new int[]{2, 42, 2}, new int[]{3, 3, 23}, 3);
+        Rectangle bounds = model.selectionPolygon().getBounds();
+        BitMask mask = model.selectionMask(bounds);
+        int count = 0;
+        for (int y = -1; y < 30; y++) {
+            for (int x = -1; x < 50; x++) {
+                boolean expected = triangle.contains(x + 0.5, y + 0.5);
+                assertEquals(expected, model.contains(x, y), "Pixel " + x + ", " + y);
+                assertEquals(expected, mask.get(x - bounds.x, y - bounds.y));
+                count += expected ? 1 : 0;
+            }
+        }
+        assertEquals(count, mask.count());
+        assertThrows(IllegalStateException.class, () -> {
+            model.reset();
+            model.contains(5, 5);
+        });
+    }
+
+    @DisplayName("GIVEN a finished square selection, WHEN the closest edge to a point near its "
+            + "right side is found and a point is inserted there, THEN the hit will be on the "
+            + "right side's segment at the projected position, AND the selection will gain a "
+            + "control point at that position between the right side's endpoints.")
+    @Test
+    void testClosestEdgeAndInsert() {
+        SelectionModel model = new PointToPointSelectionModel(false);
+        model.addPoint(new Point(10, 10));
+        model.addPoint(new Point(50, 10));
+        model.addPoint(new Point(50, 50));
+        model.addPoint(new Point(10, 50));
+        model.finishSelection();
+        PclTester observer = new PclTester();
+        model.addPropertyChangeListener(observer);
+
+        assertNull(model.closestEdge(new Point(30, 30), 5));
+        SelectionModel.EdgeHit hit = model.closestEdge(new Point(53, 22), 5);
+        assertNotNull(hit);
+        assertEquals(1, hit.segment());
+        assertEquals(new Point(50, 22), hit.point());
+        assertEquals(3, hit.distance(), 1e-9);
+
+        model.insertPoint(hit.segment(), hit.point());
+
+        observer.assertChanged("selection");
+        assertEquals(5, model.selection().size());
+        assertEquals(new PolyLine(new Point(50, 10), new Point(50, 22)), model.selection().get(1));
+        assertEquals(new PolyLine(new Point(50, 22), new Point(50, 50)), model.selection().get(2));
+        assertEquals(2, model.closestPoint(new Point(51, 23), 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> model.insertPoint(2, new Point(50, 22)));
+    }
+
+    @DisplayName("GIVEN a finished square selection with a point inserted on one edge, WHEN "
+            + "control points are removed, THEN the adjacent segments will be merged into straight "
+            + "lines, the path will stay closed, AND removing points from a triangle will be "
+            + "rejected.")
+    @Test
+    void testRemovePoint() {
+        SelectionModel model = new PointToPointSelectionModel(false);
+        model.addPoint(new Point(10, 10));
+        model.addPoint(new Point(50, 10));
+        model.addPoint(new Point(50, 50));
+        model.addPoint(new Point(10, 50));
+        model.finishSelection();
+        model.insertPoint(1, new Point(50, 30));
+        PclTester observer = new PclTester();
+        model.addPropertyChangeListener(observer);
+
+        model.removePoint(2);
+        observer.assertChanged("selection");
+        assertEquals(4, model.selection().size());
+        assertEquals(new PolyLine(new Point(50, 10), new Point(50, 50)), model.selection().get(1));
+        assertEquals(new Point(50, 30), model.closestEdge(new Point(52, 30), 5).point());
+
+        model.removePoint(0);
+        assertEquals(3, model.selection().size());
+        assertEquals(new PolyLine(new Point(10, 50), new Point(50, 10)), model.selection().get(0));
+        assertEquals(new Point(10, 50), model.selection().getLast().end());
+        assertTrue(model.contains(40, 40));
+        assertFalse(model.contains(20, 20));
+
+        assertThrows(IllegalStateException.class, () -> model.removePoint(1));
+        assertThrows(IllegalArgumentException.class, () -> model.removePoint(3));
+    }
 }
 
 /**
@@ -0,0 +1,145 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.awt.geom.Line2D;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A test suite for `PolyLine`'s simplification and full-resolution paths, and for their
+ * chain-coded storage.
+ */
+class PolyLineTest {
+
+    /**
+     * Return a poly-line with one point per pixel column tracing `amplitude * sin(x / period)` for
+     * x in [0..length].
+     */
+    static PolyLine makeWave(int length, double amplitude, double period) {
+        int[] xs = new int[length + 1];
+        int[] ys = new int[length + 1];
+        for (int x = 0; x <= length; x++) {
+            xs[x] = x;
+            ys[x] = (int) Math.round(amplitude * Math.sin(x / period));
+        }
+        return new PolyLine(xs, ys);
+    }
+
+    @DisplayName("GIVEN a pixel-by-pixel trace of a smooth curve, WHEN it is simplified, THEN it "
+            + "will have at least 10 times fewer points, AND its endpoints will be unchanged, AND "
+            + "every original point will be within the tolerance of the simplified path, AND the "
+            + "original path will be available as its full resolution.")
+    @Test
+    void testSimplifyWave() {
+        PolyLine full = makeWave(2000, 40, 100);
+        double tolerance = 1.0;
+
+        PolyLine simple = full.simplify(tolerance);
+
+        assertTrue(simple.size() * 10 <= full.size(), "Kept " + simple.size() + " points");
+        assertEquals(full.start(), simple.start());
+        assertEquals(full.end(), simple.end());
+        assertEquals(full, simple.fullResolution());
+        for (int i = 0; i < full.size(); i++) {
+            double dist = Double.POSITIVE_INFINITY;
+            for (int j = 0; j + 1 < simple.size(); j++) {
+                dist = Math.min(dist, Line2D.ptSegDist(simple.xs()[j], simple.ys()[j],
+                        simple.xs()[j + 1], simple.ys()[j + 1], full.xs()[i], full.ys()[i]));
+            }
+            assertTrue(dist <= tolerance, "Point " + i + " is " + dist + " away");
+        }
+    }
+
+    @DisplayName("GIVEN a straight segment or a path whose points are all needed, WHEN it is "
+            + "simplified, THEN the same poly-line will be returned.")
+    @Test
+    void testSimplifyNoop() {
+        PolyLine line = new PolyLine(new Point(0, 0), new Point(10, 3));
+        assertSame(line, line.simplify(1.0));
+
+        PolyLine zigzag = new PolyLine(new int[]{0, 5, 10, 15}, new int[]{0, 5, 0, 5});
+        assertSame(zigzag, zigzag.simplify(1.0));
+    }
+
+    @DisplayName("GIVEN a simplified poly-line, WHEN its endpoints are moved, THEN both it and its "
+            + "full-resolution path will have the new endpoints, AND their interior points will be "
+            + "unchanged.")
+    @Test
+    void testWithEndpoints() {
+        PolyLine full = makeWave(300, 20, 30);
+        PolyLine simple = full.simplify(1.0);
+        Point start = new Point(-5, 7);
+        Point end = new Point(310, -2);
+
+        PolyLine moved = simple.withEndpoints(start, end);
+
+        assertEquals(start, moved.start());
+        assertEquals(end, moved.end());
+        assertEquals(start, moved.fullResolution().start());
+        assertEquals(end, moved.fullResolution().end());
+        assertEquals(simple.size(), moved.size());
+        assertEquals(full.size(), moved.fullResolution().size());
+        assertEquals(simple.xs()[1], moved.xs()[1]);
+        assertEquals(full.ys()[1], moved.fullResolution().ys()[1]);
+    }
+
+    @DisplayName("GIVEN two halves of a simplified wave, WHEN they are concatenated, THEN the "
+            + "result will have the points of both with their shared point once, AND its "
+            + "full-resolution path will equal the unsplit wave's.")
+    @Test
+    void testConcat() {
+        PolyLine full = makeWave(300, 20, 30);
+        PolyLine simple = full.simplify(1.0);
+        PolyLine[] halves = simple.split(new Point(simple.xs()[2], simple.ys()[2]));
+
+        PolyLine joined = halves[0].concat(halves[1]);
+
+        assertEquals(simple, joined);
+        assertEquals(full, joined.fullResolution());
+    }
+
+    @DisplayName("GIVEN a long path between adjacent pixels, WHEN it is chain-coded, THEN it will "
+            + "have the same points, read separately or together, AND it will equal the original, "
+            + "AND a polygon made from it will match one made from the original.")
+    @Test
+    void testChainCodeRoundTrip() {
+        PolyLine full = makeWave(5000, 30, 70);
+        ChainCodePolyLine coded = ChainCodePolyLine.encode(full.xs(), full.ys());
+
+        assertNotNull(coded);
+        assertEquals(full.size(), coded.size());
+        assertArrayEquals(full.xs(), coded.xs());
+        assertArrayEquals(full.ys(), coded.ys());
+        assertArrayEquals(full.coordinates(), coded.coordinates());
+        assertEquals(full, coded);
+        assertEquals(coded, full);
+        assertEquals(full.hashCode(), coded.hashCode());
+        assertEquals(full.end(), coded.end());
+        int[] xs = new int[10];
+        int[] ys = new int[10];
+        coded.copyTo(1000, xs, ys, 0, 10);
+        assertEquals(full.xs()[1005], xs[5]);
+        assertEquals(full.ys()[1009], ys[9]);
+
+        Polygon expected = PolyLine.makePolygon(List.of(full));
+        Polygon actual = PolyLine.makePolygon(List.of(coded));
+        assertEquals(expected.npoints, actual.npoints);
+        assertArrayEquals(Arrays.copyOf(expected.xpoints, expected.npoints),
+                Arrays.copyOf(actual.xpoints, actual.npoints));
+        assertArrayEquals(Arrays.copyOf(expected.ypoints, expected.npoints),
+                Arrays.copyOf(actual.ypoints, actual.npoints));
+    }
+
+    @DisplayName("GIVEN a path with a step that skips a pixel, WHEN it is chain-coded, THEN null "
+            + "will be returned.")
+    @Test
+    void testChainCodeRejectsGaps() {
+        assertNull(ChainCodePolyLine.encode(new int[]{0, 1, 3}, new int[]{0, 1, 1}));
+        assertNull(ChainCodePolyLine.encode(new int[]{0, 1, 1}, new int[]{0, 1, 1}));
+    }
+}
@@ -0,0 +1,174 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A test suite for `ProcessingExecutor` and the ownership of background work by selection models.
+ */
+class ProcessingExecutorTest {
+
+    @DisplayName("GIVEN tasks running in the CPU, I/O and idle lanes of a group, WHEN the group is "
+            + "cancelled, THEN every task will be interrupted, AND the group will have no pending "
+            + "tasks once they stop, AND tasks of other groups will be unaffected.")
+    @Test
+    void testCancelAll() throws Exception {
+        ProcessingExecutor executor = new ProcessingExecutor(2, 2);
+        ProcessingExecutor.TaskGroup group = executor.newGroup();
+        ProcessingExecutor.TaskGroup other = executor.newGroup();
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch stopped = new CountDownLatch(3);
+        Runnable spin = () -> {
+            started.countDown();
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.onSpinWait();
+            }
+            stopped.countDown();
+        };
+        Future<?> cpu = group.submitCpu(() -> {
+            spin.run();
+            return null;
+        });
+        Future<?> io = group.submitIo(() -> {
+            spin.run();
+            return null;
+        });
+        Future<?> idle = group.submitIdle(spin);
+        Future<Integer> unrelated = other.submitCpu(() -> 42);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(3, group.pendingCount());
+
+        group.cancelAll();
+
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertTrue(cpu.isCancelled() && io.isCancelled() && idle.isCancelled());
+        assertThrows(CancellationException.class, cpu::get);
+        for (int wait = 0; wait < 500 && group.pendingCount() > 0; wait++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, group.pendingCount());
+        assertEquals(42, unrelated.get(5, TimeUnit.SECONDS));
+    }
+
+    @DisplayName("GIVEN more CPU tasks than the executor may queue, WHEN they are submitted, THEN "
+            + "the submitter will wait for earlier tasks to finish, AND every task will run.")
+    @Test
+    void testCpuBackpressure() throws Exception {
+        ProcessingExecutor executor = new ProcessingExecutor(1, 1);
+        ProcessingExecutor.TaskGroup group = executor.newGroup();
+        int count = 100;
+        Future<?>[] futures = new Future<?>[count];
+        for (int i = 0; i < count; i++) {
+            futures[i] = group.submitCpu(() -> {
+                Thread.sleep(1);
+                return null;
+            });
+            assertTrue(group.pendingCount() <= 4, "Too many tasks queued");
+        }
+        for (Future<?> f : futures) {
+            f.get(5, TimeUnit.SECONDS);
+        }
+        // Tasks leave the group just after their results become available
+        for (int wait = 0; wait < 500 && group.pendingCount() > 0; wait++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, group.pendingCount());
+    }
+
+    @DisplayName("GIVEN as many CPU tasks as the executor may queue, one running and ignoring "
+            + "interrupts, WHEN they are all cancelled, THEN another submitter will still wait "
+            + "until the running task actually stops, AND its task will then run.  GIVEN a CPU "
+            + "pool that has been shut down, WHEN a task is submitted, THEN it will be rejected, "
+            + "AND the group will not keep it pending.")
+    @Test
+    void testPermitsHeldUntilTasksStop() throws Exception {
+        ProcessingExecutor executor = new ProcessingExecutor(1, 1);
+        ProcessingExecutor.TaskGroup group = executor.newGroup();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        group.submitCpu(() -> {
+            started.countDown();
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // Keep running, as a kernel that does not poll for interruption would
+                }
+            }
+            return null;
+        });
+        for (int i = 1; i < 4; i++) {
+            group.submitCpu(() -> null);
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        group.cancelAll();
+
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread submitter = new Thread(() -> {
+            group.submitCpu(() -> null);
+            submitted.countDown();
+        });
+        submitter.start();
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS), "Permit released too early");
+        release.countDown();
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        submitter.join();
+
+        executor.cpuPool().shutdown();
+        assertTrue(executor.cpuPool().awaitTermination(5, TimeUnit.SECONDS));
+        assertThrows(RejectedExecutionException.class, () -> group.submitCpu(() -> null));
+        assertEquals(0, group.pendingCount());
+    }
+
+    @DisplayName("GIVEN an executor with a task running, WHEN it is shut down, THEN the task will "
+            + "still finish, AND every lane will reject new tasks.")
+    @Test
+    void testShutdown() throws Exception {
+        ProcessingExecutor executor = new ProcessingExecutor(1, 1);
+        ProcessingExecutor.TaskGroup group = executor.newGroup();
+        Future<Integer> running = group.submitIo(() -> {
+            Thread.sleep(50);
+            return 7;
+        });
+
+        executor.shutdown();
+
+        assertEquals(7, running.get(5, TimeUnit.SECONDS));
+        assertThrows(RejectedExecutionException.class, () -> group.submitCpu(() -> null));
+        assertThrows(RejectedExecutionException.class, () -> group.submitIo(() -> null));
+        assertThrows(RejectedExecutionException.class, () -> group.submitIdle(() -> { }));
+        assertTrue(executor.cpuPool().awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @DisplayName("GIVEN a scissors model growing a tree speculatively, WHEN its background work is "
+            + "cancelled (as when the model is replaced) or it is reset, THEN its group will have "
+            + "no pending tasks soon after.")
+    @Test
+    void testModelOwnsBackgroundWork() throws InterruptedException {
+        ScissorsSelectionModel model = ScissorsSelectionModelTest.makeSquareModel();
+        model.addPoint(new Point(20, 20));
+        model.trackCursor(new Point(90, 85));
+
+        model.cancelBackgroundWork();
+        for (int wait = 0; wait < 500 && model.tasks.pendingCount() > 0; wait++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, model.tasks.pendingCount());
+        assertEquals(SelectionModel.SelectionState.SELECTING, model.state());
+
+        model.trackCursor(new Point(80, 95));
+        model.reset();
+        for (int wait = 0; wait < 500 && model.tasks.pendingCount() > 0; wait++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, model.tasks.pendingCount());
+    }
+}
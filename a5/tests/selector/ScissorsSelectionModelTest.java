@@ -0,0 +1,300 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static selector.MagicWandSelectionModelTest.makeImage;
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A test suite for `ScissorsSelectionModel` and the shortest-path trees it relies on.
+ */
+class ScissorsSelectionModelTest {
+
+    /**
+     * Return a scissors model selecting from a 100x100 white image with a blue square covering
+     * [20..60) in both directions.
+     */
+    static ScissorsSelectionModel makeSquareModel() {
+        ScissorsSelectionModel model = new ScissorsSelectionModel(false);
+        model.setImage(makeImage(100, 100, new Rectangle(20, 20, 40, 40)));
+        return model;
+    }
+
+    /**
+     * Return the distance from (`x`, `y`) to the nearest side of the square [20..60) x [20..60).
+     */
+    static int distanceToSquareEdge(int x, int y) {
+        int inside = Math.min(Math.min(x - 20, 59 - x), Math.min(y - 20, 59 - y));
+        if (inside >= 0) {
+            return inside;
+        }
+        int dx = Math.max(Math.max(20 - x, x - 59), 0);
+        int dy = Math.max(Math.max(20 - y, y - 59), 0);
+        return Math.max(dx, dy);
+    }
+
+    /**
+     * Assert that each step of `path` moves to one of the 8 pixels adjacent to the previous point.
+     */
+    static void assertConnected(PolyLine path) {
+        int[] xs = path.xs();
+        int[] ys = path.ys();
+        for (int i = 1; i < xs.length; i++) {
+            assertTrue(Math.abs(xs[i] - xs[i - 1]) <= 1 && Math.abs(ys[i] - ys[i - 1]) <= 1,
+                    "Step " + i + " is not between adjacent pixels");
+        }
+    }
+
+    @DisplayName("GIVEN an image of a square, WHEN the live wire is requested between opposite "
+            + "corners of the square, THEN it will follow the square's edge rather than cutting "
+            + "across it, AND it will connect adjacent pixels.")
+    @Test
+    void testLiveWireFollowsEdge() {
+        ScissorsSelectionModel model = makeSquareModel();
+        model.addPoint(new Point(20, 20));
+
+        PolyLine wire = model.liveWire(new Point(59, 59));
+
+        assertEquals(new Point(20, 20), wire.start());
+        assertEquals(new Point(59, 59), wire.end());
+        assertConnected(wire);
+        int[] xs = wire.xs();
+        int[] ys = wire.ys();
+        for (int i = 0; i < xs.length; i++) {
+            assertTrue(distanceToSquareEdge(xs[i], ys[i]) <= 1,
+                    "(" + xs[i] + ", " + ys[i] + ") is not on the square's edge");
+        }
+    }
+
+    @DisplayName("GIVEN random per-pixel weights, WHEN paths are found from a seed with a "
+            + "shortest-path tree, THEN each path's cost will equal the distance found by "
+            + "repeatedly relaxing every step until nothing changes.")
+    @Test
+    void testShortestPathTreeIsOptimal() {
+        int width = 30;
+        int height = 20;
+        Random rng = new Random(3);
+        byte[] weights = new byte[width * height];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (byte) (1 + rng.nextInt(ShortestPathTree.MAX_WEIGHT));
+        }
+        Point seed = new Point(7, 11);
+
+        // Brute force (Bellman-Ford)
+        long[] dist = new long[width * height];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        dist[seed.y * width + seed.x] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int p = y * width + x;
+                    if (dist[p] == Long.MAX_VALUE) {
+                        continue;
+                    }
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dx = -1; dx <= 1; dx++) {
+                            int nx = x + dx;
+                            int ny = y + dy;
+                            if ((dx == 0 && dy == 0) || nx < 0 || nx >= width || ny < 0
+                                    || ny >= height) {
+                                continue;
+                            }
+                            int q = ny * width + nx;
+                            long d = dist[p] + stepCost(weights, p, q, dx, dy);
+                            if (d < dist[q]) {
+                                dist[q] = d;
+                                changed = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        ShortestPathTree tree = new ShortestPathTree(width, height, weights, seed);
+        for (int i = 0; i < 50; i++) {
+            Point target = new Point(rng.nextInt(width), rng.nextInt(height));
+            PolyLine path = tree.pathTo(target);
+            assertEquals(seed, path.start());
+            assertEquals(target, path.end());
+            assertConnected(path);
+            int[] xs = path.xs();
+            int[] ys = path.ys();
+            long cost = 0;
+            for (int k = 1; k < xs.length && !target.equals(seed); k++) {
+                cost += stepCost(weights, ys[k - 1] * width + xs[k - 1], ys[k] * width + xs[k],
+                        xs[k] - xs[k - 1], ys[k] - ys[k - 1]);
+            }
+            assertEquals(dist[target.y * width + target.x], cost);
+        }
+    }
+
+    /**
+     * Return the cost of a step from pixel `p` to pixel `q` by (`dx`, `dy`), as defined by
+     * `ShortestPathTree`.
+     */
+    private static long stepCost(byte[] weights, int p, int q, int dx, int dy) {
+        return (weights[p] + weights[q]) * ((dx != 0 && dy != 0) ? 7L : 5L);
+    }
+
+    @DisplayName("GIVEN a finished selection around a square, WHEN a control point is dragged "
+            + "through several positions, THEN provisional paths through the final position "
+            + "will be computed in the background without changing the selection, AND releasing "
+            + "the point there will commit those paths.")
+    @Test
+    void testDragPreview() throws InterruptedException {
+        ScissorsSelectionModel model = makeSquareModel();
+        model.addPoint(new Point(20, 20));
+        model.addPoint(new Point(59, 20));
+        model.addPoint(new Point(59, 59));
+        model.addPoint(new Point(20, 59));
+        model.finishSelection();
+        assertEquals(SELECTED, model.state());
+        PclTester observer = new PclTester();
+        model.addPropertyChangeListener("selection", observer);
+        Point target = new Point(70, 75);
+
+        for (int k = 0; k <= 10; k++) {
+            model.previewMove(2, new Point(59 + k, 59 + 2 * k - 5));
+        }
+        model.previewMove(2, target);
+        // Until the background paths are ready, straight lines are returned
+        PolyLine[] preview = model.movePreview(2, target);
+        for (int wait = 0; wait < 500
+                && (preview[0].size() == 2 || !preview[0].end().equals(target)); wait++) {
+            Thread.sleep(10);
+            preview = model.movePreview(2, target);
+        }
+
+        observer.assertNoChanges();
+        assertEquals(new Point(59, 20), preview[0].start());
+        assertEquals(target, preview[0].end());
+        assertEquals(target, preview[1].start());
+        assertEquals(new Point(20, 59), preview[1].end());
+        assertConnected(preview[0]);
+        assertConnected(preview[1]);
+
+        model.movePoint(2, target);
+
+        observer.assertChanged("selection");
+        assertEquals(preview[0], model.selection().get(1).fullResolution());
+        assertEquals(preview[1], model.selection().get(2).fullResolution());
+        assertEquals(model.selection().getFirst().start(), model.selection().getLast().end());
+    }
+
+    @DisplayName("GIVEN a finished selection, WHEN a control point is moved without having been "
+            + "dragged, THEN both of its segments will be recomputed to pass through it, AND the "
+            + "path will remain closed.")
+    @Test
+    void testMovePointWithoutPreview() {
+        ScissorsSelectionModel model = makeSquareModel();
+        model.addPoint(new Point(20, 20));
+        model.addPoint(new Point(59, 20));
+        model.addPoint(new Point(59, 59));
+        model.finishSelection();
+
+        model.movePoint(0, new Point(10, 10));
+
+        assertEquals(new Point(10, 10), model.selection().getFirst().start());
+        assertEquals(new Point(10, 10), model.selection().getLast().end());
+        assertConnected(model.selection().getFirst().fullResolution());
+        assertConnected(model.selection().getLast().fullResolution());
+    }
+
+    @DisplayName("GIVEN a selection in progress, WHEN the pointer hovers far from the last point, "
+            + "THEN the tree from the last point will be grown in the background until the path "
+            + "to the hovered area is known, AND the live wire there will match a fresh search.")
+    @Test
+    void testSpeculateTowardsCursor() throws InterruptedException {
+        ScissorsSelectionModel model = makeSquareModel();
+        model.addPoint(new Point(20, 20));
+        Point aim = new Point(90, 85);
+
+        model.trackCursor(aim);
+
+        ShortestPathTree tree = model.cachedTree(new Point(20, 20));
+        assertNotNull(tree);
+        for (int wait = 0; wait < 500 && !tree.isSettled(aim); wait++) {
+            Thread.sleep(10);
+        }
+        assertTrue(tree.isSettled(aim));
+        PolyLine fresh = new ShortestPathTree(100, 100,
+                ShortestPathTree.weights(model.gradient()), new Point(20, 20)).pathTo(aim);
+        assertEquals(fresh, model.liveWire(aim));
+    }
+
+    @DisplayName("GIVEN a finished selection, WHEN the pointer hovers near a control point, THEN "
+            + "the trees from both of its neighbors will be grown in the background until its "
+            + "paths are known.")
+    @Test
+    void testSpeculateAroundHoveredPoint() throws InterruptedException {
+        ScissorsSelectionModel model = makeSquareModel();
+        model.addPoint(new Point(20, 20));
+        model.addPoint(new Point(59, 20));
+        model.addPoint(new Point(59, 59));
+        model.addPoint(new Point(20, 59));
+        model.finishSelection();
+        Point control = new Point(59, 59);
+
+        model.trackCursor(new Point(61, 57));
+
+        ShortestPathTree fromPrev = model.cachedTree(new Point(59, 20));
+        ShortestPathTree fromNext = model.cachedTree(new Point(20, 59));
+        assertNotNull(fromPrev);
+        assertNotNull(fromNext);
+        for (int wait = 0; wait < 500
+                && !(fromPrev.isSettled(control) && fromNext.isSettled(control)); wait++) {
+            Thread.sleep(10);
+        }
+        assertTrue(fromPrev.isSettled(control));
+        assertTrue(fromNext.isSettled(control));
+    }
+
+    @DisplayName("GIVEN a selection in progress on a square, WHEN the pointer jitters near the far "
+            + "side of the square for several moves, THEN the stable prefix of the live wire "
+            + "will be committed as a segment along the square's edge, AND the selection will "
+            + "still be in progress from the new point.")
+    @Test
+    void testPathCooling() {
+        ScissorsSelectionModel model = makeSquareModel();
+        model.addPoint(new Point(20, 20));
+        PclTester observer = new PclTester();
+        model.addPropertyChangeListener(observer);
+
+        for (int k = 0; k < 2 * ScissorsSelectionModel.DEFAULT_COOLING_MOVES; k++) {
+            model.trackCursor(new Point(61 + k % 2, 38 + k % 3));
+        }
+
+        observer.assertChanged("selection");
+        assertEquals(SELECTING, model.state());
+        assertFalse(model.selection().isEmpty());
+        assertEquals(new Point(20, 20), model.selection().getFirst().start());
+        Point cooled = model.lastPoint();
+        assertNotEquals(new Point(20, 20), cooled);
+        assertTrue(distanceToSquareEdge(cooled.x, cooled.y) <= 1);
+    }
+
+    @DisplayName("GIVEN a selection in progress with path cooling disabled, WHEN the pointer "
+            + "jitters for many moves, THEN nothing will be committed.")
+    @Test
+    void testPathCoolingDisabled() {
+        ScissorsSelectionModel model = makeSquareModel();
+        model.setCoolingMoves(0);
+        model.addPoint(new Point(20, 20));
+
+        for (int k = 0; k < 50; k++) {
+            model.trackCursor(new Point(61 + k % 2, 38 + k % 3));
+        }
+
+        assertTrue(model.selection().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> model.setCoolingMoves(-1));
+    }
+}
@@ -0,0 +1,315 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A test suite for `SegmentList` and the polygon and indexes it maintains.
+ */
+class SegmentListTest {
+
+    /**
+     * Return a random poly-line from (`x0`, `y0`) to (`x1`, `y1`) with between 0 and 5 interior
+     * points.
+     */
+    static PolyLine randomSegment(Random rng, int x0, int y0, int x1, int y1) {
+        int n = 2 + rng.nextInt(6);
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        xs[0] = x0;
+        ys[0] = y0;
+        for (int i = 1; i < n - 1; i++) {
+            xs[i] = rng.nextInt(100);
+            ys[i] = rng.nextInt(100);
+        }
+        xs[n - 1] = x1;
+        ys[n - 1] = y1;
+        return new PolyLine(xs, ys);
+    }
+
+    /**
+     * Assert that `actual` has the same vertices as `expected`, in the same cyclic order.
+     */
+    static void assertSamePolygon(Polygon expected, Polygon actual) {
+        assertEquals(expected.npoints, actual.npoints);
+        int n = expected.npoints;
+        for (int shift = 0; shift < n; shift++) {
+            boolean matches = true;
+            for (int i = 0; i < n && matches; i++) {
+                int j = (i + shift) % n;
+                matches = expected.xpoints[i] == actual.xpoints[j]
+                        && expected.ypoints[i] == actual.ypoints[j];
+            }
+            if (matches) {
+                return;
+            }
+        }
+        fail("Expected " + Arrays.toString(Arrays.copyOf(expected.xpoints, n)) + " but was "
+                + Arrays.toString(Arrays.copyOf(actual.xpoints, n)));
+    }
+
+    @DisplayName("GIVEN a continuous path, WHEN segments are repeatedly appended, replaced, "
+            + "inserted, and removed while keeping it continuous, THEN its polygon will always "
+            + "match the one built from scratch by `makePolygon()`.")
+    @Test
+    void testPolygonTracksEdits() {
+        Random rng = new Random(42);
+        SegmentList list = new SegmentList();
+        List<PolyLine> expected = new ArrayList<>();
+        // Joints of the path; segment i runs from joint i to joint i + 1
+        List<int[]> joints = new ArrayList<>();
+        joints.add(new int[]{50, 50});
+        for (int step = 0; step < 2000; step++) {
+            int n = expected.size();
+            int op = (n < 3) ? 0 : rng.nextInt(4);
+            if (op == 0) {
+                // Append
+                int[] a = joints.get(n);
+                int[] b = {rng.nextInt(100), rng.nextInt(100)};
+                joints.add(b);
+                PolyLine s = randomSegment(rng, a[0], a[1], b[0], b[1]);
+                expected.add(s);
+                list.add(s);
+            } else if (op == 1) {
+                // Replace a segment's interior
+                int i = rng.nextInt(n);
+                int[] a = joints.get(i);
+                int[] b = joints.get(i + 1);
+                PolyLine s = randomSegment(rng, a[0], a[1], b[0], b[1]);
+                expected.set(i, s);
+                list.set(i, s);
+            } else if (op == 2) {
+                // Move a joint, replacing both segments that meet there
+                int i = rng.nextInt(n + 1);
+                int[] p = {rng.nextInt(100), rng.nextInt(100)};
+                joints.set(i, p);
+                if (i > 0) {
+                    int[] a = joints.get(i - 1);
+                    PolyLine s = randomSegment(rng, a[0], a[1], p[0], p[1]);
+                    expected.set(i - 1, s);
+                    list.set(i - 1, s);
+                }
+                if (i < n) {
+                    int[] b = joints.get(i + 1);
+                    PolyLine s = randomSegment(rng, p[0], p[1], b[0], b[1]);
+                    expected.set(i, s);
+                    list.set(i, s);
+                }
+            } else {
+                // Remove the first or last segment, split a segment in two, or merge two
+                int choice = rng.nextInt(4);
+                if (choice == 0) {
+                    expected.removeFirst();
+                    list.removeFirst();
+                    joints.removeFirst();
+                } else if (choice == 1) {
+                    expected.removeLast();
+                    list.removeLast();
+                    joints.removeLast();
+                } else if (choice == 2) {
+                    int i = rng.nextInt(n);
+                    int[] a = joints.get(i);
+                    int[] b = joints.get(i + 1);
+                    int[] m = {rng.nextInt(100), rng.nextInt(100)};
+                    joints.add(i + 1, m);
+                    PolyLine first = randomSegment(rng, a[0], a[1], m[0], m[1]);
+                    PolyLine second = randomSegment(rng, m[0], m[1], b[0], b[1]);
+                    expected.set(i, first);
+                    expected.add(i + 1, second);
+                    list.set(i, first);
+                    list.add(i + 1, second);
+                } else {
+                    int i = 1 + rng.nextInt(n - 1);
+                    joints.remove(i);
+                    int[] a = joints.get(i - 1);
+                    int[] b = joints.get(i);
+                    PolyLine merged = randomSegment(rng, a[0], a[1], b[0], b[1]);
+                    expected.remove(i);
+                    expected.set(i - 1, merged);
+                    list.remove(i);
+                    list.set(i - 1, merged);
+                }
+            }
+            assertEquals(expected, list);
+            if (!expected.isEmpty()) {
+                assertSamePolygon(PolyLine.makePolygon(expected), list.polygon());
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a long continuous path, WHEN a segment list is built from it in one "
+            + "step, THEN it will hold the path's segments in order with a matching polygon, AND "
+            + "it will keep matching a plain list through later insertions, replacements and "
+            + "removals.")
+    @Test
+    void testBulkBuild() {
+        Random rng = new Random(46);
+        List<PolyLine> expected = new ArrayList<>();
+        int x = 50;
+        int y = 50;
+        for (int i = 0; i < 10_000; i++) {
+            int nx = rng.nextInt(100);
+            int ny = rng.nextInt(100);
+            expected.add(randomSegment(rng, x, y, nx, ny));
+            x = nx;
+            y = ny;
+        }
+        SegmentList list = new SegmentList(expected);
+
+        assertEquals(expected.size(), list.size());
+        for (int i = 0; i < expected.size(); i += 97) {
+            assertSame(expected.get(i), list.get(i));
+        }
+        assertEquals(expected, list);
+        assertSamePolygon(PolyLine.makePolygon(expected), list.polygon());
+
+        for (int k = 0; k < 1000; k++) {
+            int i = rng.nextInt(expected.size());
+            PolyLine segment = expected.get(i);
+            switch (k % 3) {
+                case 0 -> {
+                    int jx = rng.nextInt(100);
+                    int jy = rng.nextInt(100);
+                    PolyLine first = randomSegment(rng, segment.startX(), segment.startY(),
+                            jx, jy);
+                    PolyLine second = randomSegment(rng, jx, jy, segment.endX(),
+                            segment.endY());
+                    expected.set(i, first);
+                    list.set(i, first);
+                    expected.add(i + 1, second);
+                    list.add(i + 1, second);
+                }
+                case 1 -> {
+                    PolyLine replacement = randomSegment(rng, segment.startX(),
+                            segment.startY(), segment.endX(), segment.endY());
+                    expected.set(i, replacement);
+                    list.set(i, replacement);
+                }
+                default -> {
+                    if (i > 0) {
+                        PolyLine merged = new PolyLine(expected.get(i - 1).start(),
+                                segment.end());
+                        expected.remove(i);
+                        list.remove(i);
+                        expected.set(i - 1, merged);
+                        list.set(i - 1, merged);
+                    }
+                }
+            }
+        }
+        assertEquals(expected, list);
+        assertSamePolygon(PolyLine.makePolygon(expected), list.polygon());
+    }
+
+    @DisplayName("GIVEN a segment list whose polygon has been requested, WHEN it is requested "
+            + "again without any edits, THEN the same polygon will be returned.")
+    @Test
+    void testPolygonCached() {
+        SegmentList list = new SegmentList();
+        list.add(new PolyLine(new int[]{0, 10, 10}, new int[]{0, 0, 10}));
+        list.add(new PolyLine(new int[]{10, 0}, new int[]{10, 0}));
+        Polygon p = list.polygon();
+        assertSame(p, list.polygon());
+        assertEquals(3, p.npoints);
+        assertTrue(p.contains(7, 3));
+    }
+
+    @DisplayName("GIVEN many scattered segments, WHEN the closest segment to random points is "
+            + "found with a spatial index, THEN it will match a brute-force search, including "
+            + "after segments are inserted and removed.")
+    @Test
+    void testSegmentIndexMatchesBruteForce() {
+        Random rng = new Random(7);
+        List<SegmentIndex.Entry<Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            entries.add(new SegmentIndex.Entry<>(randomShortSegment(rng), i));
+        }
+        SegmentIndex<Integer> index = new SegmentIndex<>(entries);
+        for (int round = 0; round < 4; round++) {
+            for (int q = 0; q < 100; q++) {
+                double x = rng.nextInt(5200) - 100;
+                double y = rng.nextInt(5200) - 100;
+                Integer expected = null;
+                double expectedDist = 50 * 50;
+                for (SegmentIndex.Entry<Integer> entry : entries) {
+                    double dist = entry.segment.distanceSq(x, y);
+                    if (dist < expectedDist || (dist == expectedDist
+                            && (expected == null || entry.owner < expected))) {
+                        expected = entry.owner;
+                        expectedDist = dist;
+                    }
+                }
+                assertEquals(expected,
+                        index.closest(x, y, 50 * 50, Comparator.naturalOrder()));
+            }
+            // Replace a quarter of the segments before the next round of queries
+            for (int k = 0; k < 5000; k++) {
+                int i = rng.nextInt(entries.size());
+                index.remove(entries.get(i));
+                SegmentIndex.Entry<Integer> entry =
+                        new SegmentIndex.Entry<>(randomShortSegment(rng), entries.get(i).owner);
+                entries.set(i, entry);
+                index.insert(entry);
+            }
+            assertEquals(entries.size(), index.size());
+        }
+    }
+
+    @DisplayName("GIVEN a long path, WHEN its control points are removed one at a time from "
+            + "random positions while the closest segment to random points is queried, THEN "
+            + "each query will match a brute-force search over the remaining segments.")
+    @Test
+    void testClosestSegmentTracksRemovals() {
+        Random rng = new Random(11);
+        SegmentList list = new SegmentList();
+        int x = 2500;
+        int y = 2500;
+        for (int i = 0; i < 3000; i++) {
+            int nx = Math.clamp(x + rng.nextInt(61) - 30, 0, 5000);
+            int ny = Math.clamp(y + rng.nextInt(61) - 30, 0, 5000);
+            list.add(new PolyLine(new Point(x, y), new Point(nx, ny)));
+            x = nx;
+            y = ny;
+        }
+        while (list.size() > 2) {
+            int i = 1 + rng.nextInt(list.size() - 1);
+            PolyLine merged = new PolyLine(list.get(i - 1).start(), list.get(i).end());
+            list.remove(i);
+            list.set(i - 1, merged);
+            if (list.size() % 50 == 0) {
+                double qx = rng.nextInt(5000);
+                double qy = rng.nextInt(5000);
+                int expected = -1;
+                double expectedDist = 200 * 200;
+                for (int k = 0; k < list.size(); k++) {
+                    double dist = list.get(k).distanceSq(qx, qy);
+                    if (dist < expectedDist) {
+                        expected = k;
+                        expectedDist = dist;
+                    }
+                }
+                assertEquals(expected, list.closestSegment(qx, qy, 200 * 200));
+            }
+        }
+    }
+
+    /**
+     * Return a random straight segment at most 20 pixels long in each direction, somewhere in a
+     * 5000x5000 area.
+     */
+    static PolyLine randomShortSegment(Random rng) {
+        int x = rng.nextInt(5000);
+        int y = rng.nextInt(5000);
+        return new PolyLine(new Point(x, y),
+                new Point(x + rng.nextInt(41) - 20, y + rng.nextInt(41) - 20));
+    }
+}
@@ -0,0 +1,139 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A test suite for extracting the pixels inside a selection path with `SelectionExtractor`.
+ */
+class SelectionExtractorTest {
+
+    /**
+     * Return the segments of the closed path through `points`, in order.
+     */
+    static List<PolyLine> path(Point... points) {
+        List<PolyLine> segments = new ArrayList<>();
+        for (int i = 0; i < points.length; i++) {
+            segments.add(new PolyLine(points[i], points[(i + 1) % points.length]));
+        }
+        return segments;
+    }
+
+    /**
+     * Return the pixels of `img`, in row-major order.
+     */
+    static int[] pixels(BufferedImage img) {
+        return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    }
+
+    @DisplayName("GIVEN a square selection extending beyond the edges of an image, WHEN the "
+            + "image is extracted, THEN the result will have the size of the square, AND pixels "
+            + "inside the image will be copied, AND those outside of it will be transparent.")
+    @Test
+    void testExtractBeyondImage() {
+        BufferedImage img = BatchExtractorTest.frame(1);
+        SelectionExtractor extractor = new SelectionExtractor(path(new Point(20, 20),
+                new Point(40, 20), new Point(40, 40), new Point(20, 40)));
+
+        BufferedImage crop = extractor.extract(img);
+
+        assertEquals(new Rectangle(20, 20, 20, 20), extractor.bounds());
+        assertEquals(20, crop.getWidth());
+        assertEquals(img.getRGB(25, 25), crop.getRGB(5, 5));
+        assertEquals(0, crop.getRGB(15, 5) >>> 24);
+    }
+
+    @DisplayName("GIVEN a U-shaped selection of an opaque image, WHEN the image is extracted "
+            + "(twice, reusing a pooled image), THEN exactly the pixels whose centers lie inside "
+            + "the U will be copied, AND all others, including those in its notch, will be "
+            + "transparent.")
+    @Test
+    void testExtractConcave() throws IOException {
+        BufferedImage img = BatchExtractorTest.frame(2);
+        Point[] corners = {new Point(3, 4), new Point(30, 4), new Point(30, 25),
+                new Point(20, 25), new Point(20, 10), new Point(12, 10), new Point(12, 25),
+                new Point(3, 25)};
+        Polygon u = new Polygon();
+        for (Point p : corners) {
+            u.addPoint(p.x, p.y);
+        }
+        SelectionExtractor extractor = new SelectionExtractor(path(corners));
+
+        for (int k = 0; k < 2; k++) {
+            BufferedImage crop = ImageIO.read(new ByteArrayInputStream(
+                    extractor.encode(SelectionExtractor.ImageSource.of(img))));
+            for (int y = 0; y < crop.getHeight(); y++) {
+                for (int x = 0; x < crop.getWidth(); x++) {
+                    int expected = u.contains(x + 3.5, y + 4.5) ? img.getRGB(x + 3, y + 4) : 0;
+                    assertEquals(expected, crop.getRGB(x, y), "Pixel " + x + ", " + y);
+                }
+            }
+        }
+    }
+
+    @DisplayName("GIVEN one extractor, WHEN many threads encode different images with it at "
+            + "once, reusing its pooled buffers, THEN each result will match the image that "
+            + "`saveSelection()` writes for the same image, AND decoding it will give the same "
+            + "pixels as extracting the image directly.")
+    @Test
+    void testConcurrentEncode() throws Exception {
+        List<PolyLine> triangle = path(new Point(2, 3), new Point(25, 5), new Point(14, 27));
+        SelectionExtractor extractor = new SelectionExtractor(triangle);
+        int count = 64;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<byte[]>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BufferedImage img = BatchExtractorTest.frame(i);
+            results.add(pool.submit(
+                    () -> extractor.encode(SelectionExtractor.ImageSource.of(img))));
+        }
+
+        SelectionModel model = new PointToPointSelectionModel(false);
+        for (int i = 0; i < count; i++) {
+            BufferedImage img = BatchExtractorTest.frame(i);
+            model.setImage(img);
+            model.restoreSelection(new Point(2, 3), triangle, true);
+            ByteArrayOutputStream saved = new ByteArrayOutputStream();
+            model.saveSelection(saved);
+            byte[] encoded = results.get(i).get();
+            assertArrayEquals(saved.toByteArray(), encoded, "Frame " + i);
+            BufferedImage decoded = SelectionExtractor.ImageSource.of(encoded).read();
+            assertArrayEquals(pixels(extractor.extract(img)), pixels(decoded));
+        }
+        pool.shutdown();
+    }
+
+    @DisplayName("GIVEN segments that are empty, that do not close up, or that enclose no "
+            + "pixels, WHEN an extractor is created for them, THEN an IllegalArgumentException "
+            + "will be thrown.  GIVEN bytes that are not an image, WHEN they are extracted, THEN "
+            + "an IOException will be thrown.")
+    @Test
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new SelectionExtractor(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new SelectionExtractor(
+                List.of(new PolyLine(new Point(0, 0), new Point(5, 5)),
+                        new PolyLine(new Point(5, 5), new Point(0, 9)))));
+        assertThrows(IllegalArgumentException.class, () -> new SelectionExtractor(
+                path(new Point(0, 0), new Point(5, 0), new Point(9, 0))));
+
+        SelectionExtractor extractor = new SelectionExtractor(
+                path(new Point(0, 0), new Point(5, 0), new Point(0, 5)));
+        assertThrows(IOException.class,
+                () -> extractor.extract(SelectionExtractor.ImageSource.of(new byte[]{1, 2, 3})));
+    }
+}
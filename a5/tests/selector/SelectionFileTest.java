@@ -0,0 +1,158 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Point;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A test suite for storing selection paths with `SelectionFile` and restoring them.
+ */
+class SelectionFileTest {
+
+    /**
+     * Return the bytes of `model`'s selection path in the binary selection format.
+     */
+    static byte[] encode(SelectionModel model) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SelectionFile.write(model, out);
+        return out.toByteArray();
+    }
+
+    @DisplayName("GIVEN a finished selection whose segments were simplified from paths between "
+            + "adjacent pixels, WHEN it is saved to a file and loaded into a fresh model, THEN "
+            + "the model will hold the same segments with the same full-resolution paths, AND "
+            + "the pixel steps will take 2 bytes each.")
+    @Test
+    void testRoundTripSimplified(@TempDir Path dir) throws IOException {
+        // A circle traced one pixel at a time, in 8 segments
+        int n = 800;
+        int[] xs = new int[n + 1];
+        int[] ys = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * i / n;
+            xs[i] = (int) Math.round(500 + 120 * Math.cos(angle));
+            ys[i] = (int) Math.round(500 + 120 * Math.sin(angle));
+        }
+        xs[n] = xs[0];
+        ys[n] = ys[0];
+        PolyLine[] segments = new PolyLine[8];
+        for (int k = 0; k < segments.length; k++) {
+            int from = k * n / segments.length;
+            int to = (k + 1) * n / segments.length;
+            segments[k] = new PolyLine(Arrays.copyOfRange(xs, from, to + 1),
+                    Arrays.copyOfRange(ys, from, to + 1)).simplify(1);
+            assertNotSame(segments[k], segments[k].fullResolution());
+        }
+        SelectionModel saved = new PointToPointSelectionModel(false);
+        saved.restoreSelection(new Point(xs[0], ys[0]), List.of(segments), true);
+        Path file = dir.resolve("circle.sel");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            SelectionFile.write(saved, out);
+        }
+
+        SelectionModel loaded = new PointToPointSelectionModel(false);
+        SelectionFile.load(file).restoreTo(loaded);
+
+        assertEquals(SELECTED, loaded.state());
+        assertEquals(saved.selection(), loaded.selection());
+        assertEquals(saved.fullResolutionSelection(), loaded.fullResolutionSelection());
+        assertTrue(loaded.contains(500, 500));
+        assertFalse(loaded.contains(380, 380));
+        int simplifiedPoints = 0;
+        for (PolyLine segment : segments) {
+            simplifiedPoints += segment.size() - 1;
+        }
+        // Besides the header, there are at most 10 bytes per simplified point and 2 per pixel
+        assertTrue(Files.size(file) < 64 + 10 * simplifiedPoints + 2 * n,
+                "File takes " + Files.size(file) + " bytes");
+    }
+
+    @DisplayName("GIVEN a selection in progress, WHEN it is saved and restored into a fresh "
+            + "model, THEN the model will be SELECTING from the same last point, AND selection "
+            + "can continue from there.  GIVEN no selection, WHEN it is saved and restored, THEN "
+            + "there will still be no selection.")
+    @Test
+    void testRoundTripInProgress() throws IOException {
+        SelectionModel saved = new PointToPointSelectionModel(false);
+        saved.addPoint(new Point(-5, 7));
+        saved.addPoint(new Point(100_000, 7));
+        saved.addPoint(new Point(100_000, -3));
+
+        SelectionModel loaded = new PointToPointSelectionModel(false);
+        SelectionFile.read(ByteBuffer.wrap(encode(saved))).restoreTo(loaded);
+
+        assertEquals(SELECTING, loaded.state());
+        assertEquals(saved.selection(), loaded.selection());
+        assertEquals(new Point(100_000, -3), loaded.lastPoint());
+        loaded.finishSelection();
+        assertEquals(SELECTED, loaded.state());
+        assertEquals(new Point(-5, 7), loaded.selection().getLast().end());
+
+        SelectionModel empty = new PointToPointSelectionModel(false);
+        SelectionFile.read(ByteBuffer.wrap(encode(empty))).restoreTo(loaded);
+        assertEquals(NO_SELECTION, loaded.state());
+        assertTrue(loaded.selection().isEmpty());
+    }
+
+    @DisplayName("GIVEN a finished selection with one simplified segment, WHEN it is exported "
+            + "as JSON, THEN its state, start, points and full-resolution path will be listed.")
+    @Test
+    void testJson() throws IOException {
+        PolyLine simplified = new PolyLine(new int[]{0, 1, 2, 3, 4}, new int[]{0, 0, 0, 0, 1})
+                .simplify(1);
+        SelectionModel model = new PointToPointSelectionModel(false);
+        model.restoreSelection(new Point(0, 0), List.of(simplified,
+                new PolyLine(new Point(4, 1), new Point(0, 0))), true);
+        StringWriter out = new StringWriter();
+
+        SelectionFile.writeJson(model, out);
+
+        assertEquals("{\"version\": 1, \"state\": \"SELECTED\", \"start\": [0, 0], "
+                + "\"segments\": [\n"
+                + "{\"points\": [[0, 0], [4, 1]], \"fullResolution\": "
+                + "[[0, 0], [1, 0], [2, 0], [3, 0], [4, 1]]},\n"
+                + "{\"points\": [[4, 1], [0, 0]]}]}\n", out.toString());
+    }
+
+    @DisplayName("GIVEN bytes that are not a selection file, or a selection file cut off partway "
+            + "through, WHEN they are read, THEN an IOException will be thrown.  GIVEN segments "
+            + "that do not join up, WHEN they are restored into a model, THEN an "
+            + "IllegalArgumentException will be thrown and the model will be unchanged.")
+    @Test
+    void testInvalid() throws IOException {
+        assertThrows(IOException.class,
+                () -> SelectionFile.read(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6})));
+        SelectionModel model = new PointToPointSelectionModel(false);
+        model.addPoint(new Point(0, 0));
+        model.addPoint(new Point(10, 0));
+        model.addPoint(new Point(10, 10));
+        model.finishSelection();
+        byte[] bytes = encode(model);
+        for (int length = 0; length < bytes.length; length++) {
+            ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, length);
+            assertThrows(IOException.class, () -> SelectionFile.read(truncated));
+        }
+
+        List<PolyLine> broken = List.of(new PolyLine(new Point(0, 0), new Point(5, 5)),
+                new PolyLine(new Point(5, 6), new Point(0, 0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> model.restoreSelection(new Point(0, 0), broken, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> model.restoreSelection(new Point(0, 0), broken.subList(0, 1), true));
+        assertEquals(SELECTED, model.state());
+        assertEquals(3, model.selection().size());
+    }
+}
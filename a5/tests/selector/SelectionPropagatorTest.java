@@ -0,0 +1,176 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A test suite for carrying selections across image sequences with `SelectionPropagator`.
+ */
+class SelectionPropagatorTest {
+
+    /**
+     * Return a 120x120 image of random-looking texture, shifted by (`dx`, `dy`): its pixel at
+     * (x, y) has the color of the unshifted texture at (x - dx, y - dy).
+     */
+    static BufferedImage texture(int dx, int dy) {
+        BufferedImage img = new BufferedImage(120, 120, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 120; y++) {
+            for (int x = 0; x < 120; x++) {
+                int h = (x - dx) * 73_856_093 ^ (y - dy) * 19_349_663;
+                h ^= h >>> 13;
+                h *= 0x5bd1e995;
+                img.setRGB(x, y, (h ^ h >>> 15) & 0xFFFFFF);
+            }
+        }
+        return img;
+    }
+
+    /**
+     * Return the starting points of the segments of `segments`.
+     */
+    static List<Point> controlPoints(List<PolyLine> segments) {
+        List<Point> points = new ArrayList<>();
+        for (PolyLine segment : segments) {
+            points.add(segment.start());
+        }
+        return points;
+    }
+
+    /**
+     * Return a finished selection of a 40x30 rectangle at (40, 45), whose top edge is a
+     * full-resolution path one pixel at a time.
+     */
+    static SelectionModel rectangle() {
+        int[] xs = new int[41];
+        int[] ys = new int[41];
+        for (int i = 0; i <= 40; i++) {
+            xs[i] = 40 + i;
+            ys[i] = 45;
+        }
+        SelectionModel model = new PointToPointSelectionModel(false);
+        model.restoreSelection(new Point(40, 45), List.of(new PolyLine(xs, ys),
+                new PolyLine(new Point(80, 45), new Point(80, 75)),
+                new PolyLine(new Point(80, 75), new Point(40, 75)),
+                new PolyLine(new Point(40, 75), new Point(40, 45))), true);
+        return model;
+    }
+
+    @DisplayName("GIVEN a selection of a textured image, WHEN it is propagated to a copy of the "
+            + "image shifted by a few pixels, THEN every control point will move by the shift, "
+            + "AND each segment will keep its shape.")
+    @Test
+    void testPropagateShift() {
+        SelectionModel model = rectangle();
+        SelectionPropagator propagator = new SelectionPropagator(3, 6);
+
+        List<PolyLine> moved = propagator.propagate(texture(0, 0), model.selection(),
+                texture(5, -3));
+
+        assertEquals(List.of(new Point(45, 42), new Point(85, 42), new Point(85, 72),
+                new Point(45, 72)), controlPoints(moved));
+        assertEquals(41, moved.getFirst().size());
+        assertEquals(new Point(65, 42), new Point(moved.getFirst().xs()[20],
+                moved.getFirst().ys()[20]));
+    }
+
+    @DisplayName("GIVEN a selection of the first frame of a sequence whose texture drifts by "
+            + "(2, 1) pixels per frame, WHEN it is propagated along the sequence, THEN each frame "
+            + "will be handled once with a finished path over that frame, AND its control points "
+            + "will have drifted with the texture, AND its segments will be simplified but keep "
+            + "their full-resolution paths, AND its extractor will cover the path.  GIVEN a "
+            + "frame that cannot be read, WHEN the sequence is propagated, THEN an IOException "
+            + "will be thrown.")
+    @Test
+    void testPropagateAll() throws Exception {
+        int count = 6;
+        List<SelectionExtractor.ImageSource> frames = new ArrayList<>();
+        for (int k = 1; k <= count; k++) {
+            frames.add(SelectionExtractor.ImageSource.of(texture(2 * k, k)));
+        }
+        record Result(BufferedImage image, SelectionFile.Contents path,
+                      SelectionExtractor extractor) {
+        }
+        Map<Integer, Result> results = new ConcurrentHashMap<>();
+        SelectionPropagator propagator = new SelectionPropagator(
+                SelectionPropagator.DEFAULT_PATCH_RADIUS,
+                SelectionPropagator.DEFAULT_SEARCH_RADIUS);
+
+        propagator.propagateAll(texture(0, 0), rectangle().selection(), frames, 2,
+                (frame, image, path, extractor) -> assertNull(
+                        results.put(frame, new Result(image, path, extractor))));
+
+        assertEquals(count, results.size());
+        for (int k = 1; k <= count; k++) {
+            Result result = results.get(k - 1);
+            assertTrue(result.path().finished());
+            assertEquals(texture(2 * k, k).getRGB(7, 9), result.image().getRGB(7, 9));
+            List<PolyLine> segments = result.path().segments();
+            assertEquals(new Point(40 + 2 * k, 45 + k), result.path().start());
+            assertEquals(new Point(40 + 2 * k, 45 + k), segments.getFirst().start());
+            assertEquals(new Point(80 + 2 * k, 75 + k), segments.get(2).start());
+            assertEquals(2, segments.getFirst().size());
+            assertEquals(41, segments.getFirst().fullResolution().size());
+            assertEquals(new Rectangle(40 + 2 * k, 45 + k, 40, 30),
+                    result.extractor().bounds());
+        }
+
+        frames.set(3, () -> {
+            throw new IOException("Corrupt frame");
+        });
+        assertThrows(IOException.class, () -> propagator.propagateAll(texture(0, 0),
+                rectangle().selection(), frames, 2, (frame, image, path, extractor) -> { }));
+    }
+
+    @DisplayName("GIVEN a uniform image, WHEN a selection is propagated to it, THEN no point "
+            + "will move.  GIVEN a point near the edge of an image, WHEN it is propagated, THEN "
+            + "it will stay within the image's pixel corners.")
+    @Test
+    void testFeaturelessAndEdges() {
+        BufferedImage gray = new BufferedImage(120, 120, BufferedImage.TYPE_BYTE_GRAY);
+        SelectionModel model = rectangle();
+        SelectionPropagator propagator = new SelectionPropagator(2, 5);
+
+        assertEquals(model.selection(), propagator.propagate(gray, model.selection(), gray));
+
+        model.restoreSelection(new Point(0, 0), List.of(new PolyLine(new Point(0, 0),
+                new Point(119, 0)), new PolyLine(new Point(119, 0), new Point(0, 119)),
+                new PolyLine(new Point(0, 119), new Point(0, 0))), true);
+        for (Point p : controlPoints(propagator.propagate(texture(0, 0), model.selection(),
+                texture(-4, 4)))) {
+            assertTrue(p.x >= 0 && p.x <= 120 && p.y >= 0 && p.y <= 120, "Point " + p);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new SelectionPropagator(-1, 3));
+    }
+
+    @DisplayName("GIVEN a selection of a whole image, whose control points lie on the image's "
+            + "right and bottom edges, WHEN it is propagated to the same image with single-pixel "
+            + "patches, THEN no point will move off those edges, AND the path will still cover "
+            + "the whole image.")
+    @Test
+    void testEdgeTouching() {
+        SelectionModel model = new PointToPointSelectionModel(false);
+        model.restoreSelection(new Point(0, 0), List.of(
+                new PolyLine(new Point(0, 0), new Point(120, 0)),
+                new PolyLine(new Point(120, 0), new Point(120, 120)),
+                new PolyLine(new Point(120, 120), new Point(0, 120)),
+                new PolyLine(new Point(0, 120), new Point(0, 0))), true);
+        SelectionPropagator propagator = new SelectionPropagator(0, 3);
+
+        List<PolyLine> moved = propagator.propagate(texture(0, 0), model.selection(),
+                texture(0, 0));
+
+        assertEquals(List.of(new Point(0, 0), new Point(120, 0), new Point(120, 120),
+                new Point(0, 120)), controlPoints(moved));
+        assertEquals(new Rectangle(0, 0, 120, 120), new SelectionExtractor(moved).bounds());
+    }
+}